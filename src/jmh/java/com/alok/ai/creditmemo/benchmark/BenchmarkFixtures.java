@@ -0,0 +1,144 @@
+package com.alok.ai.creditmemo.benchmark;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.alok.ai.creditmemo.prompt.CreditMemoPrompts;
+import com.alok.ai.creditmemo.service.CreditMemoDocumentFormatter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark inputs: the {@code samples/*.json} requests by short name (e.g. {@code billing-error}),
+ * or {@code generated-<n>} for a billing-error request with n line items, half of them credited.
+ * Paths are relative to the project directory, where {@code exec:exec} runs.
+ */
+final class BenchmarkFixtures {
+    
+    /** ObjectMapper configured as Spring Boot configures the application's */
+    static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+    
+    private static final String GENERATED = "generated-";
+    
+    private BenchmarkFixtures() {
+    }
+    
+    static CreditMemoRequest request(String fixture) {
+        if (fixture.startsWith(GENERATED)) {
+            return generated(request("billing-error"), Integer.parseInt(fixture.substring(GENERATED.length())));
+        }
+        try {
+            return MAPPER.readValue(Path.of("samples", "sample-request-" + fixture + ".json").toFile(), CreditMemoRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read sample " + fixture, e);
+        }
+    }
+    
+    static CreditMemoPrompts prompts() {
+        CreditMemoProperties properties = new Binder(new MapConfigurationPropertySource(Map.of()))
+            .bindOrCreate("creditmemo", CreditMemoProperties.class);
+        return new CreditMemoPrompts(new DefaultResourceLoader(), properties);
+    }
+    
+    /**
+     * A document as the model would return it for the request, crediting every affected item
+     */
+    static CreditMemoDocument document(CreditMemoRequest request) {
+        CreditMemoRequest.TransactionInfo transaction = request.originalTransaction();
+        List<String> affected = request.creditDetails().affectedItems();
+        List<CreditMemoDocument.CreditLineItem> lines = new ArrayList<>();
+        if (transaction.lineItems() != null) {
+            for (CreditMemoRequest.LineItem item : transaction.lineItems()) {
+                if (affected == null || affected.contains(item.itemId())) {
+                    lines.add(new CreditMemoDocument.CreditLineItem(item.description(), item.quantity(),
+                        item.unitPrice(), item.totalPrice(), request.creditDetails().reasonDescription()));
+                }
+            }
+        }
+        BigDecimal total = request.creditDetails().creditAmount();
+        BigDecimal subtotal = total.divide(new BigDecimal("1.20"), 2, RoundingMode.HALF_UP);
+        CreditMemoRequest.CustomerInfo customer = request.customer();
+        return new CreditMemoDocument(
+            "CM-2024-BENCH001",
+            LocalDate.of(2024, 2, 1),
+            new CreditMemoDocument.IssuerDetails("UK Business Bank PLC", "1 Bank Street, London, EC2R 8AH, United Kingdom",
+                "customerservice@ukbusinessbank.com", "0800-123-4567", "N/A (Bank)"),
+            new CreditMemoDocument.RecipientDetails(customer.customerId(), customer.customerName(),
+                customer.billingAddress() != null ? customer.billingAddress().street() : "N/A",
+                customer.email(), customer.phone(), customer.accountNumber(), null),
+            new CreditMemoDocument.OriginalInvoiceReference(transaction.invoiceNumber(), transaction.transactionDate(),
+                transaction.originalAmount()),
+            new CreditMemoDocument.CreditInformation(request.creditDetails().reason().name(),
+                "The customer was charged in error for the items listed below. The amounts are credited in full "
+                + "and will be reflected on the next statement. No further action is needed from the customer.",
+                "PARTIAL"),
+            lines,
+            new CreditMemoDocument.FinancialSummary(subtotal, total.subtract(subtotal), total, transaction.currency()),
+            "This credit memo will be applied to your account within 5-7 business days.",
+            request.requester().name(),
+            request.creditDetails().additionalNotes());
+    }
+    
+    static CreditMemoResponse response(CreditMemoRequest request, CreditMemoDocument document) {
+        return new CreditMemoResponse(
+            "4f6c1d1e-0000-4000-8000-000000000001",
+            document.creditMemoNumber(),
+            LocalDateTime.of(2024, 2, 1, 9, 30),
+            CreditMemoResponse.CreditMemoStatus.DRAFT,
+            request.originalTransaction().invoiceNumber(),
+            request.customer().customerId(),
+            request.customer().customerName(),
+            request.creditDetails().creditAmount(),
+            request.originalTransaction().currency(),
+            request.creditDetails().reason().name(),
+            CreditMemoDocumentFormatter.format(document),
+            "Credit memo summary for management review.",
+            request.creditDetails().requiresApproval(),
+            CreditMemoResponse.CreditMemoStatus.DRAFT.name(),
+            request.requester().name(),
+            new CreditMemoResponse.ProcessingMetadata(2500, "anthropic.claude-3-5-sonnet-20240620-v1:0",
+                2140, 1320, 820, 0, 0, "4f6c1d1e-0000-4000-8000-000000000001"));
+    }
+    
+    private static CreditMemoRequest generated(CreditMemoRequest base, int lineItems) {
+        List<CreditMemoRequest.LineItem> items = new ArrayList<>(lineItems);
+        List<String> affected = new ArrayList<>();
+        BigDecimal original = BigDecimal.ZERO;
+        BigDecimal credit = BigDecimal.ZERO;
+        for (int i = 0; i < lineItems; i++) {
+            int quantity = i % 5 + 1;
+            BigDecimal unitPrice = BigDecimal.valueOf(10_000 + i % 50 * 125L, 2);
+            BigDecimal total = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            String itemId = String.format("ITEM%04d", i);
+            items.add(new CreditMemoRequest.LineItem(itemId, "Professional services, work package " + i,
+                quantity, unitPrice, total));
+            original = original.add(total);
+            if (i % 2 == 0) {
+                affected.add(itemId);
+                credit = credit.add(total);
+            }
+        }
+        CreditMemoRequest.TransactionInfo transaction = base.originalTransaction();
+        CreditMemoRequest.CreditDetails details = base.creditDetails();
+        return new CreditMemoRequest(base.requester(), base.issuer(), base.customer(),
+            new CreditMemoRequest.TransactionInfo(transaction.transactionId(), transaction.invoiceNumber(),
+                transaction.transactionDate(), original, transaction.currency(), items),
+            new CreditMemoRequest.CreditDetails(details.reason(), details.reasonDescription(), credit, affected,
+                details.additionalNotes(), details.requiresApproval(), details.approverEmail()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.alok.ai.creditmemo.benchmark;
+
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.service.CreditMemoDocumentFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plain-text rendering of a generated document into the response's {@code creditMemoDocument}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentFormatBenchmark {
+    
+    @Param({"billing-error", "external-bank-customer", "product-return", "generated-200", "generated-800"})
+    public String fixture;
+    
+    private CreditMemoDocument document;
+    
+    @Setup
+    public void setUp() {
+        document = BenchmarkFixtures.document(BenchmarkFixtures.request(fixture));
+    }
+    
+    @Benchmark
+    public String format() {
+        return CreditMemoDocumentFormatter.format(document);
+    }
+}
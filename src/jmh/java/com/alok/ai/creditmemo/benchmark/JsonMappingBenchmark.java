@@ -0,0 +1,90 @@
+package com.alok.ai.creditmemo.benchmark;
+
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson reading and writing of the request, the model's document and the response, with the
+ * application's ObjectMapper configuration
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonMappingBenchmark {
+    
+    @Param({"billing-error", "business-customer", "external-bank-customer", "generated-200", "generated-800"})
+    public String fixture;
+    
+    private final ObjectReader requestReader = BenchmarkFixtures.MAPPER.readerFor(CreditMemoRequest.class);
+    private final ObjectReader documentReader = BenchmarkFixtures.MAPPER.readerFor(CreditMemoDocument.class);
+    private final ObjectReader responseReader = BenchmarkFixtures.MAPPER.readerFor(CreditMemoResponse.class);
+    private final ObjectWriter writer = BenchmarkFixtures.MAPPER.writer();
+    
+    private CreditMemoRequest request;
+    private CreditMemoDocument document;
+    private CreditMemoResponse response;
+    
+    private byte[] requestJson;
+    private byte[] documentJson;
+    private byte[] responseJson;
+    
+    @Setup
+    public void setUp() throws IOException {
+        request = BenchmarkFixtures.request(fixture);
+        document = BenchmarkFixtures.document(request);
+        response = BenchmarkFixtures.response(request, document);
+        requestJson = writer.writeValueAsBytes(request);
+        documentJson = writer.writeValueAsBytes(document);
+        responseJson = writer.writeValueAsBytes(response);
+    }
+    
+    @Benchmark
+    public CreditMemoRequest readRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+    
+    @Benchmark
+    public byte[] writeRequest() throws IOException {
+        return writer.writeValueAsBytes(request);
+    }
+    
+    @Benchmark
+    public CreditMemoDocument readDocument() throws IOException {
+        return documentReader.readValue(documentJson);
+    }
+    
+    @Benchmark
+    public byte[] writeDocument() throws IOException {
+        return writer.writeValueAsBytes(document);
+    }
+    
+    @Benchmark
+    public CreditMemoResponse readResponse() throws IOException {
+        return responseReader.readValue(responseJson);
+    }
+    
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return writer.writeValueAsBytes(response);
+    }
+}
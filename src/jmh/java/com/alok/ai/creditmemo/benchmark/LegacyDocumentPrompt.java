@@ -0,0 +1,321 @@
+package com.alok.ai.creditmemo.benchmark;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import org.springframework.lang.NonNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The document prompt as it was built before {@code CreditMemoPrompts}: one {@code String.format}
+ * over the whole template per request. Kept only as the benchmark baseline.
+ */
+final class LegacyDocumentPrompt {
+    
+    private LegacyDocumentPrompt() {
+    }
+    
+    @SuppressWarnings("null")
+    static String build(@NonNull CreditMemoRequest request) {
+        // Determine issuer and context based on requester type
+        boolean isBankIssued = (request.requester().requesterType() == CreditMemoRequest.RequesterType.BANK_COLLEAGUE);
+        
+        // For bank colleague: Bank is issuer, customer is recipient
+        // For business customer: Business customer (from issuer field) is issuer, customer is recipient
+        String issuerName;
+        String issuerAddress;
+        String issuerEmail;
+        String issuerPhone;
+        String issuerAccountNumber;
+        
+        if (isBankIssued) {
+            // Bank is the issuer
+            issuerName = "UK Business Bank PLC";
+            issuerAddress = "1 Bank Street, London, EC2R 8AH, United Kingdom";
+            issuerEmail = "customerservice@ukbusinessbank.com";
+            issuerPhone = "0800-123-4567";
+            issuerAccountNumber = "N/A (Bank)";
+        } else {
+            // Business customer is the issuer - use issuer field if provided, otherwise derive from context
+            if (request.issuer() != null && request.issuer().companyName() != null) {
+                issuerName = request.issuer().companyName();
+                issuerAddress = request.issuer().address() != null 
+                    ? String.format("%s, %s, %s %s, %s",
+                        request.issuer().address().street(),
+                        request.issuer().address().city(),
+                        request.issuer().address().state(),
+                        request.issuer().address().zipCode(),
+                        request.issuer().address().country())
+                    : "N/A";
+                issuerEmail = request.issuer().email() != null ? request.issuer().email() : "N/A";
+                issuerPhone = request.issuer().phone() != null ? request.issuer().phone() : "N/A";
+                issuerAccountNumber = request.issuer().accountNumber() != null ? request.issuer().accountNumber() : "N/A";
+            } else {
+                // Fallback: extract from requester email domain
+                issuerName = "Business Customer";
+                issuerAddress = "N/A";
+                issuerEmail = request.requester().email();
+                issuerPhone = "N/A";
+                issuerAccountNumber = "N/A";
+            }
+        }
+        
+        String contextNote = switch (request.requester().requesterType()) {
+            case BUSINESS_CUSTOMER -> "This credit memo is issued by a business banking customer (" + issuerName + ") for their own customer. The business customer is a client of UK Business Bank PLC.";
+            case BANK_COLLEAGUE -> "This credit memo is issued by UK Business Bank PLC to correct an incorrect fee charge or banking error for their business customer.";
+            case SYSTEM_AUTOMATED -> "This credit memo is system-generated for automated processing.";
+            case CUSTOMER_SERVICE -> "This credit memo is issued by customer service on behalf of the customer.";
+        };
+        
+        // Build detailed line items information
+        StringBuilder lineItemsDetail = new StringBuilder();
+        if (request.originalTransaction().lineItems() != null && !request.originalTransaction().lineItems().isEmpty()) {
+            request.originalTransaction().lineItems().forEach(item -> {
+                lineItemsDetail.append(String.format("\n  - Item: %s | Description: %s | Qty: %d | Unit Price: £%.2f | Total: £%.2f",
+                    item.itemId(),
+                    item.description(),
+                    item.quantity(),
+                    item.unitPrice(),
+                    item.totalPrice()));
+            });
+        }
+        
+        // Calculate tax (20% UK VAT)
+        BigDecimal creditAmount = request.creditDetails().creditAmount();
+        BigDecimal taxRate = new BigDecimal("0.20");
+        BigDecimal subtotal = creditAmount.divide(BigDecimal.ONE.add(taxRate), 2, java.math.RoundingMode.HALF_UP);
+        BigDecimal taxAmount = creditAmount.subtract(subtotal);
+        
+        // Determine credit type
+        String creditType = creditAmount.compareTo(request.originalTransaction().originalAmount()) >= 0 ? "FULL" : "PARTIAL";
+        
+        // Generate unique credit memo number
+        String creditMemoNumber = String.format("CM-%s-%s", 
+            LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy")),
+            UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        
+        // Build bank details section if provided
+        String bankDetailsSection = "";
+        if (request.customer().bankDetails() != null) {
+            CreditMemoRequest.BankDetails bd = request.customer().bankDetails();
+            bankDetailsSection = String.format("""
+                Bank Details (Recipient banks with different institution):
+                  Bank Name: %s
+                  Bank Branch: %s
+                  Sort Code: %s
+                  SWIFT/BIC: %s
+                  Account Holder: %s""",
+                bd.bankName() != null ? bd.bankName() : "N/A",
+                bd.bankBranch() != null ? bd.bankBranch() : "N/A",
+                bd.sortCode() != null ? bd.sortCode() : "N/A",
+                bd.swiftCode() != null ? bd.swiftCode() : "N/A",
+                bd.accountHolderName() != null ? bd.accountHolderName() : "N/A"
+            );
+        }
+        
+        return String.format("""
+            Generate a professional UK business banking credit memo using the following data:
+            
+            === CONTEXT ===
+            %s
+            
+            === CREDIT MEMO DETAILS ===
+            Credit Memo Number: %s
+            Issue Date: %s
+            
+            === ISSUER INFORMATION (Who is issuing this credit memo) ===
+            Issuer Name: %s
+            Issuer Address: %s
+            Issuer Email: %s
+            Issuer Phone: %s
+            Issuer Account: %s
+            
+            === RECIPIENT INFORMATION (Who is receiving this credit) ===
+            Customer ID: %s
+            Customer Name: %s
+            Customer Email: %s
+            Customer Phone: %s
+            Billing Address: %s, %s, %s %s, %s
+            Account Number: %s
+            %s
+            
+            === ORIGINAL TRANSACTION ===
+            Transaction ID: %s
+            Invoice Number: %s
+            Invoice Date: %s
+            Original Amount: £%.2f
+            Line Items: %s
+            
+            === CREDIT DETAILS ===
+            Credit Type: %s
+            Credit Reason: %s
+            Reason Description: %s
+            Credit Amount (incl. tax): £%.2f
+            Subtotal (excl. tax): £%.2f
+            Tax Amount (20%% VAT): £%.2f
+            Affected Items: %s
+            Additional Notes: %s
+            
+            === AUTHORIZATION ===
+            Requested By: %s
+            Requester Type: %s
+            Requester Email: %s
+            Department: %s
+            
+            
+            YOU MUST OUTPUT ONLY THE FOLLOWING JSON STRUCTURE (NO OTHER TEXT):
+            {
+              "creditMemoNumber": "%s",
+              "issueDate": "%s",
+              "issuer": {
+                "name": "%s",
+                "address": "%s",
+                "email": "%s",
+                "phone": "%s",
+                "accountNumber": "%s"
+              },
+              "recipient": {
+                "customerId": "%s",
+                "name": "%s",
+                "address": "%s, %s, %s %s, %s",
+                "email": "%s",
+                "phone": "%s",
+                "accountNumber": "%s",
+                "bankDetails": %s
+              },
+              "originalInvoice": {
+                "invoiceNumber": "%s",
+                "invoiceDate": "%s",
+                "originalAmount": %.2f
+              },
+              "creditInfo": {
+                "reason": "%s",
+                "detailedExplanation": "[Write a professional 3-4 sentence explanation suitable for UK business banking. Include: (1) What is being credited, (2) Why the credit is being issued, (3) Impact on customer account, (4) Any follow-up actions if applicable. Use formal business tone.]",
+                "creditType": "%s"
+              },
+              "creditLineItems": [
+                [FOR EACH affected item, create an entry with format:]
+                {
+                  "itemDescription": "[Item description from line items]",
+                  "quantity": [quantity as integer],
+                  "unitPrice": [unit price as decimal],
+                  "lineTotal": [line total as decimal],
+                  "reasonForCredit": "[Specific reason for this item's credit]"
+                }
+              ],
+              "financialSummary": {
+                "subtotal": %.2f,
+                "taxAmount": %.2f,
+                "totalCreditAmount": %.2f,
+                "currency": "GBP"
+              },
+              "termsAndConditions": "This credit memo will be applied to your account within 5-7 business days. The credited amount will be reflected in your next statement. For queries, please contact our customer service team at customerservice@ukbusinessbank.com or call 0800-123-4567. Credit memo issued in accordance with UK business banking regulations and FCA guidelines.",
+              "authorizedBy": "%s",
+              "notes": "%s"
+            }
+            
+            CRITICAL REQUIREMENTS:
+            1. Output ONLY valid JSON - no markdown, no code blocks, no explanations
+            2. Use provided values exactly as shown
+            3. creditLineItems array must contain at least one item based on the affected items
+            4. detailedExplanation must be professional, factual, and specific to this transaction
+            5. All numeric values must be decimals without commas
+            6. Dates in YYYY-MM-DD format
+            7. Do not invent any financial figures - calculate from provided data
+            8. If bank details are provided for recipient, include them in the bankDetails object
+            9. If no bank details provided, set bankDetails to null
+            10. Bank details indicate the recipient banks with a different institution than the issuer
+            """,
+            // Context
+            contextNote,
+            
+            // Header information
+            creditMemoNumber,
+            LocalDateTime.now().toLocalDate(),
+            
+            // Issuer information (bank or business customer)
+            issuerName,
+            issuerAddress,
+            issuerEmail,
+            issuerPhone,
+            issuerAccountNumber,
+            
+            // Recipient information (always the customer field)
+            request.customer().customerId(),
+            request.customer().customerName(),
+            request.customer().email(),
+            request.customer().phone() != null ? request.customer().phone() : "N/A",
+            request.customer().billingAddress().street(),
+            request.customer().billingAddress().city(),
+            request.customer().billingAddress().state(),
+            request.customer().billingAddress().zipCode(),
+            request.customer().billingAddress().country(),
+            request.customer().accountNumber(),
+            bankDetailsSection,
+            
+            // Original transaction
+            request.originalTransaction().transactionId(),
+            request.originalTransaction().invoiceNumber(),
+            request.originalTransaction().transactionDate(),
+            request.originalTransaction().originalAmount(),
+            lineItemsDetail.toString(),
+            
+            // Credit details
+            creditType,
+            request.creditDetails().reason(),
+            request.creditDetails().reasonDescription(),
+            creditAmount,
+            subtotal,
+            taxAmount,
+            request.creditDetails().affectedItems() != null ? String.join(", ", request.creditDetails().affectedItems()) : "All items",
+            request.creditDetails().additionalNotes(),
+            
+            // Authorization
+            request.requester().name(),
+            request.requester().requesterType(),
+            request.requester().email(),
+            request.requester().department() != null ? request.requester().department() : "N/A",
+            
+            // JSON template values
+            creditMemoNumber,
+            LocalDateTime.now().toLocalDate(),
+            // Issuer info for JSON template
+            issuerName,
+            issuerAddress,
+            issuerEmail,
+            issuerPhone,
+            issuerAccountNumber,
+            // Recipient info for JSON template
+            request.customer().customerId(),
+            request.customer().customerName(),
+            request.customer().billingAddress().street(),
+            request.customer().billingAddress().city(),
+            request.customer().billingAddress().state(),
+            request.customer().billingAddress().zipCode(),
+            request.customer().billingAddress().country(),
+            request.customer().email(),
+            request.customer().phone() != null ? request.customer().phone() : "N/A",
+            request.customer().accountNumber(),
+            // Bank details JSON
+            request.customer().bankDetails() != null 
+                ? String.format("{\"bankName\": \"%s\", \"bankBranch\": \"%s\", \"sortCode\": \"%s\", \"swiftCode\": \"%s\", \"accountHolderName\": \"%s\"}",
+                    request.customer().bankDetails().bankName() != null ? request.customer().bankDetails().bankName() : "",
+                    request.customer().bankDetails().bankBranch() != null ? request.customer().bankDetails().bankBranch() : "",
+                    request.customer().bankDetails().sortCode() != null ? request.customer().bankDetails().sortCode() : "",
+                    request.customer().bankDetails().swiftCode() != null ? request.customer().bankDetails().swiftCode() : "",
+                    request.customer().bankDetails().accountHolderName() != null ? request.customer().bankDetails().accountHolderName() : "")
+                : "null",
+            request.originalTransaction().invoiceNumber(),
+            request.originalTransaction().transactionDate(),
+            request.originalTransaction().originalAmount(),
+            request.creditDetails().reason(),
+            creditType,
+            subtotal,
+            taxAmount,
+            creditAmount,
+            request.requester().name(),
+            request.creditDetails().additionalNotes()
+        );
+    }
+}
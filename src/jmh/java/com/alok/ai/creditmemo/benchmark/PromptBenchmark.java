@@ -0,0 +1,70 @@
+package com.alok.ai.creditmemo.benchmark;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.prompt.CreditMemoPrompts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt construction for the document, summary and validation calls. The document prompt is
+ * measured both from the compiled templates and through the former per-request
+ * {@code String.format}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptBenchmark {
+    
+    @Param({
+        "billing-error", "business-customer", "external-bank-customer", "product-return", "service-issue",
+        "generated-200", "generated-800"
+    })
+    public String fixture;
+    
+    private CreditMemoRequest request;
+    
+    private CreditMemoPrompts prompts;
+    
+    private final List<String> flagged = List.of("Credit amount is above the automatic acceptance limit of 1000");
+    
+    @Setup
+    public void setUp() {
+        request = BenchmarkFixtures.request(fixture);
+        prompts = BenchmarkFixtures.prompts();
+    }
+    
+    @Benchmark
+    public String documentTemplate() {
+        return prompts.document(request);
+    }
+    
+    @Benchmark
+    public String documentStringFormat() {
+        return LegacyDocumentPrompt.build(request);
+    }
+    
+    @Benchmark
+    public String summary() {
+        return prompts.summary(request);
+    }
+    
+    @Benchmark
+    public String validation() {
+        return prompts.validation(request, flagged);
+    }
+}
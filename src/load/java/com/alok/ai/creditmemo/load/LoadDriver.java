@@ -0,0 +1,214 @@
+package com.alok.ai.creditmemo.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Open-loop load driver: replays {@code samples/*.json} against the generate endpoint at a fixed
+ * arrival rate and reports status counts, throughput and latency percentiles.
+ * 
+ * Arrivals do not wait for earlier responses, and latency is measured from each request's
+ * scheduled start, so a slow server shows up as latency rather than as a lower request rate.
+ * Each request gets a distinct transaction ID so the response cache does not answer it.
+ * 
+ * <pre>
+ * mvn -Pload-test test-compile exec:exec -Dload.args="--rps 20 --duration 2m"
+ * </pre>
+ * Options: --url, --path, --rps, --duration, --warmup, --samples, --timeout, --max-in-flight
+ */
+public final class LoadDriver {
+    
+    private final Map<String, String> options;
+    
+    private final HttpClient client;
+    
+    private final List<ObjectNode> samples = new ArrayList<>();
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private final AtomicLong sequence = new AtomicLong();
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    private final LongAdder dropped = new LongAdder();
+    
+    private final LongAdder errors = new LongAdder();
+    
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    
+    private LoadDriver(Map<String, String> options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(Map.of(
+            "url", "http://localhost:8999",
+            "path", "/api/v1/credit-memos",
+            "rps", "10",
+            "duration", "60s",
+            "warmup", "10s",
+            "samples", "samples",
+            "timeout", "120s",
+            "max-in-flight", "2000"));
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        new LoadDriver(options).run();
+    }
+    
+    private void run() throws IOException, InterruptedException {
+        try (Stream<Path> files = Files.list(Path.of(options.get("samples")))) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                samples.add((ObjectNode) objectMapper.readTree(file.toFile()));
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IllegalStateException("No *.json samples in " + options.get("samples"));
+        }
+        
+        double rps = Double.parseDouble(options.get("rps"));
+        Duration warmup = duration(options.get("warmup"));
+        Duration measured = duration(options.get("duration"));
+        URI uri = URI.create(options.get("url") + options.get("path"));
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + measured.toNanos();
+        
+        System.out.printf("Driving %s at %.1f req/s: %s warm-up, %s measured, %d samples%n",
+                          uri, rps, warmup, measured, samples.size());
+        
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        AtomicLong tick = new AtomicLong();
+        ticker.scheduleAtFixedRate(() -> {
+            long scheduledAt = start + tick.getAndIncrement() * periodNanos;
+            if (scheduledAt >= end) {
+                return;
+            }
+            if (inFlight.incrementAndGet() > Integer.parseInt(options.get("max-in-flight"))) {
+                inFlight.decrementAndGet();
+                dropped.increment();
+                return;
+            }
+            workers.execute(() -> send(uri, scheduledAt, scheduledAt >= measureFrom));
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+        
+        TimeUnit.NANOSECONDS.sleep(end - System.nanoTime());
+        ticker.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(duration(options.get("timeout")).toSeconds() + 5, TimeUnit.SECONDS)) {
+            System.out.printf("%d requests still in flight at shutdown%n", inFlight.get());
+        }
+        report(measured);
+    }
+    
+    private void send(URI uri, long scheduledAt, boolean measure) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(duration(options.get("timeout")))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(nextBody()))
+                .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (measure) {
+                latenciesNanos.add(System.nanoTime() - scheduledAt);
+                statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+            }
+        } catch (IOException e) {
+            if (measure) {
+                errors.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    private byte[] nextBody() throws IOException {
+        long n = sequence.getAndIncrement();
+        ObjectNode body = samples.get((int) (n % samples.size())).deepCopy();
+        ObjectNode transaction = (ObjectNode) body.get("originalTransaction");
+        transaction.put("transactionId", transaction.path("transactionId").asText("TXN") + "-LT" + n);
+        return objectMapper.writeValueAsBytes(body);
+    }
+    
+    private void report(Duration measured) {
+        long[] latencies = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        long succeeded = byStatus.entrySet().stream()
+            .filter(entry -> entry.getKey() / 100 == 2)
+            .mapToLong(Map.Entry::getValue)
+            .sum();
+        
+        System.out.println();
+        System.out.printf("Responses:  %d %s, %d connection errors, %d dropped at the in-flight limit%n",
+                          latencies.length, byStatus, errors.sum(), dropped.sum());
+        System.out.printf("Throughput: %.1f req/s succeeded, %.1f req/s responded%n",
+                          succeeded / (double) measured.toSeconds(), latencies.length / (double) measured.toSeconds());
+        if (latencies.length > 0) {
+            System.out.printf("Latency:    p50 %d ms, p95 %d ms, p99 %d ms, max %d ms%n",
+                              millis(percentile(latencies, 50)), millis(percentile(latencies, 95)),
+                              millis(percentile(latencies, 99)), millis(latencies[latencies.length - 1]));
+        }
+    }
+    
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+    
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+    
+    /**
+     * 500ms, 30s, 2m
+     */
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Duration must end in ms, s or m: " + value);
+        };
+    }
+}
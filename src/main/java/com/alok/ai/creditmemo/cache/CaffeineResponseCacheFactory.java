@@ -0,0 +1,47 @@
+package com.alok.ai.creditmemo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * In-process caches on Caffeine (W-TinyLFU eviction), with hit, miss and eviction metrics
+ * published as {@code cache.*} meters tagged with the cache name
+ */
+public class CaffeineResponseCacheFactory implements ResponseCacheFactory {
+    
+    private final MeterRegistry meterRegistry;
+    
+    public CaffeineResponseCacheFactory(@NonNull MeterRegistry meterRegistry) {
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null");
+    }
+    
+    @Override
+    @NonNull
+    public <V> ResponseCache<V> create(@NonNull String name, @NonNull Class<V> type, @NonNull Duration ttl, long maxSize) {
+        Cache<String, V> cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        
+        return new ResponseCache<>() {
+            @Override
+            public Optional<V> get(@NonNull String key) {
+                return Optional.ofNullable(cache.getIfPresent(key));
+            }
+            
+            @Override
+            public void put(@NonNull String key, @NonNull V value) {
+                cache.put(key, value);
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.alok.ai.creditmemo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Caches on a Redis-compatible server, shared across instances. Values are stored as JSON
+ * under {@code creditmemo:<name>:<key>} with the TTL applied by the server; size is bounded
+ * by the server's maxmemory policy. Store failures are treated as misses so an unavailable
+ * server never fails generation.
+ */
+public class RedisResponseCacheFactory implements ResponseCacheFactory {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RedisResponseCacheFactory.class);
+    
+    private final StringRedisTemplate redisTemplate;
+    
+    private final ObjectMapper objectMapper;
+    
+    private final MeterRegistry meterRegistry;
+    
+    public RedisResponseCacheFactory(@NonNull StringRedisTemplate redisTemplate,
+                                     @NonNull ObjectMapper objectMapper,
+                                     @NonNull MeterRegistry meterRegistry) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate, "StringRedisTemplate must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper must not be null");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null");
+    }
+    
+    @Override
+    @NonNull
+    public <V> ResponseCache<V> create(@NonNull String name, @NonNull Class<V> type, @NonNull Duration ttl, long maxSize) {
+        String prefix = "creditmemo:" + name + ":";
+        Counter hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        Counter misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        
+        return new ResponseCache<>() {
+            @Override
+            public Optional<V> get(@NonNull String key) {
+                try {
+                    String json = redisTemplate.opsForValue().get(prefix + key);
+                    if (json != null) {
+                        hits.increment();
+                        return Optional.of(objectMapper.readValue(json, type));
+                    }
+                } catch (Exception e) {
+                    logger.warn("Redis cache {} read failed: {}", name, e.getMessage());
+                }
+                misses.increment();
+                return Optional.empty();
+            }
+            
+            @Override
+            public void put(@NonNull String key, @NonNull V value) {
+                try {
+                    redisTemplate.opsForValue().set(prefix + key, objectMapper.writeValueAsString(value), ttl);
+                } catch (Exception e) {
+                    logger.warn("Redis cache {} write failed: {}", name, e.getMessage());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.alok.ai.creditmemo.cache;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * Canonical SHA-256 fingerprint of a request record. Properties are written in sorted order and
+ * decimals are normalised ({@code 500}, {@code 500.00} and {@code 5E+2} hash the same), so
+ * requests that are equal in value produce the same key whatever their JSON formatting.
+ */
+public final class RequestFingerprint {
+    
+    private static final ObjectMapper CANONICAL_MAPPER = JsonMapper.builder()
+        .findAndAddModules()
+        .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .addModule(new SimpleModule().addSerializer(BigDecimal.class, new JsonSerializer<>() {
+            @Override
+            public void serialize(BigDecimal value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                gen.writeString(value.stripTrailingZeros().toPlainString());
+            }
+        }))
+        .build();
+    
+    private RequestFingerprint() {
+    }
+    
+    @NonNull
+    public static String of(@NonNull Object request) {
+        Objects.requireNonNull(request, "Request must not be null");
+        try {
+            byte[] canonical = CANONICAL_MAPPER.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.alok.ai.creditmemo.cache;
+
+import org.springframework.lang.NonNull;
+
+import java.util.Optional;
+
+/**
+ * Cache of computed results keyed on a request fingerprint
+ */
+public interface ResponseCache<V> {
+    
+    Optional<V> get(@NonNull String key);
+    
+    void put(@NonNull String key, @NonNull V value);
+}
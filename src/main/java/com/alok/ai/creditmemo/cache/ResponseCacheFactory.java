@@ -0,0 +1,43 @@
+package com.alok.ai.creditmemo.cache;
+
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Creates named response caches on a particular backing store
+ */
+public interface ResponseCacheFactory {
+    
+    /**
+     * @param name     cache name, used as the metrics tag and key namespace
+     * @param type     value type, for stores that serialise values
+     * @param ttl      time to live after write
+     * @param maxSize  entry bound, for stores that enforce one
+     */
+    @NonNull
+    <V> ResponseCache<V> create(@NonNull String name, @NonNull Class<V> type, @NonNull Duration ttl, long maxSize);
+    
+    /**
+     * Factory whose caches never hold anything
+     */
+    static ResponseCacheFactory none() {
+        return new ResponseCacheFactory() {
+            @Override
+            @NonNull
+            public <V> ResponseCache<V> create(@NonNull String name, @NonNull Class<V> type, @NonNull Duration ttl, long maxSize) {
+                return new ResponseCache<>() {
+                    @Override
+                    public Optional<V> get(@NonNull String key) {
+                        return Optional.empty();
+                    }
+                    
+                    @Override
+                    public void put(@NonNull String key, @NonNull V value) {
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.alok.ai.creditmemo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.model.bedrock.autoconfigure.BedrockAwsConnectionProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.providers.AwsRegionProvider;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+
+/**
+ * Bedrock runtime client for running model calls on virtual threads.
+ * 
+ * The client Spring AI builds by default uses the SDK's Apache HTTP client, whose connection
+ * pool leases connections inside a {@code synchronized} block: a virtual thread waiting there
+ * pins its carrier thread (seen with {@code -Djdk.tracePinnedThreads} at
+ * {@code AbstractConnPool$2.get}), and once every carrier is pinned nothing makes progress.
+ * The URL connection client does not hold monitors while blocking, so it is used instead when
+ * {@code spring.threads.virtual.enabled} is set. The Bedrock autoconfiguration picks this bean
+ * up; streaming keeps its own Netty client. The SDK's own retries are off here, since model calls
+ * are retried by {@code ModelResilienceAdvisor}.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "spring.ai.model.chat", havingValue = "bedrock-converse", matchIfMissing = true)
+public class BedrockClientConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BedrockClientConfig.class);
+    
+    @Bean(destroyMethod = "close")
+    public BedrockRuntimeClient bedrockRuntimeClient(AwsCredentialsProvider credentialsProvider,
+                                                     AwsRegionProvider regionProvider,
+                                                     BedrockAwsConnectionProperties connection) {
+        logger.info("Using the URL connection HTTP client for Bedrock calls on virtual threads");
+        return BedrockRuntimeClient.builder()
+            .region(regionProvider.getRegion())
+            .credentialsProvider(credentialsProvider)
+            .httpClientBuilder(UrlConnectionHttpClient.builder()
+                .connectionTimeout(connection.getConnectionTimeout())
+                .socketTimeout(connection.getSocketTimeout()))
+            // Retries are left to the resilience4j retry in ModelResilienceAdvisor, so they are not multiplied
+            .overrideConfiguration(config -> config
+                .apiCallTimeout(connection.getTimeout())
+                .retryStrategy(AwsRetryStrategy.doNotRetry()))
+            .build();
+    }
+}
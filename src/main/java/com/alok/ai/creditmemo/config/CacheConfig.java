@@ -0,0 +1,38 @@
+package com.alok.ai.creditmemo.config;
+
+import com.alok.ai.creditmemo.cache.CaffeineResponseCacheFactory;
+import com.alok.ai.creditmemo.cache.RedisResponseCacheFactory;
+import com.alok.ai.creditmemo.cache.ResponseCacheFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Selects the response cache store from {@code creditmemo.cache.provider}
+ */
+@Configuration
+public class CacheConfig {
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "creditmemo.cache", name = "provider", havingValue = "in-memory", matchIfMissing = true)
+    public ResponseCacheFactory caffeineResponseCacheFactory(MeterRegistry meterRegistry) {
+        return new CaffeineResponseCacheFactory(meterRegistry);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "creditmemo.cache", name = "provider", havingValue = "redis")
+    public ResponseCacheFactory redisResponseCacheFactory(StringRedisTemplate redisTemplate,
+                                                          ObjectMapper objectMapper,
+                                                          MeterRegistry meterRegistry) {
+        return new RedisResponseCacheFactory(redisTemplate, objectMapper, meterRegistry);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "creditmemo.cache", name = "provider", havingValue = "none")
+    public ResponseCacheFactory noResponseCacheFactory() {
+        return ResponseCacheFactory.none();
+    }
+}
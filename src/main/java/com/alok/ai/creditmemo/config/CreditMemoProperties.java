@@ -0,0 +1,254 @@
+package com.alok.ai.creditmemo.config;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest.CreditReason;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.RequesterType;
+import com.alok.ai.creditmemo.service.GenerationMode;
+import com.alok.ai.creditmemo.service.StructuredOutputMode;
+import com.alok.ai.creditmemo.service.SummaryMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tunables for credit memo generation, bound from the {@code creditmemo.*} namespace
+ */
+@ConfigurationProperties(prefix = "creditmemo")
+public record CreditMemoProperties(
+    @DefaultValue Generation generation,
+    @DefaultValue Summary summary,
+    @DefaultValue Jobs jobs,
+    @DefaultValue Batch batch,
+    @DefaultValue Offline offline,
+    @DefaultValue Cache cache,
+    @DefaultValue Idempotency idempotency,
+    @DefaultValue Validation validation,
+    @DefaultValue Prompts prompts,
+    @DefaultValue Stub stub,
+    @DefaultValue ModelCalls modelCalls,
+    @DefaultValue RateLimits rateLimits,
+    @DefaultValue Hedging hedging,
+    @DefaultValue Models models,
+    @DefaultValue Clients clients
+) {
+    
+    public record Generation(
+        // Upper bound on the document model call
+        @DefaultValue("110s") Duration documentTimeout,
+        // Upper bound on the summary model call, measured from the start of generation
+        @DefaultValue("30s") Duration summaryTimeout,
+        // How the document is produced: LLM, HYBRID (model writes only the narrative) or DETERMINISTIC
+        @DefaultValue("HYBRID") GenerationMode mode,
+        // Per requester type overrides of mode
+        @DefaultValue Map<RequesterType, GenerationMode> modes,
+        // How JSON answers are asked for: PROMPT (format instructions) or TOOL (Converse tool use)
+        @DefaultValue("PROMPT") StructuredOutputMode structuredOutput,
+        // Generation of memos with many line items in parallel chunks
+        @DefaultValue Chunking chunking
+    ) {}
+    
+    public record Chunking(
+        // Memos crediting at least this many line items have their reasons written in chunks; 0 turns chunking off
+        @DefaultValue("40") int minItems,
+        // Output tokens a chunk's reasons should take; chunk sizes follow the measured tokens per item
+        @DefaultValue("1500") int chunkOutputTokens,
+        // Line items per chunk until tokens per item have been measured
+        @DefaultValue("25") int initialChunkSize,
+        @DefaultValue("5") int minChunkSize,
+        @DefaultValue("100") int maxChunkSize
+    ) {}
+    
+    public record Summary(
+        // How the summary attached to a generated memo is produced
+        @DefaultValue("LLM") SummaryMode mode
+    ) {}
+    
+    public record Jobs(
+        // Jobs generated at the same time
+        @DefaultValue("8") int concurrency,
+        // Jobs waiting for a worker before submissions are rejected with 429
+        @DefaultValue("200") int queueCapacity,
+        // Retry-After advertised when the queue is full
+        @DefaultValue("30s") Duration retryAfter,
+        // How long finished jobs remain available for polling
+        @DefaultValue("1h") Duration retention,
+        // How often finished jobs past their retention are deleted
+        @DefaultValue("1m") Duration sweepInterval,
+        // Upper bound on delivering a webhook callback
+        @DefaultValue("10s") Duration callbackTimeout,
+        @DefaultValue Callback callback
+    ) {}
+    
+    public record Callback(
+        // Hosts job callbacks may be sent to; any other callback URL is rejected. Empty: no callbacks
+        @DefaultValue Set<String> allowedHosts
+    ) {}
+    
+    public record Batch(
+        // Memos generated at the same time within one batch; keep within the Bedrock TPS quota
+        @DefaultValue("4") int parallelism,
+        // Largest batch accepted in one request
+        @DefaultValue("5000") int maxItems,
+        // Largest batch body accepted; reading stops with 413 once it is exceeded
+        @DefaultValue("50MB") DataSize maxBodySize
+    ) {}
+    
+    public record Offline(
+        // prepare | run-local | ingest; unset for normal operation
+        String command,
+        // JSONL of CreditMemoRequest records
+        Path requests,
+        // Bedrock batch inference input JSONL
+        Path modelInput,
+        // Bedrock batch inference output JSONL
+        Path results,
+        // JSONL of ingested CreditMemoResponse records
+        Path responses
+    ) {}
+    
+    public record Cache(
+        // in-memory | redis | none; the provider bean is chosen in CacheConfig
+        @DefaultValue("in-memory") String provider,
+        // Generated memos, keyed on request fingerprint and summary mode
+        @DefaultValue CacheSpec generation,
+        // /summary results
+        @DefaultValue CacheSpec summary,
+        // /validate results
+        @DefaultValue CacheSpec validation
+    ) {}
+    
+    public record CacheSpec(
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("10000") long maxSize
+    ) {}
+    
+    public record Idempotency(
+        // How long a completed result is replayed for the same Idempotency-Key
+        @DefaultValue("24h") Duration replayWindow,
+        // Keys remembered at once
+        @DefaultValue("100000") long maxKeys
+    ) {}
+    
+    public record Validation(
+        // Answer clear accept/reject cases locally and only ask the model about the rest
+        @DefaultValue("true") boolean rulesEnabled,
+        // Rule names to skip, e.g. line-totals-consistent
+        @DefaultValue({}) Set<String> disabledRules,
+        // Credits above this amount always go to the model for review
+        @DefaultValue("1000") BigDecimal autoAcceptMaxAmount,
+        // Allowed difference between a line total and quantity x unit price
+        @DefaultValue("0.01") BigDecimal lineTotalTolerance,
+        // Reason descriptions shorter than this go to the model for review
+        @DefaultValue("15") int minReasonLength
+    ) {}
+    
+    public record Prompts(
+        // Directory holding the credit-memo-*.txt templates, e.g. file:/etc/creditmemo/prompts/
+        @DefaultValue("classpath:prompts/") String location
+    ) {}
+    
+    public record Stub(
+        // Simulated model latency is log-normal with this median and 99th percentile
+        @DefaultValue("1500ms") Duration latencyMedian,
+        @DefaultValue("6s") Duration latencyP99,
+        // Fraction of calls failing with a Bedrock InternalServerException (500)
+        @DefaultValue("0") double errorRate,
+        // Fraction of calls rejected with a Bedrock ThrottlingException (429)
+        @DefaultValue("0") double throttleRate,
+        // Characters per streamed chunk
+        @DefaultValue("64") int streamChunkSize
+    ) {}
+    
+    public record ModelCalls(
+        // The concurrency limit adapts between these bounds; keep the maximum within the Bedrock quota
+        @DefaultValue("2") int minConcurrent,
+        @DefaultValue("16") int initialConcurrent,
+        @DefaultValue("64") int maxConcurrent,
+        // Multiplier applied to the limit on throttling or latency growth
+        @DefaultValue("0.9") double backoffRatio,
+        // Recent latency above this multiple of the long-run average counts as congestion
+        @DefaultValue("2.0") double latencyTolerance,
+        // Callers waiting for a slot beyond this many are rejected at once with 429
+        @DefaultValue("500") int maxQueued,
+        // Requester types whose calls wait behind everyone else's when the limit is reached
+        @DefaultValue("SYSTEM_AUTOMATED") Set<RequesterType> backgroundRequesterTypes,
+        // How long a call may wait for a free slot before the request fails with 503
+        @DefaultValue("30s") Duration acquireTimeout,
+        // Retry-After advertised when a call is rejected
+        @DefaultValue("5s") Duration retryAfter
+    ) {}
+    
+    public record RateLimits(
+        @DefaultValue("true") boolean enabled,
+        // Applied to each requester.requesterId separately
+        @DefaultValue RequestRate perRequester,
+        // Requesters tracked at once; the least used are evicted beyond this
+        @DefaultValue("100000") long maxRequesters,
+        // Shared by all requesters of a type; types not listed are not limited
+        @DefaultValue Map<RequesterType, RequesterClass> requesterTypes
+    ) {}
+    
+    public record RequestRate(
+        // Sustained requests per second; 0 disables the limit
+        @DefaultValue("0") double rps,
+        // Requests allowed at once after a quiet period
+        @DefaultValue("1") int burst
+    ) {}
+    
+    public record RequesterClass(
+        @DefaultValue("0") double rps,
+        @DefaultValue("1") int burst,
+        // Model tokens (input + output) per minute; 0 disables the budget
+        @DefaultValue("0") long tokensPerMinute
+    ) {}
+    
+    public record Hedging(
+        @DefaultValue("false") boolean enabled,
+        // Model calls that may be hedged: document, summary, validation
+        @DefaultValue({"summary", "validation"}) Set<String> calls,
+        // A second call is sent once the first has run for this latency percentile of the call type
+        @DefaultValue("0.95") double percentile,
+        // Successful calls of a type seen before its calls are hedged
+        @DefaultValue("50") long minSamples,
+        // Never hedge sooner than this
+        @DefaultValue("1s") Duration minDelay
+    ) {}
+    
+    public record Models(
+        // Model per call type; unset uses spring.ai.bedrock.converse.chat.options.model
+        String document,
+        String summary,
+        String validation,
+        // Checked in order before the per-call models; the first route matching a call picks its model
+        @DefaultValue List<ModelRoute> routes
+    ) {}
+    
+    public record Clients(
+        // Default options of the ChatClient for each call type
+        @DefaultValue ClientOptions document,
+        @DefaultValue ClientOptions summary,
+        @DefaultValue ClientOptions validation
+    ) {}
+    
+    public record ClientOptions(
+        // Most tokens the call may generate; unset uses spring.ai.bedrock.converse.chat.options.max-tokens
+        Integer maxTokens,
+        // 0 to 1; unset uses spring.ai.bedrock.converse.chat.options.temperature
+        Double temperature
+    ) {}
+    
+    public record ModelRoute(
+        // Each condition left empty matches any call
+        @DefaultValue Set<String> calls,
+        @DefaultValue Set<CreditReason> creditReasons,
+        BigDecimal maxAmount,
+        Integer maxLineItems,
+        String model
+    ) {}
+}
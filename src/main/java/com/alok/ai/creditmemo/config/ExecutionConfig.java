@@ -0,0 +1,22 @@
+package com.alok.ai.creditmemo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration for the executors used to run Bedrock calls concurrently
+ */
+@Configuration
+public class ExecutionConfig {
+
+    /**
+     * Executor for model calls; each call blocks on network I/O, so one virtual thread per task
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService creditMemoExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
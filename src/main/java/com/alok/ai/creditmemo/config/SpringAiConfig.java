@@ -1,7 +1,13 @@
 package com.alok.ai.creditmemo.config;
 
+import com.alok.ai.creditmemo.limit.ModelConcurrencyLimiter;
+import com.alok.ai.creditmemo.resilience.ModelResilienceAdvisor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
@@ -9,42 +15,107 @@ import org.springframework.lang.NonNull;
 import java.util.Objects;
 
 /**
- * Configuration for Spring AI components
+ * Configuration for Spring AI components.
+ * 
+ * One {@link ChatClient} per model call type ({@code documentChatClient}, {@code summaryChatClient},
+ * {@code validationChatClient}), each with its own default options from {@code creditmemo.clients}.
  */
 @Configuration
 public class SpringAiConfig {
     
+    private static final Logger logger = LoggerFactory.getLogger(SpringAiConfig.class);
+    
     /**
-     * Configure ChatClient bean for injection
+     * Shared rules that open the system prompt of every call answered in JSON
      */
+    public static final String SYSTEM_PROMPT = """
+        You are a Business Banking Document Generator AI specializing in UK business banking credit memos.
+        
+        CRITICAL RULES:
+        1. Never invent financial values, dates, or customer details - use ONLY provided data.
+        2. Output MUST be valid JSON matching the exact schema provided.
+        3. Include no extra commentary or text outside the JSON structure.
+        4. All numeric fields must be properly formatted (no commas, use decimal notation).
+        5. Tone: formal, professional, UK business banking standards.
+        6. Credit memos must NEVER contain advice or speculative statements.
+        
+        INDUSTRY BEST PRACTICES:
+        - Detailed narrative explaining the reason for credit in business context
+        - Line-by-line breakdown of credited items with quantities and amounts
+        - Clear financial summary with subtotal, tax, and total
+        - Professional terms and conditions appropriate to credit type
+        - Proper authorization trail
+        - Reference to original transaction with full details
+        
+        CONTEXT AWARENESS:
+        - Business customers: credit memos for their own customer transactions
+        - Bank colleagues: credit memos correcting incorrect bank fee charges
+        - System automated: credit memos for returns, adjustments, or reversals
+        """;
+    
+    @Bean
+    public ChatClient documentChatClient(@NonNull ChatModel chatModel, @NonNull CreditMemoProperties properties,
+                                         @NonNull ModelResilienceAdvisor resilienceAdvisor,
+                                         @NonNull ModelConcurrencyLimiter concurrencyLimiter) {
+        return chatClient(chatModel, "document", properties.clients().document(), SYSTEM_PROMPT,
+                          resilienceAdvisor, concurrencyLimiter);
+    }
+    
+    /**
+     * Summaries are plain text, so this client has no default system prompt
+     */
+    @Bean
+    public ChatClient summaryChatClient(@NonNull ChatModel chatModel, @NonNull CreditMemoProperties properties,
+                                        @NonNull ModelResilienceAdvisor resilienceAdvisor,
+                                        @NonNull ModelConcurrencyLimiter concurrencyLimiter) {
+        return chatClient(chatModel, "summary", properties.clients().summary(), null,
+                          resilienceAdvisor, concurrencyLimiter);
+    }
+    
     @Bean
-    public ChatClient chatClient(@NonNull ChatModel chatModel) {
+    public ChatClient validationChatClient(@NonNull ChatModel chatModel, @NonNull CreditMemoProperties properties,
+                                           @NonNull ModelResilienceAdvisor resilienceAdvisor,
+                                           @NonNull ModelConcurrencyLimiter concurrencyLimiter) {
+        return chatClient(chatModel, "validation", properties.clients().validation(), SYSTEM_PROMPT,
+                          resilienceAdvisor, concurrencyLimiter);
+    }
+    
+    /**
+     * A call type's {@code creditmemo.clients} options. Options given on a call replace the
+     * client's defaults rather than merging with them, so callers that set any (such as a routed
+     * model) start from these.
+     */
+    @NonNull
+    public static ToolCallingChatOptions.Builder options(@NonNull CreditMemoProperties.ClientOptions options) {
+        return ToolCallingChatOptions.builder()
+            .maxTokens(options.maxTokens())
+            .temperature(options.temperature());
+    }
+    
+    /**
+     * Client for one call type, behind the resilience and concurrency advisors; options out of
+     * range stop startup rather than failing every call of that type
+     */
+    @NonNull
+    static ChatClient chatClient(@NonNull ChatModel chatModel, @NonNull String call,
+                                 @NonNull CreditMemoProperties.ClientOptions options, String system,
+                                 @NonNull Advisor... advisors) {
         Objects.requireNonNull(chatModel, "ChatModel must not be null");
-        return ChatClient.builder(chatModel)
-            .defaultSystem("""
-                You are a Business Banking Document Generator AI specializing in UK business banking credit memos.
-                
-                CRITICAL RULES:
-                1. Never invent financial values, dates, or customer details - use ONLY provided data.
-                2. Output MUST be valid JSON matching the exact schema provided.
-                3. Include no extra commentary or text outside the JSON structure.
-                4. All numeric fields must be properly formatted (no commas, use decimal notation).
-                5. Tone: formal, professional, UK business banking standards.
-                6. Credit memos must NEVER contain advice or speculative statements.
-                
-                INDUSTRY BEST PRACTICES:
-                - Detailed narrative explaining the reason for credit in business context
-                - Line-by-line breakdown of credited items with quantities and amounts
-                - Clear financial summary with subtotal, tax, and total
-                - Professional terms and conditions appropriate to credit type
-                - Proper authorization trail
-                - Reference to original transaction with full details
-                
-                CONTEXT AWARENESS:
-                - Business customers: credit memos for their own customer transactions
-                - Bank colleagues: credit memos correcting incorrect bank fee charges
-                - System automated: credit memos for returns, adjustments, or reversals
-                """)
-            .build();
+        if (options.maxTokens() != null && options.maxTokens() < 1) {
+            throw new IllegalArgumentException("creditmemo.clients." + call + ".max-tokens must be at least 1");
+        }
+        if (options.temperature() != null && (options.temperature() < 0 || options.temperature() > 1)) {
+            throw new IllegalArgumentException("creditmemo.clients." + call + ".temperature must be between 0 and 1");
+        }
+        ChatClient.Builder builder = ChatClient.builder(chatModel)
+            .defaultOptions(options(options).build())
+            .defaultAdvisors(advisors);
+        if (system != null) {
+            builder.defaultSystem(system);
+        }
+        logger.info("{} ChatClient: max-tokens {}, temperature {}", call,
+                    Objects.requireNonNullElse(options.maxTokens(), "default"),
+                    Objects.requireNonNullElse(options.temperature(), "default"));
+        return builder.build();
     }
 }
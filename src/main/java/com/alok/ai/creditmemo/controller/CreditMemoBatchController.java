@@ -0,0 +1,178 @@
+package com.alok.ai.creditmemo.controller;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.exception.GlobalExceptionHandler;
+import com.alok.ai.creditmemo.exception.GlobalExceptionHandler.ErrorResponse;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.RateLimitExceededException;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.alok.ai.creditmemo.service.CreditMemoBatchService;
+import com.alok.ai.creditmemo.service.CreditMemoBatchService.BatchOutcome;
+import com.alok.ai.creditmemo.service.CreditMemoGenerationException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * REST controller for bulk credit memo generation
+ */
+@RestController
+@RequestMapping("/api/v1/credit-memos/batch")
+public class CreditMemoBatchController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CreditMemoBatchController.class);
+    
+    private static final String PATH = "uri=/api/v1/credit-memos/batch";
+    
+    private final CreditMemoBatchService batchService;
+    
+    private final ObjectMapper objectMapper;
+    
+    private final int maxItems;
+    
+    private final long maxBodyBytes;
+    
+    public CreditMemoBatchController(CreditMemoBatchService batchService, ObjectMapper objectMapper,
+                                     CreditMemoProperties properties) {
+        this.batchService = batchService;
+        this.objectMapper = objectMapper;
+        this.maxItems = properties.batch().maxItems();
+        this.maxBodyBytes = properties.batch().maxBodySize().toBytes();
+    }
+    
+    /**
+     * Generate credit memos for a JSON array or NDJSON stream of requests
+     * POST /api/v1/credit-memos/batch
+     * 
+     * Results are streamed back as NDJSON in completion order, one line per item.
+     */
+    @PostMapping(
+        consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchResult> generateBatch(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+        if (contentLength != null && contentLength > maxBodyBytes) {
+            throw tooLarge();
+        }
+        List<JsonNode> items = readItems(new LimitedInputStream(body, maxBodyBytes));
+        
+        logger.info("Received batch of {} credit memo requests", items.size());
+        
+        return batchService.generateBatch(items).map(this::toResult);
+    }
+    
+    private List<JsonNode> readItems(InputStream body) {
+        // A root-level array is unwrapped; otherwise whitespace-separated values are read in turn
+        // Items are counted as they are read, so an oversized batch fails before the rest is parsed
+        List<JsonNode> items = new ArrayList<>();
+        try (MappingIterator<JsonNode> iterator = objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (items.size() == maxItems) {
+                    throw new IllegalArgumentException("Batch exceeds the limit of " + maxItems + " items");
+                }
+                items.add(iterator.nextValue());
+            }
+            return items;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed batch body: " + e.getMessage(), e);
+        }
+    }
+    
+    private ResponseStatusException tooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+            "Batch body exceeds the limit of " + maxBodyBytes + " bytes");
+    }
+    
+    private BatchResult toResult(BatchOutcome outcome) {
+        if (outcome.failure() == null) {
+            return new BatchResult(outcome.correlationId(), outcome.index(), outcome.response(), null);
+        }
+        
+        Exception failure = outcome.failure();
+        ErrorResponse error;
+        if (failure instanceof IllegalArgumentException || failure instanceof JsonProcessingException) {
+            error = new ErrorResponse(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(),
+                "Invalid Request", failure.getMessage(), PATH);
+        } else if (failure instanceof ModelCapacityExceededException capacity) {
+            HttpStatus status = GlobalExceptionHandler.statusOf(capacity);
+            error = new ErrorResponse(LocalDateTime.now(), status.value(),
+                status.getReasonPhrase(), failure.getMessage(), PATH);
+        } else if (failure instanceof RateLimitExceededException) {
+            error = new ErrorResponse(LocalDateTime.now(), HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Rate Limit Exceeded", failure.getMessage(), PATH);
+        } else if (failure instanceof CreditMemoGenerationException) {
+            error = new ErrorResponse(LocalDateTime.now(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "Credit Memo Generation Error", failure.getMessage(), PATH);
+        } else {
+            error = new ErrorResponse(LocalDateTime.now(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                "Internal Server Error", "An unexpected error occurred. Please try again later.", PATH);
+        }
+        return new BatchResult(outcome.correlationId(), outcome.index(), null, error);
+    }
+    
+    /**
+     * Fails the read once more than {@code limit} bytes have come through, whatever the Content-Length said
+     */
+    private class LimitedInputStream extends FilterInputStream {
+        
+        private long remaining;
+        
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                consumed(n);
+            }
+            return n;
+        }
+        
+        private void consumed(int n) {
+            remaining -= n;
+            if (remaining < 0) {
+                throw tooLarge();
+            }
+        }
+    }
+    
+    // Response DTOs
+    public record BatchResult(
+        String correlationId,
+        int index,
+        CreditMemoResponse result,
+        ErrorResponse error
+    ) {}
+}
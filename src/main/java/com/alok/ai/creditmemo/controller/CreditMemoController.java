@@ -1,14 +1,23 @@
 package com.alok.ai.creditmemo.controller;
 
+import com.alok.ai.creditmemo.exception.GlobalExceptionHandler;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.RequesterRateLimiter;
 import com.alok.ai.creditmemo.model.CreditMemoRequest;
 import com.alok.ai.creditmemo.model.CreditMemoResponse;
 import com.alok.ai.creditmemo.service.CreditMemoService;
+import com.alok.ai.creditmemo.service.IdempotentCreditMemoService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
 
 /**
  * REST controller for credit memo generation
@@ -22,24 +31,53 @@ public class CreditMemoController {
     
     private final CreditMemoService creditMemoService;
     
-    public CreditMemoController(CreditMemoService creditMemoService) {
+    private final IdempotentCreditMemoService idempotentCreditMemoService;
+    
+    private final RequesterRateLimiter rateLimiter;
+    
+    public CreditMemoController(CreditMemoService creditMemoService,
+                                IdempotentCreditMemoService idempotentCreditMemoService,
+                                RequesterRateLimiter rateLimiter) {
         this.creditMemoService = creditMemoService;
+        this.idempotentCreditMemoService = idempotentCreditMemoService;
+        this.rateLimiter = rateLimiter;
     }
     
     /**
      * Generate a new credit memo
-     * POST /api/v1/credit-memos
+     * POST /api/v1/credit-memos[?summary=false]
+     * 
+     * With an Idempotency-Key header, retries attach to the in-flight or completed generation
+     * for that key; replayed responses carry Idempotent-Replayed: true.
      */
     @PostMapping
     public ResponseEntity<CreditMemoResponse> generateCreditMemo(
-            @Valid @RequestBody CreditMemoRequest request) {
+            @Valid @RequestBody CreditMemoRequest request,
+            @RequestParam(name = "summary", defaultValue = "true") boolean includeSummary,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
         
         logger.info("Received credit memo generation request from {} for customer {}", 
                     request.requester().requesterType(),
                     request.customer().customerId());
+        rateLimiter.acquire(request.requester());
         
         try {
-            CreditMemoResponse response = creditMemoService.generateCreditMemo(request);
+            if (idempotencyKey != null) {
+                IdempotentCreditMemoService.IdempotentResult result = 
+                    idempotentCreditMemoService.generateCreditMemo(idempotencyKey, request, includeSummary);
+                
+                logger.info("Returning credit memo {} for Idempotency-Key {} (replayed: {})", 
+                           result.response().creditMemoNumber(),
+                           idempotencyKey,
+                           result.replayed());
+                
+                return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                    .body(result.response());
+            }
+            
+            CreditMemoResponse response = creditMemoService.generateCreditMemo(request, includeSummary);
             
             logger.info("Successfully generated credit memo {} for customer {}", 
                        response.creditMemoNumber(),
@@ -48,7 +86,7 @@ public class CreditMemoController {
             return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(response);
-                
+        
         } catch (Exception e) {
             logger.error("Failed to generate credit memo for customer {}", 
                         request.customer().customerId(), e);
@@ -56,6 +94,44 @@ public class CreditMemoController {
         }
     }
     
+    /**
+     * Generate a new credit memo, streaming progress as Server-Sent Events
+     * POST /api/v1/credit-memos/stream[?summary=false]
+     * 
+     * Events: accepted, token (document output as it arrives), document, summary, complete.
+     * A failure ends the stream with an error event carrying an ErrorResponse.
+     */
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamCreditMemo(
+            @Valid @RequestBody CreditMemoRequest request,
+            @RequestParam(name = "summary", defaultValue = "true") boolean includeSummary) {
+        
+        logger.info("Received streaming credit memo request from {} for customer {}", 
+                    request.requester().requesterType(),
+                    request.customer().customerId());
+        rateLimiter.acquire(request.requester());
+        
+        return creditMemoService.streamCreditMemo(request, includeSummary)
+            .map(event -> ServerSentEvent.builder(event.data())
+                .event(event.type().name().toLowerCase())
+                .build())
+            .onErrorResume(e -> {
+                logger.error("Failed to stream credit memo for customer {}", 
+                            request.customer().customerId(), e);
+                HttpStatus status = e instanceof ModelCapacityExceededException capacity
+                    ? GlobalExceptionHandler.statusOf(capacity)
+                    : HttpStatus.INTERNAL_SERVER_ERROR;
+                return Flux.just(ServerSentEvent.<Object>builder(new GlobalExceptionHandler.ErrorResponse(
+                        LocalDateTime.now(),
+                        status.value(),
+                        status == HttpStatus.INTERNAL_SERVER_ERROR ? "Credit Memo Generation Error" : status.getReasonPhrase(),
+                        e.getMessage(),
+                        "uri=/api/v1/credit-memos/stream"))
+                    .event("error")
+                    .build());
+            });
+    }
+    
     /**
      * Generate a credit memo summary only (no full document)
      * POST /api/v1/credit-memos/summary
@@ -67,6 +143,7 @@ public class CreditMemoController {
         logger.info("Received credit memo summary request from {} for customer {}", 
                     request.requester().requesterType(),
                     request.customer().customerId());
+        rateLimiter.acquire(request.requester());
         
         String summary = creditMemoService.generateCreditMemoSummary(request);
         
@@ -87,6 +164,7 @@ public class CreditMemoController {
         
         logger.info("Validating credit memo request for customer {}", 
                     request.customer().customerId());
+        rateLimiter.acquire(request.requester());
         
         CreditMemoService.ValidationResult result = 
             creditMemoService.validateCreditMemoRequest(request);
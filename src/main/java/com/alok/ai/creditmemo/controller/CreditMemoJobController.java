@@ -0,0 +1,63 @@
+package com.alok.ai.creditmemo.controller;
+
+import com.alok.ai.creditmemo.limit.RequesterRateLimiter;
+import com.alok.ai.creditmemo.model.CreditMemoJob;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.service.CreditMemoJobService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+/**
+ * REST controller for asynchronous credit memo generation jobs
+ */
+@RestController
+@RequestMapping("/api/v1/credit-memos/jobs")
+public class CreditMemoJobController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CreditMemoJobController.class);
+    
+    private final CreditMemoJobService jobService;
+    
+    private final RequesterRateLimiter rateLimiter;
+    
+    public CreditMemoJobController(CreditMemoJobService jobService, RequesterRateLimiter rateLimiter) {
+        this.jobService = jobService;
+        this.rateLimiter = rateLimiter;
+    }
+    
+    /**
+     * Queue a credit memo for generation
+     * POST /api/v1/credit-memos/jobs[?callbackUrl=...]
+     */
+    @PostMapping
+    public ResponseEntity<CreditMemoJob> submitJob(
+            @Valid @RequestBody CreditMemoRequest request,
+            @RequestParam(name = "callbackUrl", required = false) String callbackUrl) {
+        
+        logger.info("Received credit memo job request from {} for customer {}", 
+                    request.requester().requesterType(),
+                    request.customer().customerId());
+        rateLimiter.acquire(request.requester());
+        
+        CreditMemoJob job = jobService.submit(request, callbackUrl);
+        
+        return ResponseEntity
+            .accepted()
+            .location(URI.create("/api/v1/credit-memos/jobs/" + job.jobId()))
+            .body(job);
+    }
+    
+    /**
+     * Poll a credit memo job
+     * GET /api/v1/credit-memos/jobs/{jobId}
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<CreditMemoJob> getJob(@PathVariable String jobId) {
+        return ResponseEntity.of(jobService.findJob(jobId));
+    }
+}
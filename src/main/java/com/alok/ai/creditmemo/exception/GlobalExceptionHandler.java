@@ -1,8 +1,13 @@
 package com.alok.ai.creditmemo.exception;
 
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.RateLimitExceededException;
 import com.alok.ai.creditmemo.service.CreditMemoGenerationException;
+import com.alok.ai.creditmemo.service.IdempotencyKeyConflictException;
+import com.alok.ai.creditmemo.service.JobQueueFullException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -10,6 +15,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -43,6 +49,128 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
     
+    /**
+     * Handle a full asynchronous job queue
+     */
+    @ExceptionHandler(JobQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleJobQueueFullException(
+            JobQueueFullException ex, WebRequest request) {
+        
+        logger.warn("Job queue full: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            "Too Many Requests",
+            ex.getMessage(),
+            request.getDescription(false)
+        );
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+            .body(errorResponse);
+    }
+    
+    /**
+     * Handle model calls turned away before reaching the model: 429 when too many callers are
+     * already waiting or the call type's bulkhead is full, 503 when no slot freed up in time or
+     * the circuit breaker is open
+     */
+    @ExceptionHandler(ModelCapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleModelCapacityExceededException(
+            ModelCapacityExceededException ex, WebRequest request) {
+        
+        logger.warn("Model capacity exceeded: {}", ex.getMessage());
+        
+        HttpStatus status = statusOf(ex);
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            status.value(),
+            status.getReasonPhrase(),
+            ex.getMessage(),
+            request.getDescription(false)
+        );
+        
+        return ResponseEntity.status(status)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+            .body(errorResponse);
+    }
+    
+    /**
+     * HTTP status for a model call turned away before reaching the model
+     */
+    public static HttpStatus statusOf(ModelCapacityExceededException ex) {
+        return switch (ex.getReason()) {
+            case QUEUE_FULL, BULKHEAD_FULL -> HttpStatus.TOO_MANY_REQUESTS;
+            case TIMED_OUT, CIRCUIT_OPEN -> HttpStatus.SERVICE_UNAVAILABLE;
+        };
+    }
+    
+    /**
+     * Handle requests turned away by the per-requester and per-type rate limits; Retry-After is
+     * rounded up to whole seconds
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceededException(
+            RateLimitExceededException ex, WebRequest request) {
+        
+        logger.warn("Rate limit exceeded: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            "Rate Limit Exceeded",
+            ex.getMessage(),
+            request.getDescription(false)
+        );
+        
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .body(errorResponse);
+    }
+    
+    /**
+     * Handle an Idempotency-Key reused with a different payload
+     */
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyConflictException(
+            IdempotencyKeyConflictException ex, WebRequest request) {
+        
+        logger.warn("Idempotency key conflict: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            HttpStatus.UNPROCESSABLE_ENTITY.value(),
+            "Idempotency Key Conflict",
+            ex.getMessage(),
+            request.getDescription(false)
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    
+    /**
+     * Handle requests a controller turned away with an explicit status, such as an oversized body
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ErrorResponse> handleResponseStatusException(
+            ResponseStatusException ex, WebRequest request) {
+        
+        logger.warn("Request rejected with {}: {}", ex.getStatusCode(), ex.getReason());
+        
+        HttpStatus status = HttpStatus.valueOf(ex.getStatusCode().value());
+        ErrorResponse errorResponse = new ErrorResponse(
+            LocalDateTime.now(),
+            status.value(),
+            status.getReasonPhrase(),
+            ex.getReason(),
+            request.getDescription(false)
+        );
+        
+        return new ResponseEntity<>(errorResponse, status);
+    }
+    
     /**
      * Handle validation errors
      */
@@ -0,0 +1,49 @@
+package com.alok.ai.creditmemo.limit;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a model call is turned away before reaching the model: no concurrency
+ * slot, no room in its call type's bulkhead, or the circuit breaker is open
+ */
+public class ModelCapacityExceededException extends RuntimeException {
+    
+    private final Reason reason;
+    
+    private final Duration retryAfter;
+    
+    public ModelCapacityExceededException(String message, Reason reason, Duration retryAfter) {
+        super(message);
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+    
+    public Reason getReason() {
+        return reason;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+    
+    public enum Reason {
+        // Too many callers already waiting; rejected without waiting
+        QUEUE_FULL("queue-full"),
+        // Waited the full acquire timeout
+        TIMED_OUT("timed-out"),
+        // The call type's bulkhead is full
+        BULKHEAD_FULL("bulkhead-full"),
+        // Bedrock is failing and calls are short-circuited
+        CIRCUIT_OPEN("circuit-open");
+        
+        private final String tag;
+        
+        Reason(String tag) {
+            this.tag = tag;
+        }
+        
+        public String tag() {
+            return tag;
+        }
+    }
+}
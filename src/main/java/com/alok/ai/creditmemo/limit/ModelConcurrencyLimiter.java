@@ -0,0 +1,442 @@
+package com.alok.ai.creditmemo.limit;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException.Reason;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.RequesterType;
+import com.alok.ai.creditmemo.resilience.ModelResilienceAdvisor;
+import com.alok.ai.creditmemo.resilience.ThrottlingFailure;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive (AIMD) limit on the number of model calls in flight, applied to every
+ * {@code ChatClient} call as an advisor.
+ * 
+ * The limit starts at {@code creditmemo.model-calls.initial-concurrent} and moves between
+ * {@code min-concurrent} and {@code max-concurrent}. A throttled call, or recent latency above
+ * {@code latency-tolerance} times the long-run average, multiplies it by {@code backoff-ratio};
+ * only calls started after the last cut can cut again, so a burst of throttles from one window
+ * shrinks it once. Each successful call while at least half the limit is in use grows it by one.
+ * Latency is averaged separately per call type and output (the {@link ModelResilienceAdvisor#CALL}
+ * and {@link #OUTPUT} advisor parameters), so a shift in the mix of calls is not taken for a
+ * slower model.
+ * 
+ * Callers beyond the limit wait in FIFO order, except that callers whose requester type is in
+ * {@code background-requester-types} (passed as the {@link #REQUESTER_TYPE} advisor parameter)
+ * only get a slot when no interactive caller is waiting. With {@code max-queued} callers
+ * already waiting they are rejected at once (429); a caller still waiting after
+ * {@code acquire-timeout} is rejected with 503. Both raise {@link ModelCapacityExceededException}. Waiting uses a
+ * {@link ReentrantLock}, which does not pin virtual threads. The limit, calls in flight and
+ * waiting, and rejections are published as {@code creditmemo.model.calls.*} meters.
+ */
+@Component
+public class ModelConcurrencyLimiter implements CallAdvisor, StreamAdvisor, MeterBinder {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ModelConcurrencyLimiter.class);
+    
+    /**
+     * Advisor parameter carrying the {@link RequesterType} a call is made for
+     */
+    public static final String REQUESTER_TYPE = "creditmemo.requester-type";
+    
+    /**
+     * Advisor parameter naming what a call writes: document, narrative, line-reasons, summary or validation
+     */
+    public static final String OUTPUT = "creditmemo.output";
+    
+    // Weights of the recent and long-run latency averages
+    private static final double SHORT_WEIGHT = 0.2;
+    
+    private static final double LONG_WEIGHT = 0.02;
+    
+    private static final String OTHER = "other";
+    
+    private final ReentrantLock lock = new ReentrantLock(true);
+    
+    private final Map<Priority, Condition> slotFreed = new EnumMap<>(Priority.class);
+    
+    private final int minLimit;
+    
+    private final int maxLimit;
+    
+    private final double backoffRatio;
+    
+    private final double latencyTolerance;
+    
+    private final int maxQueued;
+    
+    private final Set<RequesterType> backgroundTypes;
+    
+    private final Duration acquireTimeout;
+    
+    private final Duration retryAfter;
+    
+    // Guarded by lock
+    private double limit;
+    
+    private int inFlight;
+    
+    private int waiting;
+    
+    private final int[] waitingByPriority = new int[Priority.values().length];
+    
+    private final Map<String, Latency> latencies = new HashMap<>();
+    
+    private long lastDecreaseNanos;
+    
+    // Read by gauges without the lock
+    private volatile int currentLimit;
+    
+    private final AtomicInteger active = new AtomicInteger();
+    
+    private final Map<Priority, AtomicInteger> queued = new EnumMap<>(Priority.class);
+    
+    private final AtomicInteger peakActive = new AtomicInteger();
+    
+    private final Timer waitTimer;
+    
+    private final Map<Reason, Counter> rejections = new EnumMap<>(Reason.class);
+    
+    private final Counter throttledDecreases;
+    
+    private final Counter latencyDecreases;
+    
+    public ModelConcurrencyLimiter(@NonNull CreditMemoProperties properties, @NonNull MeterRegistry meterRegistry) {
+        CreditMemoProperties.ModelCalls config = properties.modelCalls();
+        if (config.minConcurrent() < 1 || config.maxConcurrent() < config.minConcurrent()) {
+            throw new IllegalArgumentException("creditmemo.model-calls needs 1 <= min-concurrent <= max-concurrent");
+        }
+        if (config.backoffRatio() <= 0 || config.backoffRatio() >= 1) {
+            throw new IllegalArgumentException("creditmemo.model-calls.backoff-ratio must be between 0 and 1");
+        }
+        this.minLimit = config.minConcurrent();
+        this.maxLimit = config.maxConcurrent();
+        this.backoffRatio = config.backoffRatio();
+        this.latencyTolerance = config.latencyTolerance();
+        this.maxQueued = config.maxQueued();
+        this.backgroundTypes = Set.copyOf(config.backgroundRequesterTypes());
+        this.acquireTimeout = config.acquireTimeout();
+        this.retryAfter = config.retryAfter();
+        setLimit(Math.clamp(config.initialConcurrent(), minLimit, maxLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+        for (Priority priority : Priority.values()) {
+            slotFreed.put(priority, lock.newCondition());
+            queued.put(priority, new AtomicInteger());
+        }
+        
+        this.waitTimer = Timer.builder("creditmemo.model.calls.wait")
+            .description("Time spent waiting for a concurrency slot")
+            .register(meterRegistry);
+        for (Reason reason : Reason.values()) {
+            rejections.put(reason, Counter.builder("creditmemo.model.calls.rejected")
+                .description("Model calls rejected without reaching the model")
+                .tag("reason", reason.tag())
+                .register(meterRegistry));
+        }
+        this.throttledDecreases = Counter.builder("creditmemo.model.calls.limit.decreases")
+            .description("Cuts to the concurrency limit")
+            .tag("cause", "throttled")
+            .register(meterRegistry);
+        this.latencyDecreases = Counter.builder("creditmemo.model.calls.limit.decreases")
+            .description("Cuts to the concurrency limit")
+            .tag("cause", "latency")
+            .register(meterRegistry);
+        
+        logger.info("Model calls limited to {}..{} in flight, starting at {}; up to {} wait for at most {}",
+                    minLimit, maxLimit, currentLimit, maxQueued, acquireTimeout);
+    }
+    
+    /**
+     * Register the gauges, which read the limiter itself; Spring binds them once the bean is built
+     */
+    @Override
+    public void bindTo(@NonNull MeterRegistry meterRegistry) {
+        Gauge.builder("creditmemo.model.calls.active", active, AtomicInteger::get)
+            .description("Model calls in flight")
+            .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("creditmemo.model.calls.waiting", queued.get(priority), AtomicInteger::get)
+                .description("Model calls waiting for a concurrency slot")
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry);
+        }
+        Gauge.builder("creditmemo.model.calls.peak", peakActive, AtomicInteger::get)
+            .description("Most model calls in flight at once since startup")
+            .register(meterRegistry);
+        Gauge.builder("creditmemo.model.calls.limit", this, ModelConcurrencyLimiter::limit)
+            .description("Model calls currently allowed in flight at once")
+            .register(meterRegistry);
+    }
+    
+    @Override
+    @NonNull
+    public ChatClientResponse adviseCall(@NonNull ChatClientRequest request, @NonNull CallAdvisorChain chain) {
+        String kind = kindOf(request);
+        long start = acquire(priorityOf(request));
+        try {
+            ChatClientResponse response = chain.nextCall(request);
+            release(start, kind, null);
+            return response;
+        } catch (RuntimeException | Error e) {
+            release(start, kind, e);
+            throw e;
+        }
+    }
+    
+    @Override
+    @NonNull
+    public Flux<ChatClientResponse> adviseStream(@NonNull ChatClientRequest request, @NonNull StreamAdvisorChain chain) {
+        // Waiting for a slot blocks, so it must not happen on the subscriber's event loop
+        String kind = kindOf(request) + "/stream";
+        return Flux.usingWhen(
+            Mono.fromCallable(() -> acquire(priorityOf(request))).subscribeOn(Schedulers.boundedElastic()),
+            start -> chain.nextStream(request),
+            start -> Mono.fromRunnable(() -> release(start, kind, null)),
+            (start, error) -> Mono.fromRunnable(() -> release(start, kind, error)),
+            start -> Mono.fromRunnable(this::abandon));
+    }
+    
+    /**
+     * Take a slot as an interactive caller
+     */
+    long acquire() {
+        return acquire(Priority.INTERACTIVE);
+    }
+    
+    /**
+     * Take a slot, waiting in line up to the acquire timeout
+     * @return when the slot was taken, to hand back to {@link #release}
+     * @throws ModelCapacityExceededException when the line is full or no slot became free in time
+     */
+    long acquire(Priority priority) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (mustWait(priority) && waiting >= maxQueued) {
+                throw reject(Reason.QUEUE_FULL, "Model call queue is full (" + maxQueued + " waiting)");
+            }
+            long remaining = acquireTimeout.toNanos();
+            waiting++;
+            waitingByPriority[priority.ordinal()]++;
+            queued.get(priority).incrementAndGet();
+            try {
+                while (mustWait(priority)) {
+                    if (remaining <= 0) {
+                        throw reject(Reason.TIMED_OUT,
+                            "No model call slot free within " + acquireTimeout + " (limit " + currentLimit + ")");
+                    }
+                    remaining = slotFreed.get(priority).awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ModelCapacityExceededException("Interrupted while waiting for a model call slot",
+                                                         Reason.TIMED_OUT, retryAfter);
+            } finally {
+                waiting--;
+                waitingByPriority[priority.ordinal()]--;
+                queued.get(priority).decrementAndGet();
+                if (priority == Priority.INTERACTIVE) {
+                    // Background callers held back by this one may now take a free slot
+                    signalFreeSlots();
+                }
+            }
+            inFlight++;
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        } finally {
+            lock.unlock();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return System.nanoTime();
+    }
+    
+    /**
+     * Hand back a slot taken for an unnamed kind of call
+     */
+    void release(long start, Throwable failure) {
+        release(start, OTHER, failure);
+    }
+    
+    /**
+     * Hand back a slot and adjust the limit from the call's outcome
+     * @param kind call type and output, whose latency averages the call's latency joins
+     * @param failure the call's exception, or null when it succeeded
+     */
+    void release(long start, @NonNull String kind, Throwable failure) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            inFlight--;
+            active.decrementAndGet();
+            if (ThrottlingFailure.isThrottling(failure)) {
+                decrease(start, now, throttledDecreases);
+            } else if (failure == null) {
+                onSuccess(start, now, kind);
+            }
+            signalFreeSlots();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Hand back a slot without adjusting the limit, e.g. for a cancelled stream
+     */
+    void abandon() {
+        lock.lock();
+        try {
+            inFlight--;
+            active.decrementAndGet();
+            signalFreeSlots();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void onSuccess(long start, long now, String kind) {
+        Latency latency = latencies.computeIfAbsent(kind, k -> new Latency());
+        latency.add(now - start);
+        if (latency.shortNanos > latencyTolerance * latency.longNanos) {
+            decrease(start, now, latencyDecreases);
+        } else if (inFlight + 1 >= limit / 2) {
+            // Only grow while the limit is actually in use
+            setLimit(Math.min(maxLimit, limit + 1));
+        }
+    }
+    
+    private void decrease(long start, long now, Counter cause) {
+        if (start - lastDecreaseNanos < 0) {
+            // Admitted under a limit that has already been cut
+            return;
+        }
+        lastDecreaseNanos = now;
+        setLimit(Math.max(minLimit, limit * backoffRatio));
+        cause.increment();
+        logger.warn("Model call concurrency limit cut to {} ({})", currentLimit, cause.getId().getTag("cause"));
+    }
+    
+    private void setLimit(double newLimit) {
+        limit = newLimit;
+        currentLimit = (int) newLimit;
+    }
+    
+    private boolean mustWait(Priority priority) {
+        return inFlight >= currentLimit
+               || priority == Priority.BACKGROUND && waitingByPriority[Priority.INTERACTIVE.ordinal()] > 0;
+    }
+    
+    private void signalFreeSlots() {
+        int free = currentLimit - inFlight;
+        for (Priority priority : Priority.values()) {
+            for (int n = Math.min(free, waitingByPriority[priority.ordinal()]); n > 0; n--, free--) {
+                slotFreed.get(priority).signal();
+            }
+        }
+    }
+    
+    private Priority priorityOf(ChatClientRequest request) {
+        return request.context().get(REQUESTER_TYPE) instanceof RequesterType type && backgroundTypes.contains(type)
+            ? Priority.BACKGROUND
+            : Priority.INTERACTIVE;
+    }
+    
+    private static String kindOf(ChatClientRequest request) {
+        Object call = request.context().get(ModelResilienceAdvisor.CALL);
+        Object output = request.context().get(OUTPUT);
+        return (call instanceof String ? call : OTHER) + "/" + (output instanceof String ? output : OTHER);
+    }
+    
+    private ModelCapacityExceededException reject(Reason reason, String message) {
+        rejections.get(reason).increment();
+        return new ModelCapacityExceededException(message, reason, retryAfter);
+    }
+    
+    /**
+     * Model calls currently allowed in flight at once
+     */
+    public int limit() {
+        return currentLimit;
+    }
+    
+    /**
+     * Model calls currently in flight
+     */
+    public int active() {
+        return active.get();
+    }
+    
+    /**
+     * Most model calls in flight at once since startup
+     */
+    public int peakActive() {
+        return peakActive.get();
+    }
+    
+    /**
+     * Recent and long-run latency averages of one kind of call; guarded by the limiter's lock
+     */
+    private static final class Latency {
+        
+        private double shortNanos;
+        
+        private double longNanos;
+        
+        void add(double rttNanos) {
+            if (longNanos == 0) {
+                shortNanos = rttNanos;
+                longNanos = rttNanos;
+            } else {
+                shortNanos += SHORT_WEIGHT * (rttNanos - shortNanos);
+                longNanos += LONG_WEIGHT * (rttNanos - longNanos);
+            }
+        }
+    }
+    
+    /**
+     * Order in which waiting callers get free slots
+     */
+    enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+    
+    @Override
+    @NonNull
+    public String getName() {
+        return "ModelConcurrencyLimiter";
+    }
+    
+    /**
+     * Innermost of the application's advisors, so a slot is held only for the model call itself
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+}
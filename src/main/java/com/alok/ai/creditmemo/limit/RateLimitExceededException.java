@@ -0,0 +1,20 @@
+package com.alok.ai.creditmemo.limit;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a requester or requester type is over its rate limit or token budget
+ */
+public class RateLimitExceededException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    
+    public RateLimitExceededException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,130 @@
+package com.alok.ai.creditmemo.limit;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.RequesterInfo;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.RequesterType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Token-bucket rate limits on incoming requests, per {@code requester.requesterId} and per
+ * {@link RequesterType}, plus a per-type budget of model tokens per minute.
+ * 
+ * A request must find a token in its requester's bucket and then in its type's bucket, and its
+ * type must not be over its token budget; a token taken from the requester's bucket is given back
+ * when the type's bucket turns the request away; otherwise it is rejected with
+ * {@link RateLimitExceededException} (429) before any work is done. Model tokens are only known
+ * after the calls, so they are charged afterwards and a type over budget waits until the debt is
+ * repaid. Buckets are lock-free ({@link TokenBucket}); requester buckets live in a Caffeine map
+ * bounded by {@code creditmemo.rate-limits.max-requesters}. Rejections are counted in
+ * {@code creditmemo.ratelimit.rejected}, tagged with the scope and requester type.
+ */
+@Component
+public class RequesterRateLimiter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RequesterRateLimiter.class);
+    
+    private final boolean enabled;
+    
+    private final CreditMemoProperties.RequestRate perRequester;
+    
+    private final Cache<String, TokenBucket> requesterBuckets;
+    
+    private final Map<RequesterType, TokenBucket> typeBuckets = new EnumMap<>(RequesterType.class);
+    
+    private final Map<RequesterType, TokenBucket> tokenBudgets = new EnumMap<>(RequesterType.class);
+    
+    private final MeterRegistry meterRegistry;
+    
+    public RequesterRateLimiter(@NonNull CreditMemoProperties properties, @NonNull MeterRegistry meterRegistry) {
+        CreditMemoProperties.RateLimits config = properties.rateLimits();
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null");
+        this.enabled = config.enabled();
+        this.perRequester = config.perRequester();
+        this.requesterBuckets = Caffeine.newBuilder()
+            .maximumSize(config.maxRequesters())
+            .build();
+        
+        long now = System.nanoTime();
+        config.requesterTypes().forEach((type, limits) -> {
+            if (limits.rps() > 0) {
+                typeBuckets.put(type, new TokenBucket(limits.rps(), limits.burst(), now));
+            }
+            if (limits.tokensPerMinute() > 0) {
+                tokenBudgets.put(type, new TokenBucket(limits.tokensPerMinute() / 60.0, limits.tokensPerMinute(), now));
+            }
+        });
+        
+        logger.info("Rate limits {}: {} req/s per requester, per type {}",
+                    enabled ? "enabled" : "disabled", perRequester.rps(), config.requesterTypes());
+    }
+    
+    /**
+     * Admit a request or reject it
+     * @throws RateLimitExceededException when the requester or its type is over a limit
+     */
+    public void acquire(@NonNull RequesterInfo requester) {
+        Objects.requireNonNull(requester, "RequesterInfo must not be null");
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        RequesterType type = requester.requesterType();
+        
+        TokenBucket budget = tokenBudgets.get(type);
+        if (budget != null) {
+            long wait = budget.debtNanos(now);
+            if (wait > 0) {
+                throw reject("token-budget", type, "Model token budget for " + type + " is used up", wait);
+            }
+        }
+        // The requester's own bucket goes first so one noisy requester cannot drain its type's
+        // bucket with requests that are rejected anyway
+        TokenBucket requesterBucket = null;
+        if (perRequester.rps() > 0) {
+            requesterBucket = requesterBuckets.get(requester.requesterId(),
+                id -> new TokenBucket(perRequester.rps(), perRequester.burst(), now));
+            long wait = requesterBucket.tryTake(1, now);
+            if (wait > 0) {
+                throw reject("requester", type, "Rate limit for requester " + requester.requesterId() + " exceeded", wait);
+            }
+        }
+        TokenBucket typeBucket = typeBuckets.get(type);
+        if (typeBucket != null) {
+            long wait = typeBucket.tryTake(1, now);
+            if (wait > 0) {
+                if (requesterBucket != null) {
+                    requesterBucket.refund(1);
+                }
+                throw reject("requester-type", type, "Rate limit for " + type + " requests exceeded", wait);
+            }
+        }
+    }
+    
+    /**
+     * Charge model tokens used on behalf of a requester type against its budget
+     */
+    public void recordTokens(@NonNull RequesterType type, long tokens) {
+        TokenBucket budget = tokenBudgets.get(type);
+        if (enabled && budget != null && tokens > 0) {
+            budget.charge(tokens, System.nanoTime());
+        }
+    }
+    
+    private RateLimitExceededException reject(String scope, RequesterType type, String message, long waitNanos) {
+        meterRegistry.counter("creditmemo.ratelimit.rejected", "scope", scope, "requester.type", type.name())
+            .increment();
+        Duration retryAfter = Duration.ofNanos(waitNanos);
+        return new RateLimitExceededException(message + ", retry in " + retryAfter.toMillis() + "ms", retryAfter);
+    }
+}
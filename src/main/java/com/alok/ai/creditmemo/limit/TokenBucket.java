@@ -0,0 +1,73 @@
+package com.alok.ai.creditmemo.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as a single theoretical arrival time (the generic cell rate
+ * algorithm): the bucket is full when that time is in the past, and each token taken moves it
+ * one refill interval later. Taking and charging are one compare-and-set on an {@link AtomicLong}.
+ */
+final class TokenBucket {
+    
+    private final long intervalNanos;
+    
+    private final long capacityNanos;
+    
+    private final AtomicLong theoreticalArrival;
+    
+    /**
+     * @param ratePerSecond tokens added per second
+     * @param capacity most tokens the bucket holds, i.e. the largest burst
+     */
+    TokenBucket(double ratePerSecond, long capacity, long nowNanos) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and capacity");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.capacityNanos = Math.multiplyExact(capacity, intervalNanos);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+    
+    /**
+     * Take tokens if the bucket holds enough
+     * @return 0 when taken, otherwise nanoseconds until enough tokens will have been added
+     */
+    long tryTake(long tokens, long nowNanos) {
+        long cost = tokens * intervalNanos;
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + cost;
+            long wait = next - capacityNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Take tokens unconditionally, for usage only known after the fact; the bucket may go into
+     * debt, which later callers wait out
+     */
+    void charge(long tokens, long nowNanos) {
+        long cost = tokens * intervalNanos;
+        theoreticalArrival.getAndUpdate(current -> Math.max(current, nowNanos) + cost);
+    }
+    
+    /**
+     * Give back tokens taken for a request that was turned away elsewhere
+     */
+    void refund(long tokens) {
+        theoreticalArrival.addAndGet(-tokens * intervalNanos);
+    }
+    
+    /**
+     * @return 0 while the bucket is not in debt, otherwise nanoseconds until it is out of debt
+     */
+    long debtNanos(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() - capacityNanos - nowNanos);
+    }
+}
@@ -0,0 +1,51 @@
+package com.alok.ai.creditmemo.model;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous credit memo generation job
+ */
+public record CreditMemoJob(
+    String jobId,
+    JobStatus status,
+    Instant submittedAt,
+    Instant startedAt,
+    Instant completedAt,
+    
+    // Optional webhook notified with the job ID and status once it finishes
+    String callbackUrl,
+    
+    // Set when status is SUCCEEDED
+    CreditMemoResponse result,
+    
+    // Set when status is FAILED
+    String error
+) {
+    
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+    
+    public static CreditMemoJob queued(String jobId, String callbackUrl) {
+        return new CreditMemoJob(jobId, JobStatus.QUEUED, Instant.now(), null, null, callbackUrl, null, null);
+    }
+    
+    public CreditMemoJob running() {
+        return new CreditMemoJob(jobId, JobStatus.RUNNING, submittedAt, Instant.now(), null, callbackUrl, null, null);
+    }
+    
+    public CreditMemoJob succeeded(CreditMemoResponse response) {
+        return new CreditMemoJob(jobId, JobStatus.SUCCEEDED, submittedAt, startedAt, Instant.now(), callbackUrl, response, null);
+    }
+    
+    public CreditMemoJob failed(String message) {
+        return new CreditMemoJob(jobId, JobStatus.FAILED, submittedAt, startedAt, Instant.now(), callbackUrl, null, message);
+    }
+    
+    public boolean isFinished() {
+        return status == JobStatus.SUCCEEDED || status == JobStatus.FAILED;
+    }
+}
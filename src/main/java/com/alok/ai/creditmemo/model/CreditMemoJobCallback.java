@@ -0,0 +1,19 @@
+package com.alok.ai.creditmemo.model;
+
+import java.util.Map;
+
+/**
+ * Webhook body sent when a job finishes. It carries no memo data: the receiver fetches the
+ * result from the {@code self} link through the authenticated job endpoint.
+ */
+public record CreditMemoJobCallback(
+    String jobId,
+    CreditMemoJob.JobStatus status,
+    Map<String, String> links
+) {
+    
+    public static CreditMemoJobCallback of(CreditMemoJob job) {
+        return new CreditMemoJobCallback(job.jobId(), job.status(),
+            Map.of("self", "/api/v1/credit-memos/jobs/" + job.jobId()));
+    }
+}
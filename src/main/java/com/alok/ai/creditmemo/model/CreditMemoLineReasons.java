@@ -0,0 +1,11 @@
+package com.alok.ai.creditmemo.model;
+
+import java.util.List;
+
+/**
+ * Credit reasons for one chunk of a memo's line items, as written by the model in chunked generation
+ */
+public record CreditMemoLineReasons(
+    // One per line item in the chunk, in the order the items were listed
+    List<String> lineItemReasons
+) {}
@@ -0,0 +1,13 @@
+package com.alok.ai.creditmemo.model;
+
+import java.util.List;
+
+/**
+ * The free-text parts of a credit memo, as written by the model in hybrid generation
+ */
+public record CreditMemoNarrative(
+    String detailedExplanation,
+    // One per credit line item, in the order the items were listed
+    List<String> lineItemReasons,
+    String notes
+) {}
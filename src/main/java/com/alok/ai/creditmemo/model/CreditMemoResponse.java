@@ -39,6 +39,10 @@ public record CreditMemoResponse(
         long processingTimeMs,
         String model,
         int tokensUsed,
+        int inputTokens,
+        int outputTokens,
+        int cacheReadTokens,
+        int cacheWriteTokens,
         String requestId
     ) {}
     
@@ -0,0 +1,46 @@
+package com.alok.ai.creditmemo.model;
+
+/**
+ * Event emitted while a credit memo is generated over a streaming connection.
+ * The terminal event of a successful stream is always {@link EventType#COMPLETE}
+ * carrying the same {@link CreditMemoResponse} the synchronous endpoint returns.
+ */
+public record CreditMemoStreamEvent(
+    EventType type,
+    Object data
+) {
+    
+    public record Accepted(
+        String customerId,
+        String invoiceNumber,
+        String requesterType
+    ) {}
+    
+    public enum EventType {
+        ACCEPTED,
+        TOKEN,
+        DOCUMENT,
+        SUMMARY,
+        COMPLETE
+    }
+    
+    public static CreditMemoStreamEvent accepted(Accepted accepted) {
+        return new CreditMemoStreamEvent(EventType.ACCEPTED, accepted);
+    }
+    
+    public static CreditMemoStreamEvent token(String token) {
+        return new CreditMemoStreamEvent(EventType.TOKEN, token);
+    }
+    
+    public static CreditMemoStreamEvent document(CreditMemoDocument document) {
+        return new CreditMemoStreamEvent(EventType.DOCUMENT, document);
+    }
+    
+    public static CreditMemoStreamEvent summary(String summary) {
+        return new CreditMemoStreamEvent(EventType.SUMMARY, summary);
+    }
+    
+    public static CreditMemoStreamEvent complete(CreditMemoResponse response) {
+        return new CreditMemoStreamEvent(EventType.COMPLETE, response);
+    }
+}
@@ -0,0 +1,383 @@
+package com.alok.ai.creditmemo.prompt;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.service.DocumentTemplates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Builds the document, narrative, line item reasons, summary and validation prompts from templates
+ * loaded once at startup from {@code creditmemo.prompts.location} (the bundled
+ * {@code classpath:prompts/} by default).
+ * A template that uses a slot this class does not fill fails startup rather than a request.
+ * 
+ * Each prompt comes in two parts: static instructions ({@code *-system.txt}, no slots), sent as the
+ * system prompt so Bedrock can cache them across requests, and the per-request data that follows them.
+ */
+@Component
+public class CreditMemoPrompts {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CreditMemoPrompts.class);
+    
+    static final String DOCUMENT = "credit-memo-document.txt";
+    static final String BANK_DETAILS = "credit-memo-bank-details.txt";
+    static final String SUMMARY = "credit-memo-summary.txt";
+    static final String VALIDATION = "credit-memo-validation.txt";
+    static final String NARRATIVE = "credit-memo-narrative.txt";
+    static final String DOCUMENT_INSTRUCTIONS = "credit-memo-document-system.txt";
+    static final String SUMMARY_INSTRUCTIONS = "credit-memo-summary-system.txt";
+    static final String VALIDATION_INSTRUCTIONS = "credit-memo-validation-system.txt";
+    static final String NARRATIVE_INSTRUCTIONS = "credit-memo-narrative-system.txt";
+    static final String LINE_REASONS = "credit-memo-line-reasons.txt";
+    static final String LINE_REASONS_INSTRUCTIONS = "credit-memo-line-reasons-system.txt";
+    
+    private static final Set<String> DOCUMENT_SLOTS = Set.of(
+        "contextNote", "creditMemoNumber", "issueDate",
+        "issuerName", "issuerAddress", "issuerEmail", "issuerPhone", "issuerAccountNumber",
+        "customerId", "customerName", "customerEmail", "customerPhone", "billingAddress", "customerAccountNumber",
+        "bankDetailsSection", "bankDetailsJson",
+        "transactionId", "invoiceNumber", "invoiceDate", "originalAmount", "lineItems",
+        "creditType", "creditReason", "reasonDescription", "creditAmount", "subtotal", "taxAmount",
+        "affectedItems", "additionalNotes",
+        "requesterName", "requesterType", "requesterEmail", "requesterDepartment");
+    
+    private static final Set<String> BANK_DETAILS_SLOTS = Set.of(
+        "bankName", "bankBranch", "sortCode", "swiftCode", "accountHolderName");
+    
+    private static final Set<String> SUMMARY_SLOTS = Set.of(
+        "customerName", "customerId", "invoiceNumber", "creditReason", "creditAmount", "currency",
+        "requesterName", "requesterType");
+    
+    private static final Set<String> VALIDATION_SLOTS = Set.of(
+        "creditAmount", "originalAmount", "creditReason", "reasonDescription", "requesterType",
+        "requiresApproval", "flagged");
+    
+    private static final Set<String> NARRATIVE_SLOTS = Set.of(
+        "issuerName", "customerName", "invoiceNumber", "invoiceDate", "creditType", "creditReason",
+        "reasonDescription", "creditAmount", "creditedItems", "additionalNotes");
+    
+    private static final Set<String> LINE_REASONS_SLOTS = Set.of(
+        "customerName", "invoiceNumber", "creditReason", "reasonDescription", "itemCount", "creditedItems");
+    
+    private final PromptTemplate documentTemplate;
+    
+    private final PromptTemplate bankDetailsTemplate;
+    
+    private final PromptTemplate summaryTemplate;
+    
+    private final PromptTemplate validationTemplate;
+    
+    private final PromptTemplate narrativeTemplate;
+    
+    private final PromptTemplate lineReasonsTemplate;
+    
+    private final String documentInstructions;
+    
+    private final String summaryInstructions;
+    
+    private final String validationInstructions;
+    
+    private final String narrativeInstructions;
+    
+    private final String lineReasonsInstructions;
+    
+    public CreditMemoPrompts(@NonNull ResourceLoader resourceLoader, @NonNull CreditMemoProperties properties) {
+        String location = properties.prompts().location();
+        this.documentTemplate = load(resourceLoader, location, DOCUMENT, DOCUMENT_SLOTS);
+        this.bankDetailsTemplate = load(resourceLoader, location, BANK_DETAILS, BANK_DETAILS_SLOTS);
+        this.summaryTemplate = load(resourceLoader, location, SUMMARY, SUMMARY_SLOTS);
+        this.validationTemplate = load(resourceLoader, location, VALIDATION, VALIDATION_SLOTS);
+        this.narrativeTemplate = load(resourceLoader, location, NARRATIVE, NARRATIVE_SLOTS);
+        this.lineReasonsTemplate = load(resourceLoader, location, LINE_REASONS, LINE_REASONS_SLOTS);
+        this.documentInstructions = instructions(resourceLoader, location, DOCUMENT_INSTRUCTIONS);
+        this.summaryInstructions = instructions(resourceLoader, location, SUMMARY_INSTRUCTIONS);
+        this.validationInstructions = instructions(resourceLoader, location, VALIDATION_INSTRUCTIONS);
+        this.narrativeInstructions = instructions(resourceLoader, location, NARRATIVE_INSTRUCTIONS);
+        this.lineReasonsInstructions = instructions(resourceLoader, location, LINE_REASONS_INSTRUCTIONS);
+        logger.info("Loaded prompt templates from {}", location);
+    }
+    
+    private static PromptTemplate load(ResourceLoader resourceLoader, String location, String name, Set<String> slots) {
+        Resource resource = resourceLoader.getResource(location.endsWith("/") ? location + name : location + "/" + name);
+        try {
+            PromptTemplate template = PromptTemplate.compile(name, resource.getContentAsString(StandardCharsets.UTF_8));
+            template.requireSlotsWithin(slots);
+            return template;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load prompt template " + resource.getDescription(), e);
+        }
+    }
+    
+    private static String instructions(ResourceLoader resourceLoader, String location, String name) {
+        PromptTemplate template = load(resourceLoader, location, name, Set.of());
+        return template.render(template.arguments()).strip();
+    }
+    
+    /**
+     * Static instructions for the document prompt: rules and the standard terms and conditions
+     */
+    @NonNull
+    public String documentInstructions() {
+        return documentInstructions;
+    }
+    
+    @NonNull
+    public String summaryInstructions() {
+        return summaryInstructions;
+    }
+    
+    @NonNull
+    public String validationInstructions() {
+        return validationInstructions;
+    }
+    
+    /**
+     * Static instructions for the narrative prompt: the fields to write and per-reason guidance
+     */
+    @NonNull
+    public String narrativeInstructions() {
+        return narrativeInstructions;
+    }
+    
+    /**
+     * Static instructions for the line item reasons prompt of chunked generation
+     */
+    @NonNull
+    public String lineReasonsInstructions() {
+        return lineReasonsInstructions;
+    }
+    
+    /**
+     * Document prompt; also assigns the memo number the model is told to use
+     */
+    @NonNull
+    @SuppressWarnings("null")
+    public String document(@NonNull CreditMemoRequest request) {
+        return documentTo(new StringBuilder(), request).toString();
+    }
+    
+    /**
+     * Append the document prompt, so callers can follow it with format instructions in one builder
+     */
+    @NonNull
+    @SuppressWarnings("null")
+    public StringBuilder documentTo(@NonNull StringBuilder out, @NonNull CreditMemoRequest request) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        PromptTemplate.Arguments args = documentTemplate.arguments();
+        
+        // For bank colleague: Bank is issuer, customer is recipient
+        // For business customer: Business customer (from issuer field) is issuer, customer is recipient
+        CreditMemoDocument.IssuerDetails issuer = DocumentTemplates.issuer(request);
+        String issuerName = issuer.name();
+        args.set("issuerName", issuerName)
+            .set("issuerAddress", issuer.address())
+            .set("issuerEmail", issuer.email())
+            .set("issuerPhone", issuer.phone())
+            .set("issuerAccountNumber", issuer.accountNumber());
+        
+        args.set("contextNote", switch (request.requester().requesterType()) {
+            case BUSINESS_CUSTOMER -> "This credit memo is issued by a business banking customer (" + issuerName + ") for their own customer. The business customer is a client of UK Business Bank PLC.";
+            case BANK_COLLEAGUE -> "This credit memo is issued by UK Business Bank PLC to correct an incorrect fee charge or banking error for their business customer.";
+            case SYSTEM_AUTOMATED -> "This credit memo is system-generated for automated processing.";
+            case CUSTOMER_SERVICE -> "This credit memo is issued by customer service on behalf of the customer.";
+        });
+        
+        LocalDate today = LocalDate.now();
+        args.set("creditMemoNumber", DocumentTemplates.creditMemoNumber(today))
+            .set("issueDate", today);
+        
+        CreditMemoRequest.CustomerInfo customer = request.customer();
+        args.set("customerId", customer.customerId())
+            .set("customerName", customer.customerName())
+            .set("customerEmail", customer.email())
+            .set("customerPhone", orNa(customer.phone()))
+            .set("billingAddress", DocumentTemplates.address(customer.billingAddress()))
+            .set("customerAccountNumber", customer.accountNumber())
+            .set("bankDetailsSection", bankDetailsSection(customer.bankDetails()))
+            .set("bankDetailsJson", bankDetailsJson(customer.bankDetails()));
+        
+        CreditMemoRequest.TransactionInfo transaction = request.originalTransaction();
+        args.set("transactionId", transaction.transactionId())
+            .set("invoiceNumber", transaction.invoiceNumber())
+            .set("invoiceDate", transaction.transactionDate())
+            .set("originalAmount", transaction.originalAmount())
+            .set("lineItems", lineItems(transaction.lineItems()));
+        
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        BigDecimal creditAmount = credit.creditAmount();
+        BigDecimal subtotal = DocumentTemplates.subtotal(creditAmount);
+        args.set("creditType", DocumentTemplates.creditType(request))
+            .set("creditReason", credit.reason())
+            .set("reasonDescription", credit.reasonDescription())
+            .set("creditAmount", creditAmount)
+            .set("subtotal", subtotal)
+            .set("taxAmount", creditAmount.subtract(subtotal))
+            .set("affectedItems", credit.affectedItems() != null ? String.join(", ", credit.affectedItems()) : "All items")
+            .set("additionalNotes", credit.additionalNotes());
+        
+        CreditMemoRequest.RequesterInfo requester = request.requester();
+        args.set("requesterName", requester.name())
+            .set("requesterType", requester.requesterType())
+            .set("requesterEmail", requester.email())
+            .set("requesterDepartment", orNa(requester.department()));
+        
+        return documentTemplate.renderTo(out, args);
+    }
+    
+    @NonNull
+    @SuppressWarnings("null")
+    public String summary(@NonNull CreditMemoRequest request) {
+        return summaryTemplate.render(summaryTemplate.arguments()
+            .set("customerName", request.customer().customerName())
+            .set("customerId", request.customer().customerId())
+            .set("invoiceNumber", request.originalTransaction().invoiceNumber())
+            .set("creditReason", request.creditDetails().reason())
+            .set("creditAmount", request.creditDetails().creditAmount())
+            .set("currency", request.originalTransaction().currency())
+            .set("requesterName", request.requester().name())
+            .set("requesterType", request.requester().requesterType()));
+    }
+    
+    /**
+     * @param flagged findings from the local validation rules, listed for the model to weigh
+     */
+    @NonNull
+    @SuppressWarnings("null")
+    public String validation(@NonNull CreditMemoRequest request, @NonNull List<String> flagged) {
+        return validationTemplate.render(validationTemplate.arguments()
+            .set("creditAmount", request.creditDetails().creditAmount())
+            .set("originalAmount", request.originalTransaction().originalAmount())
+            .set("creditReason", request.creditDetails().reason())
+            .set("reasonDescription", request.creditDetails().reasonDescription())
+            .set("requesterType", request.requester().requesterType())
+            .set("requiresApproval", request.creditDetails().requiresApproval())
+            .set("flagged", flagged.isEmpty() ? "none" : String.join("; ", flagged)));
+    }
+    
+    /**
+     * Prompt for only the free-text fields of a document built by {@link DocumentTemplates}
+     */
+    @NonNull
+    public String narrative(@NonNull CreditMemoRequest request, @NonNull CreditMemoDocument document) {
+        return narrative(request, document, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Narrative prompt listing at most {@code listed} of the credited items, the rest as a count
+     * and total, for memos whose line item reasons are written in chunks
+     */
+    @NonNull
+    @SuppressWarnings("null")
+    public String narrative(@NonNull CreditMemoRequest request, @NonNull CreditMemoDocument document, int listed) {
+        List<CreditMemoDocument.CreditLineItem> lines = document.creditLineItems();
+        StringBuilder creditedItems = creditedItems(lines.subList(0, Math.min(lines.size(), listed)));
+        if (lines.size() > listed) {
+            BigDecimal rest = lines.subList(listed, lines.size()).stream()
+                .map(CreditMemoDocument.CreditLineItem::lineTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            creditedItems.append("\n  - and ").append(lines.size() - listed)
+                .append(" further items | Credit: £").append(money(rest));
+        }
+        return narrativeTemplate.render(narrativeTemplate.arguments()
+            .set("issuerName", document.issuer().name())
+            .set("customerName", request.customer().customerName())
+            .set("invoiceNumber", request.originalTransaction().invoiceNumber())
+            .set("invoiceDate", request.originalTransaction().transactionDate())
+            .set("creditType", document.creditInfo().creditType())
+            .set("creditReason", request.creditDetails().reason())
+            .set("reasonDescription", request.creditDetails().reasonDescription())
+            .set("creditAmount", request.creditDetails().creditAmount())
+            .set("creditedItems", creditedItems.toString())
+            .set("additionalNotes", request.creditDetails().additionalNotes()));
+    }
+    
+    /**
+     * Prompt for the credit reasons of one chunk of a built document's line items
+     */
+    @NonNull
+    public String lineReasons(@NonNull CreditMemoRequest request, @NonNull List<CreditMemoDocument.CreditLineItem> lines) {
+        return lineReasonsTemplate.render(lineReasonsTemplate.arguments()
+            .set("customerName", request.customer().customerName())
+            .set("invoiceNumber", request.originalTransaction().invoiceNumber())
+            .set("creditReason", request.creditDetails().reason())
+            .set("reasonDescription", request.creditDetails().reasonDescription())
+            .set("itemCount", lines.size())
+            .set("creditedItems", creditedItems(lines).toString()));
+    }
+    
+    private static StringBuilder creditedItems(List<CreditMemoDocument.CreditLineItem> lines) {
+        StringBuilder out = new StringBuilder(lines.size() * 48 + 64);
+        for (CreditMemoDocument.CreditLineItem line : lines) {
+            out.append("\n  - ").append(line.itemDescription())
+                .append(" | Qty: ").append(line.quantity())
+                .append(" | Credit: £").append(money(line.lineTotal()));
+        }
+        return out;
+    }
+    
+    private static String lineItems(List<CreditMemoRequest.LineItem> items) {
+        if (items == null || items.isEmpty()) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(items.size() * 96);
+        for (CreditMemoRequest.LineItem item : items) {
+            out.append("\n  - Item: ").append(item.itemId())
+                .append(" | Description: ").append(item.description())
+                .append(" | Qty: ").append(item.quantity())
+                .append(" | Unit Price: £").append(money(item.unitPrice()))
+                .append(" | Total: £").append(money(item.totalPrice()));
+        }
+        return out.toString();
+    }
+    
+    private String bankDetailsSection(CreditMemoRequest.BankDetails bankDetails) {
+        if (bankDetails == null) {
+            return "";
+        }
+        return bankDetailsTemplate.render(bankDetailsTemplate.arguments()
+            .set("bankName", orNa(bankDetails.bankName()))
+            .set("bankBranch", orNa(bankDetails.bankBranch()))
+            .set("sortCode", orNa(bankDetails.sortCode()))
+            .set("swiftCode", orNa(bankDetails.swiftCode()))
+            .set("accountHolderName", orNa(bankDetails.accountHolderName())));
+    }
+    
+    private static String bankDetailsJson(CreditMemoRequest.BankDetails bankDetails) {
+        if (bankDetails == null) {
+            return "null";
+        }
+        return "{\"bankName\": \"" + orEmpty(bankDetails.bankName())
+               + "\", \"bankBranch\": \"" + orEmpty(bankDetails.bankBranch())
+               + "\", \"sortCode\": \"" + orEmpty(bankDetails.sortCode())
+               + "\", \"swiftCode\": \"" + orEmpty(bankDetails.swiftCode())
+               + "\", \"accountHolderName\": \"" + orEmpty(bankDetails.accountHolderName()) + "\"}";
+    }
+    
+    private static String money(BigDecimal amount) {
+        return amount == null ? "null" : amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+    
+    private static String orNa(String value) {
+        return value != null ? value : "N/A";
+    }
+    
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
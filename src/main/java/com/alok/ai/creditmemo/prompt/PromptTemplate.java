@@ -0,0 +1,219 @@
+package com.alok.ai.creditmemo.prompt;
+
+import org.springframework.lang.NonNull;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A prompt template compiled once into literal segments and typed slots.
+ * 
+ * Slots are written {@code {{name}}} or {@code {{name:money}}}. A name may appear any number of
+ * times and is given its value once. Rendering appends literals and slot values in order into a
+ * builder sized from the largest render so far, so a call does no parsing and, once warm, no
+ * builder growth.
+ */
+public final class PromptTemplate {
+    
+    private static final String OPEN = "{{";
+    
+    private static final String CLOSE = "}}";
+    
+    private static final Object UNSET = new Object();
+    
+    private final String name;
+    
+    // literals.length == slots.length + 1; literals[i] precedes slots[i]
+    private final String[] literals;
+    
+    private final int[] slots;
+    
+    private final SlotType[] slotTypes;
+    
+    private final Map<String, Integer> argumentIndex;
+    
+    private volatile int sizeHint;
+    
+    private PromptTemplate(String name, String[] literals, int[] slots, SlotType[] slotTypes,
+                           Map<String, Integer> argumentIndex) {
+        this.name = name;
+        this.literals = literals;
+        this.slots = slots;
+        this.slotTypes = slotTypes;
+        this.argumentIndex = argumentIndex;
+        this.sizeHint = Arrays.stream(literals).mapToInt(String::length).sum() + 32 * slots.length;
+    }
+    
+    /**
+     * Compile template text
+     * @throws IllegalArgumentException on an unterminated, empty or mistyped slot
+     */
+    @NonNull
+    public static PromptTemplate compile(@NonNull String name, @NonNull String text) {
+        Objects.requireNonNull(text, "Template text must not be null");
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<SlotType> slotTypes = new ArrayList<>();
+        Map<String, Integer> argumentIndex = new LinkedHashMap<>();
+        
+        int position = 0;
+        int open;
+        while ((open = text.indexOf(OPEN, position)) >= 0) {
+            int close = text.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated slot in prompt template " + name + " at offset " + open);
+            }
+            String slot = text.substring(open + OPEN.length(), close).strip();
+            int colon = slot.indexOf(':');
+            String slotName = colon < 0 ? slot : slot.substring(0, colon).strip();
+            SlotType type = colon < 0 ? SlotType.TEXT : SlotType.of(name, slot.substring(colon + 1).strip());
+            if (slotName.isEmpty()) {
+                throw new IllegalArgumentException("Empty slot in prompt template " + name + " at offset " + open);
+            }
+            literals.add(text.substring(position, open));
+            slots.add(argumentIndex.computeIfAbsent(slotName, key -> argumentIndex.size()));
+            slotTypes.add(type);
+            position = close + CLOSE.length();
+        }
+        literals.add(text.substring(position));
+        
+        return new PromptTemplate(name,
+            literals.toArray(String[]::new),
+            slots.stream().mapToInt(Integer::intValue).toArray(),
+            slotTypes.toArray(SlotType[]::new),
+            Map.copyOf(argumentIndex));
+    }
+    
+    @NonNull
+    public String name() {
+        return name;
+    }
+    
+    /**
+     * Names of the slots this template uses
+     */
+    @NonNull
+    public Set<String> slotNames() {
+        return argumentIndex.keySet();
+    }
+    
+    /**
+     * Fail unless every slot is one the caller knows how to fill
+     * @throws IllegalStateException naming the unknown slots
+     */
+    public void requireSlotsWithin(@NonNull Set<String> known) {
+        List<String> unknown = argumentIndex.keySet().stream().filter(slot -> !known.contains(slot)).sorted().toList();
+        if (!unknown.isEmpty()) {
+            throw new IllegalStateException("Prompt template " + name + " uses unknown slots " + unknown
+                                            + "; available slots are " + known.stream().sorted().toList());
+        }
+    }
+    
+    /**
+     * Fresh argument set for one render
+     */
+    @NonNull
+    public Arguments arguments() {
+        return new Arguments();
+    }
+    
+    @NonNull
+    public String render(@NonNull Arguments arguments) {
+        StringBuilder out = new StringBuilder(sizeHint);
+        renderTo(out, arguments);
+        return out.toString();
+    }
+    
+    /**
+     * Append the rendered template, e.g. to follow it with further instructions in the same builder
+     * @throws IllegalStateException if a slot was never given a value
+     */
+    @NonNull
+    public StringBuilder renderTo(@NonNull StringBuilder out, @NonNull Arguments arguments) {
+        int start = out.length();
+        Object[] values = arguments.values;
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            Object value = values[slots[i]];
+            if (value == UNSET) {
+                throw new IllegalStateException("No value for slot " + slotName(slots[i]) + " in prompt template " + name);
+            }
+            slotTypes[i].append(out, value);
+            out.append(literals[i + 1]);
+        }
+        int length = out.length() - start;
+        if (length > sizeHint) {
+            sizeHint = length;
+        }
+        return out;
+    }
+    
+    private String slotName(int index) {
+        return argumentIndex.entrySet().stream()
+            .filter(entry -> entry.getValue() == index)
+            .map(Map.Entry::getKey)
+            .findFirst()
+            .orElse("#" + index);
+    }
+    
+    /**
+     * Slot values for one render; setting a name the template does not use is a no-op,
+     * so a template may drop lines without code changes
+     */
+    public final class Arguments {
+        
+        private final Object[] values = new Object[argumentIndex.size()];
+        
+        private Arguments() {
+            Arrays.fill(values, UNSET);
+        }
+        
+        @NonNull
+        public Arguments set(@NonNull String slot, Object value) {
+            Integer index = argumentIndex.get(slot);
+            if (index != null) {
+                values[index] = value;
+            }
+            return this;
+        }
+    }
+    
+    enum SlotType {
+        /** {@code String.valueOf}, as {@code %s} would */
+        TEXT {
+            @Override
+            void append(StringBuilder out, Object value) {
+                out.append(value);
+            }
+        },
+        /** Two decimal places rounded half-up, as {@code %.2f} would, without locale grouping */
+        MONEY {
+            @Override
+            void append(StringBuilder out, Object value) {
+                if (value instanceof BigDecimal amount) {
+                    out.append(amount.setScale(2, RoundingMode.HALF_UP).toPlainString());
+                } else {
+                    out.append(value);
+                }
+            }
+        };
+        
+        abstract void append(StringBuilder out, Object value);
+        
+        static SlotType of(String template, String type) {
+            return switch (type) {
+                case "text" -> TEXT;
+                case "money" -> MONEY;
+                default -> throw new IllegalArgumentException(
+                    "Unknown slot type '" + type + "' in prompt template " + template + "; expected text or money");
+            };
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.alok.ai.creditmemo.resilience;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/hedging}) with hedge counts, win rates and the current
+ * hedge delay per hedged call type
+ */
+@Component
+@Endpoint(id = "hedging")
+public class HedgingEndpoint {
+    
+    private final ModelResilienceAdvisor resilienceAdvisor;
+    
+    public HedgingEndpoint(ModelResilienceAdvisor resilienceAdvisor) {
+        this.resilienceAdvisor = resilienceAdvisor;
+    }
+    
+    @ReadOperation
+    public Map<String, ModelResilienceAdvisor.HedgeStats> hedging() {
+        return resilienceAdvisor.hedgeStats();
+    }
+}
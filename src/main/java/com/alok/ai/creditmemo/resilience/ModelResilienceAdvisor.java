@@ -0,0 +1,312 @@
+package com.alok.ai.creditmemo.resilience;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException.Reason;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Resilience layer around every {@code ChatClient} call, configured under {@code resilience4j.*}.
+ * 
+ * Each call runs inside a bulkhead for its call type ({@code bedrock-document},
+ * {@code bedrock-summary}, {@code bedrock-validation}; the type is the {@link #CALL} advisor
+ * parameter), so one kind of call cannot take every slot. Around that sits the {@code bedrock}
+ * circuit breaker, which fails calls at once while Bedrock is unhealthy, and the {@code bedrock}
+ * retry, which retries throttling and 5xx responses with exponential backoff. Each attempt takes
+ * its own slot from the concurrency limiter that follows this advisor. A full bulkhead or an open
+ * circuit raises {@link ModelCapacityExceededException}.
+ * 
+ * With {@code creditmemo.hedging.enabled}, calls of the listed types that are still running after
+ * the configured latency percentile of their type get a second, identical call; the first
+ * response wins and the other call is cancelled. Outcomes are counted in
+ * {@code creditmemo.model.hedges}, tagged {@code call} and {@code outcome} (primary, hedge or
+ * failed), and summarised by the {@code hedging} actuator endpoint. Streams get the bulkhead and
+ * the circuit breaker only, since output already sent cannot be taken back.
+ */
+@Component
+public class ModelResilienceAdvisor implements CallAdvisor, StreamAdvisor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ModelResilienceAdvisor.class);
+    
+    /**
+     * Advisor parameter naming the call type: document, summary or validation
+     */
+    public static final String CALL = "creditmemo.call";
+    
+    static final String BEDROCK = "bedrock";
+    
+    private final CircuitBreaker circuitBreaker;
+    
+    private final Retry retry;
+    
+    private final BulkheadRegistry bulkheads;
+    
+    private final ExecutorService executor;
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final Duration bulkheadRetryAfter;
+    
+    private final boolean hedgingEnabled;
+    
+    private final Set<String> hedgedCalls;
+    
+    private final double hedgePercentile;
+    
+    private final long hedgeMinSamples;
+    
+    private final Duration hedgeMinDelay;
+    
+    private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+    
+    public ModelResilienceAdvisor(@NonNull CircuitBreakerRegistry circuitBreakers,
+                                  @NonNull RetryRegistry retries,
+                                  @NonNull BulkheadRegistry bulkheads,
+                                  @NonNull @Qualifier("creditMemoExecutor") ExecutorService executor,
+                                  @NonNull CreditMemoProperties properties,
+                                  @NonNull MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreakers.circuitBreaker(BEDROCK);
+        this.retry = retries.retry(BEDROCK);
+        this.bulkheads = Objects.requireNonNull(bulkheads, "BulkheadRegistry must not be null");
+        this.executor = Objects.requireNonNull(executor, "ExecutorService must not be null");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null");
+        this.bulkheadRetryAfter = properties.modelCalls().retryAfter();
+        
+        CreditMemoProperties.Hedging hedging = properties.hedging();
+        this.hedgingEnabled = hedging.enabled();
+        this.hedgedCalls = Set.copyOf(hedging.calls());
+        this.hedgePercentile = hedging.percentile();
+        this.hedgeMinSamples = hedging.minSamples();
+        this.hedgeMinDelay = hedging.minDelay();
+        
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+            logger.warn("Bedrock circuit breaker {}", event.getStateTransition()));
+        logger.info("Model call resilience: retry up to {} attempts, hedging {}",
+                    retry.getRetryConfig().getMaxAttempts(), hedgingEnabled ? "on for " + hedgedCalls : "off");
+    }
+    
+    @Override
+    @NonNull
+    public String getName() {
+        return "ModelResilienceAdvisor";
+    }
+    
+    @Override
+    public int getOrder() {
+        // Runs before the concurrency limiter, so every retry or hedge takes its own slot
+        return Ordered.LOWEST_PRECEDENCE - 2000;
+    }
+    
+    @Override
+    @NonNull
+    public ChatClientResponse adviseCall(@NonNull ChatClientRequest request, @NonNull CallAdvisorChain chain) {
+        String call = callOf(request);
+        Supplier<ChatClientResponse> attempt = () -> timed(call, () -> chain.copy(this).nextCall(request));
+        Supplier<ChatClientResponse> hedged = hedgingEnabled && hedgedCalls.contains(call)
+            ? () -> hedged(call, attempt)
+            : attempt;
+        Supplier<ChatClientResponse> guarded = Retry.decorateSupplier(retry,
+            CircuitBreaker.decorateSupplier(circuitBreaker,
+                Bulkhead.decorateSupplier(bulkheadOf(call), hedged)));
+        try {
+            return guarded.get();
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            throw rejected(call, e);
+        }
+    }
+    
+    @Override
+    @NonNull
+    public Flux<ChatClientResponse> adviseStream(@NonNull ChatClientRequest request, @NonNull StreamAdvisorChain chain) {
+        String call = callOf(request);
+        return chain.nextStream(request)
+            .transformDeferred(BulkheadOperator.of(bulkheadOf(call)))
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+            .onErrorMap(e -> e instanceof CallNotPermittedException || e instanceof BulkheadFullException,
+                        e -> rejected(call, e));
+    }
+    
+    /**
+     * Hedging outcomes and the current hedge delay per hedged call type
+     */
+    public Map<String, HedgeStats> hedgeStats() {
+        Map<String, HedgeStats> stats = new TreeMap<>();
+        for (String call : hedgedCalls) {
+            long primary = (long) hedges(call, "primary").count();
+            long hedge = (long) hedges(call, "hedge").count();
+            long failed = (long) hedges(call, "failed").count();
+            long delay = hedgeDelayNanos(call);
+            stats.put(call, new HedgeStats(primary + hedge + failed, primary, hedge, failed,
+                primary + hedge == 0 ? 0.0 : (double) hedge / (primary + hedge),
+                delay < 0 ? null : Duration.ofNanos(delay)));
+        }
+        return stats;
+    }
+    
+    /**
+     * Run an attempt, and a second one if the first is slower than the hedge delay; the first
+     * success wins and the other attempt is interrupted
+     */
+    private ChatClientResponse hedged(String call, Supplier<ChatClientResponse> attempt) {
+        long delay = hedgeDelayNanos(call);
+        if (delay < 0) {
+            return attempt.get();
+        }
+        CompletionService<ChatClientResponse> race = new ExecutorCompletionService<>(executor);
+        Future<ChatClientResponse> primary = race.submit(attempt::get);
+        Future<ChatClientResponse> hedge = null;
+        try {
+            Future<ChatClientResponse> done = race.poll(delay, TimeUnit.NANOSECONDS);
+            if (done != null) {
+                return resultOf(done);
+            }
+            hedge = race.submit(attempt::get);
+            RuntimeException failure = null;
+            for (int pending = 2; pending > 0; pending--) {
+                done = race.take();
+                try {
+                    ChatClientResponse response = resultOf(done);
+                    hedges(call, done == primary ? "primary" : "hedge").increment();
+                    return response;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            hedges(call, "failed").increment();
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a hedged " + call + " call");
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+    
+    /**
+     * @return how long a call waits before it is hedged, or -1 while too few calls have been seen
+     */
+    private long hedgeDelayNanos(String call) {
+        Timer latency = latencyOf(call);
+        if (latency.count() < hedgeMinSamples) {
+            return -1;
+        }
+        double percentile = 0;
+        for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+            percentile = value.value(TimeUnit.NANOSECONDS);
+        }
+        return Math.max(hedgeMinDelay.toNanos(), (long) percentile);
+    }
+    
+    private ChatClientResponse timed(String call, Supplier<ChatClientResponse> attempt) {
+        long start = System.nanoTime();
+        ChatClientResponse response = attempt.get();
+        latencyOf(call).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return response;
+    }
+    
+    private Timer latencyOf(String call) {
+        return latencies.computeIfAbsent(call, name -> Timer.builder("creditmemo.model.calls.latency")
+            .description("Successful model call attempts")
+            .tag("call", name)
+            .publishPercentiles(hedgePercentile)
+            .register(meterRegistry));
+    }
+    
+    private Counter hedges(String call, String outcome) {
+        return Counter.builder("creditmemo.model.hedges")
+            .description("Hedged model calls by which attempt answered first")
+            .tag("call", call)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+    
+    private Bulkhead bulkheadOf(String call) {
+        return bulkheads.bulkhead(BEDROCK + "-" + call);
+    }
+    
+    private ModelCapacityExceededException rejected(String call, Throwable cause) {
+        Reason reason;
+        Duration retryAfter;
+        if (cause instanceof CallNotPermittedException) {
+            reason = Reason.CIRCUIT_OPEN;
+            retryAfter = Duration.ofMillis(circuitBreaker.getCircuitBreakerConfig()
+                .getWaitIntervalFunctionInOpenState().apply(1));
+        } else {
+            reason = Reason.BULKHEAD_FULL;
+            retryAfter = bulkheadRetryAfter;
+        }
+        meterRegistry.counter("creditmemo.model.calls.rejected", "reason", reason.tag()).increment();
+        return new ModelCapacityExceededException(cause.getMessage() + " (" + call + " call)", reason, retryAfter);
+    }
+    
+    private static String callOf(ChatClientRequest request) {
+        return request.context().get(CALL) instanceof String call ? call : "other";
+    }
+    
+    private static ChatClientResponse resultOf(Future<ChatClientResponse> done) {
+        return switch (done.state()) {
+            case SUCCESS -> done.resultNow();
+            case FAILED -> {
+                Throwable failure = done.exceptionNow();
+                if (failure instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(failure);
+            }
+            default -> throw new CancellationException("Model call was cancelled");
+        };
+    }
+    
+    /**
+     * @param hedgeWinRate share of hedged calls answered first by the second attempt
+     * @param delay current hedge delay, or null until enough calls have been seen
+     */
+    public record HedgeStats(long hedged, long primaryWins, long hedgeWins, long failed,
+                             double hedgeWinRate, Duration delay) {}
+}
@@ -0,0 +1,25 @@
+package com.alok.ai.creditmemo.resilience;
+
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.util.function.Predicate;
+
+/**
+ * Matches model call failures worth retrying: throttling and Bedrock 5xx responses. Client
+ * errors and timeouts are not retried.
+ */
+public class RetryableModelFailure implements Predicate<Throwable> {
+    
+    @Override
+    public boolean test(Throwable failure) {
+        if (ThrottlingFailure.isThrottling(failure)) {
+            return true;
+        }
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SdkServiceException sdk && sdk.statusCode() >= 500) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.alok.ai.creditmemo.resilience;
+
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.util.function.Predicate;
+
+/**
+ * Matches failures caused by Bedrock throttling ({@code ThrottlingException} and other SDK
+ * service exceptions flagged as throttling), wherever they sit in the cause chain
+ */
+public class ThrottlingFailure implements Predicate<Throwable> {
+    
+    @Override
+    public boolean test(Throwable failure) {
+        return isThrottling(failure);
+    }
+    
+    public static boolean isThrottling(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SdkServiceException sdk && sdk.isThrottlingException()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
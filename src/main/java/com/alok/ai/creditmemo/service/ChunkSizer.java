@@ -0,0 +1,69 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Line items per chunk call in chunked generation, sized so a chunk's reasons take about
+ * {@code chunk-output-tokens}.
+ * 
+ * Until a chunk has completed the configured initial size is used. After that the size follows
+ * the output tokens per item measured on completed chunks, as an exponentially weighted moving
+ * average, so it settles on what the routed model actually writes per item.
+ */
+final class ChunkSizer {
+    
+    // Weight of each new measurement in the moving average
+    private static final double WEIGHT = 0.2;
+    
+    private final int chunkOutputTokens;
+    
+    private final int initialSize;
+    
+    private final int minSize;
+    
+    private final int maxSize;
+    
+    // Bits of the average output tokens per item, NaN until the first measurement
+    private final AtomicLong tokensPerItem = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+    
+    ChunkSizer(@NonNull CreditMemoProperties.Chunking config) {
+        if (config.minChunkSize() < 1 || config.maxChunkSize() < config.minChunkSize()) {
+            throw new IllegalArgumentException(
+                "creditmemo.generation.chunking.min-chunk-size must be at least 1 and at most max-chunk-size");
+        }
+        this.chunkOutputTokens = config.chunkOutputTokens();
+        this.initialSize = config.initialChunkSize();
+        this.minSize = config.minChunkSize();
+        this.maxSize = config.maxChunkSize();
+    }
+    
+    int size() {
+        double perItem = tokensPerItem();
+        int size = Double.isNaN(perItem) ? initialSize : (int) (chunkOutputTokens / perItem);
+        return Math.clamp(size, minSize, maxSize);
+    }
+    
+    /**
+     * Record the output tokens a completed chunk of {@code items} line items took
+     */
+    void record(int items, int outputTokens) {
+        if (items <= 0 || outputTokens <= 0) {
+            return;
+        }
+        double sample = (double) outputTokens / items;
+        tokensPerItem.updateAndGet(bits -> {
+            double average = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(Double.isNaN(average) ? sample : average + WEIGHT * (sample - average));
+        });
+    }
+    
+    /**
+     * Average output tokens per line item, NaN until a chunk has completed
+     */
+    double tokensPerItem() {
+        return Double.longBitsToDouble(tokensPerItem.get());
+    }
+}
@@ -0,0 +1,131 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.limit.RateLimitExceededException;
+import com.alok.ai.creditmemo.limit.RequesterRateLimiter;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Generates many credit memos from one submission with bounded parallelism
+ */
+@Service
+public class CreditMemoBatchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CreditMemoBatchService.class);
+    
+    private final CreditMemoService creditMemoService;
+    
+    private final ObjectMapper objectMapper;
+    
+    private final Validator validator;
+    
+    private final RequesterRateLimiter rateLimiter;
+    
+    private final Scheduler scheduler;
+    
+    private final int parallelism;
+    
+    private final int maxItems;
+    
+    public CreditMemoBatchService(@NonNull CreditMemoService creditMemoService,
+                                  @NonNull ObjectMapper objectMapper,
+                                  @NonNull Validator validator,
+                                  @NonNull RequesterRateLimiter rateLimiter,
+                                  @NonNull @Qualifier("creditMemoExecutor") ExecutorService executor,
+                                  @NonNull CreditMemoProperties properties) {
+        this.creditMemoService = Objects.requireNonNull(creditMemoService, "CreditMemoService must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper must not be null");
+        this.validator = Objects.requireNonNull(validator, "Validator must not be null");
+        this.rateLimiter = Objects.requireNonNull(rateLimiter, "RequesterRateLimiter must not be null");
+        this.scheduler = Schedulers.fromExecutorService(executor);
+        this.parallelism = properties.batch().parallelism();
+        this.maxItems = properties.batch().maxItems();
+    }
+    
+    /**
+     * Generate a credit memo for every item, emitting outcomes in completion order.
+     * A failing item becomes a failed outcome; it never aborts the rest of the batch. Every item
+     * passes its requester's rate limits, so an item over them fails with
+     * {@link RateLimitExceededException} like a single request would.
+     * Items may carry a top-level {@code correlationId} which is echoed on the outcome.
+     */
+    public Flux<BatchOutcome> generateBatch(@NonNull List<JsonNode> items) {
+        Objects.requireNonNull(items, "Batch items must not be null");
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Batch of " + items.size() + " items exceeds the limit of " + maxItems);
+        }
+        
+        logger.info("Generating batch of {} credit memos with parallelism {}", items.size(), parallelism);
+        
+        return Flux.range(0, items.size())
+            .flatMap(index -> Mono.fromCallable(() -> generateItem(index, items.get(index)))
+                                  .subscribeOn(scheduler),
+                     parallelism);
+    }
+    
+    @NonNull
+    private BatchOutcome generateItem(int index, @NonNull JsonNode item) {
+        String correlationId = item.hasNonNull("correlationId") ? item.get("correlationId").asText() : null;
+        try {
+            CreditMemoRequest request = objectMapper.treeToValue(item, CreditMemoRequest.class);
+            validate(request);
+            rateLimiter.acquire(request.requester());
+            return BatchOutcome.success(index, correlationId, creditMemoService.generateCreditMemo(request));
+        } catch (Exception e) {
+            logger.warn("Batch item {} ({}) failed: {}", index, correlationId, e.getMessage());
+            return BatchOutcome.failure(index, correlationId, e);
+        }
+    }
+    
+    private void validate(CreditMemoRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Batch item must be a credit memo request object");
+        }
+        Set<ConstraintViolation<CreditMemoRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            Map<String, String> errors = new TreeMap<>();
+            violations.forEach(v -> errors.put(v.getPropertyPath().toString(), v.getMessage()));
+            throw new IllegalArgumentException("Invalid request parameters: " + errors);
+        }
+    }
+    
+    /**
+     * Result of one batch item: either a response or the failure that prevented it
+     */
+    public record BatchOutcome(
+        int index,
+        String correlationId,
+        CreditMemoResponse response,
+        Exception failure
+    ) {
+        
+        static BatchOutcome success(int index, String correlationId, CreditMemoResponse response) {
+            return new BatchOutcome(index, correlationId, response, null);
+        }
+        
+        static BatchOutcome failure(int index, String correlationId, Exception failure) {
+            return new BatchOutcome(index, correlationId, null, failure);
+        }
+    }
+}
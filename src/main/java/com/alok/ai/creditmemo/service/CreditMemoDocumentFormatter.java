@@ -0,0 +1,87 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import org.springframework.lang.NonNull;
+
+/**
+ * Plain-text rendering of a generated document, returned as {@code creditMemoDocument}
+ */
+public final class CreditMemoDocumentFormatter {
+    
+    private CreditMemoDocumentFormatter() {
+    }
+    
+    @NonNull
+    @SuppressWarnings("null")
+    public static String format(@NonNull CreditMemoDocument document) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== CREDIT MEMO ===\n\n");
+        sb.append("Credit Memo Number: ").append(document.creditMemoNumber()).append("\n");
+        sb.append("Issue Date: ").append(document.issueDate()).append("\n\n");
+        
+        sb.append("ISSUER (FROM):\n");
+        sb.append("Name: ").append(document.issuer().name()).append("\n");
+        sb.append("Address: ").append(document.issuer().address()).append("\n");
+        sb.append("Email: ").append(document.issuer().email()).append("\n");
+        sb.append("Phone: ").append(document.issuer().phone()).append("\n");
+        if (document.issuer().accountNumber() != null && !document.issuer().accountNumber().equals("N/A (Bank)")) {
+            sb.append("Account: ").append(document.issuer().accountNumber()).append("\n");
+        }
+        sb.append("\n");
+        
+        sb.append("RECIPIENT (TO):\n");
+        sb.append("Name: ").append(document.recipient().name()).append("\n");
+        sb.append("Customer ID: ").append(document.recipient().customerId()).append("\n");
+        sb.append("Address: ").append(document.recipient().address()).append("\n");
+        sb.append("Email: ").append(document.recipient().email()).append("\n");
+        sb.append("Account: ").append(document.recipient().accountNumber()).append("\n");
+        
+        if (document.recipient().bankDetails() != null) {
+            sb.append("\nRecipient Bank Details:\n");
+            sb.append("  Bank: ").append(document.recipient().bankDetails().bankName()).append("\n");
+            sb.append("  Branch: ").append(document.recipient().bankDetails().bankBranch()).append("\n");
+            sb.append("  Sort Code: ").append(document.recipient().bankDetails().sortCode()).append("\n");
+            sb.append("  SWIFT: ").append(document.recipient().bankDetails().swiftCode()).append("\n");
+            sb.append("  Account Holder: ").append(document.recipient().bankDetails().accountHolderName()).append("\n");
+        }
+        sb.append("\n");
+        
+        sb.append("ORIGINAL INVOICE REFERENCE:\n");
+        sb.append("Invoice Number: ").append(document.originalInvoice().invoiceNumber()).append("\n");
+        sb.append("Invoice Date: ").append(document.originalInvoice().invoiceDate()).append("\n");
+        sb.append("Original Amount: ").append(document.originalInvoice().originalAmount()).append("\n\n");
+        
+        sb.append("CREDIT REASON:\n");
+        sb.append(document.creditInfo().reason()).append("\n");
+        sb.append(document.creditInfo().detailedExplanation()).append("\n\n");
+        
+        sb.append("CREDIT LINE ITEMS:\n");
+        if (document.creditLineItems() != null && !document.creditLineItems().isEmpty()) {
+            document.creditLineItems().forEach(item -> {
+                sb.append(String.format("- %s (Qty: %d) @ %s = %s - %s\n",
+                    item.itemDescription(),
+                    item.quantity(),
+                    item.unitPrice(),
+                    item.lineTotal(),
+                    item.reasonForCredit()));
+            });
+        } else {
+            sb.append("- No line item breakdown available\n");
+        }
+        
+        sb.append("\nFINANCIAL SUMMARY:\n");
+        sb.append("Subtotal: ").append(document.financialSummary().subtotal()).append("\n");
+        sb.append("Tax: ").append(document.financialSummary().taxAmount()).append("\n");
+        sb.append("TOTAL CREDIT: ").append(document.financialSummary().totalCreditAmount())
+          .append(" ").append(document.financialSummary().currency()).append("\n\n");
+        
+        sb.append("Terms & Conditions: ").append(document.termsAndConditions()).append("\n");
+        sb.append("Authorized By: ").append(document.authorizedBy()).append("\n");
+        
+        if (document.notes() != null && !document.notes().isEmpty()) {
+            sb.append("Notes: ").append(document.notes()).append("\n");
+        }
+        
+        return sb.toString();
+    }
+}
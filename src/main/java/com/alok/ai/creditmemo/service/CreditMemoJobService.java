@@ -0,0 +1,195 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoJob;
+import com.alok.ai.creditmemo.model.CreditMemoJobCallback;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs credit memo generation as asynchronous jobs on a bounded worker pool.
+ * 
+ * A finished job is announced to its callback URL, whose host must be listed in
+ * {@code creditmemo.jobs.callback.allowed-hosts}. The callback carries only the job ID, status
+ * and links; the memo itself is only ever returned by the authenticated job endpoint.
+ */
+@Service
+public class CreditMemoJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CreditMemoJobService.class);
+    
+    private final CreditMemoService creditMemoService;
+    
+    private final CreditMemoJobStore jobStore;
+    
+    private final ThreadPoolExecutor workers;
+    
+    private final RestClient callbackClient;
+    
+    // Lower-cased
+    private final Set<String> callbackHosts;
+    
+    private final Duration retryAfter;
+    
+    private final Duration retention;
+    
+    public CreditMemoJobService(@NonNull CreditMemoService creditMemoService,
+                                @NonNull CreditMemoJobStore jobStore,
+                                @NonNull CreditMemoProperties properties,
+                                @NonNull RestClient.Builder restClientBuilder) {
+        this.creditMemoService = Objects.requireNonNull(creditMemoService, "CreditMemoService must not be null");
+        this.jobStore = Objects.requireNonNull(jobStore, "CreditMemoJobStore must not be null");
+        
+        CreditMemoProperties.Jobs jobs = properties.jobs();
+        this.workers = new ThreadPoolExecutor(
+            jobs.concurrency(), jobs.concurrency(),
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(jobs.queueCapacity()),
+            Thread.ofPlatform().name("creditmemo-job-", 0).factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfter = jobs.retryAfter();
+        this.retention = jobs.retention();
+        
+        this.callbackHosts = jobs.callback().allowedHosts().stream()
+            .map(host -> host.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(@NonNull HttpURLConnection connection, @NonNull String httpMethod)
+                    throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                // A redirect could lead off the allowed hosts
+                connection.setInstanceFollowRedirects(false);
+            }
+        };
+        requestFactory.setConnectTimeout(jobs.callbackTimeout());
+        requestFactory.setReadTimeout(jobs.callbackTimeout());
+        this.callbackClient = restClientBuilder.clone().requestFactory(requestFactory).build();
+        
+        logger.info("CreditMemoJobService initialized with concurrency {} and queue capacity {}", 
+                    jobs.concurrency(), jobs.queueCapacity());
+    }
+    
+    /**
+     * Queue a credit memo for generation
+     * @throws JobQueueFullException when every worker is busy and the queue is full
+     */
+    @NonNull
+    public CreditMemoJob submit(@NonNull CreditMemoRequest request, String callbackUrl) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        validateCallbackUrl(callbackUrl);
+        
+        CreditMemoJob job = CreditMemoJob.queued(UUID.randomUUID().toString(), callbackUrl);
+        jobStore.save(job);
+        
+        try {
+            workers.execute(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobStore.delete(job.jobId());
+            throw new JobQueueFullException("Credit memo job queue is full, retry later", retryAfter);
+        }
+        
+        logger.info("Queued credit memo job {} for customer {}", job.jobId(), request.customer().customerId());
+        return job;
+    }
+    
+    public Optional<CreditMemoJob> findJob(@NonNull String jobId) {
+        return jobStore.findById(jobId);
+    }
+    
+    /**
+     * Delete finished jobs older than the retention window; runs on a timer so that
+     * submissions never pay for a sweep of the store
+     */
+    @Scheduled(fixedDelayString = "${creditmemo.jobs.sweep-interval:1m}")
+    public void deleteExpiredJobs() {
+        int deleted = jobStore.deleteFinishedBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.debug("Deleted {} credit memo jobs past their retention", deleted);
+        }
+    }
+    
+    private void run(@NonNull CreditMemoJob queued, @NonNull CreditMemoRequest request) {
+        CreditMemoJob running = queued.running();
+        jobStore.save(running);
+        
+        CreditMemoJob finished;
+        try {
+            CreditMemoResponse response = creditMemoService.generateCreditMemo(request);
+            finished = running.succeeded(response);
+            logger.info("Credit memo job {} succeeded", queued.jobId());
+        } catch (Exception e) {
+            finished = running.failed(e.getMessage());
+            logger.error("Credit memo job {} failed", queued.jobId(), e);
+        }
+        jobStore.save(finished);
+        
+        if (finished.callbackUrl() != null) {
+            notifyCallback(finished);
+        }
+    }
+    
+    private void notifyCallback(@NonNull CreditMemoJob job) {
+        try {
+            callbackClient.post()
+                .uri(URI.create(job.callbackUrl()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(CreditMemoJobCallback.of(job))
+                .retrieve()
+                .toBodilessEntity();
+            logger.info("Delivered callback for credit memo job {}", job.jobId());
+        } catch (Exception e) {
+            // The job result stays available for polling
+            logger.warn("Callback for credit memo job {} to {} failed: {}", job.jobId(), job.callbackUrl(), e.getMessage());
+        }
+    }
+    
+    private void validateCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid callback URL: " + callbackUrl);
+        }
+        if (!uri.isAbsolute() || uri.getHost() == null
+                || !("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))) {
+            throw new IllegalArgumentException("Callback URL must be an absolute http or https URL: " + callbackUrl);
+        }
+        if (!callbackHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Callback host is not allowed: " + uri.getHost());
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,28 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoJob;
+import org.springframework.lang.NonNull;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Storage for asynchronous credit memo jobs
+ */
+public interface CreditMemoJobStore {
+    
+    /**
+     * Insert or replace the job with the same ID
+     */
+    void save(@NonNull CreditMemoJob job);
+    
+    Optional<CreditMemoJob> findById(@NonNull String jobId);
+    
+    void delete(@NonNull String jobId);
+    
+    /**
+     * Remove finished jobs completed before the cutoff
+     * @return number of jobs removed
+     */
+    int deleteFinishedBefore(@NonNull Instant cutoff);
+}
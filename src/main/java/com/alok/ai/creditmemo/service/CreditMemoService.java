@@ -1,20 +1,56 @@
 package com.alok.ai.creditmemo.service;
 
+import com.alok.ai.creditmemo.cache.RequestFingerprint;
+import com.alok.ai.creditmemo.cache.ResponseCache;
+import com.alok.ai.creditmemo.cache.ResponseCacheFactory;
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.config.SpringAiConfig;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.ModelConcurrencyLimiter;
+import com.alok.ai.creditmemo.limit.RequesterRateLimiter;
 import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoLineReasons;
+import com.alok.ai.creditmemo.model.CreditMemoNarrative;
 import com.alok.ai.creditmemo.model.CreditMemoRequest;
 import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.alok.ai.creditmemo.model.CreditMemoStreamEvent;
+import com.alok.ai.creditmemo.prompt.CreditMemoPrompts;
+import com.alok.ai.creditmemo.resilience.ModelResilienceAdvisor;
+import com.alok.ai.creditmemo.validation.ValidationRulesEngine;
+import com.alok.ai.creditmemo.validation.ValidationRulesEngine.RulesVerdict;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service for generating credit memos using AWS Bedrock via Spring AI
@@ -24,69 +60,681 @@ public class CreditMemoService {
     
     private static final Logger logger = LoggerFactory.getLogger(CreditMemoService.class);
     
-    private final ChatClient chatClient;
+    // Credited items listed in the narrative prompt of a chunked memo; the rest are given as a count
+    private static final int NARRATIVE_LISTED_ITEMS = 10;
     
-    @Value("${spring.ai.bedrock.converse.chat.model:anthropic.claude-3-5-sonnet-20240620-v1:0}")
-    private String modelName;
+    // Bedrock's stop reason, passed on as the finish reason, when an answer was cut off by max tokens
+    private static final String MAX_TOKENS_FINISH_REASON = "max_tokens";
     
-    public CreditMemoService(@NonNull ChatModel chatModel) {
-        Objects.requireNonNull(chatModel, "ChatModel must not be null");
-        this.chatClient = ChatClient.builder(chatModel).build();
-        logger.info("CreditMemoService initialized with ChatClient");
+    // Client per call type: document, summary, validation
+    private final Map<String, ChatClient> chatClients;
+    
+    // Options of each client, restated on calls that also set the routed model
+    private final Map<String, CreditMemoProperties.ClientOptions> clientOptions;
+    
+    private final ExecutorService executor;
+    
+    private final Scheduler scheduler;
+    
+    private final BeanOutputConverter<CreditMemoDocument> documentConverter =
+        new BeanOutputConverter<>(CreditMemoDocument.class);
+    
+    private final BeanOutputConverter<CreditMemoNarrative> narrativeConverter =
+        new BeanOutputConverter<>(CreditMemoNarrative.class);
+    
+    private final BeanOutputConverter<ValidationResult> validationConverter =
+        new BeanOutputConverter<>(ValidationResult.class);
+    
+    private final BeanOutputConverter<CreditMemoLineReasons> lineReasonsConverter =
+        new BeanOutputConverter<>(CreditMemoLineReasons.class);
+    
+    // Answer tools for StructuredOutputMode.TOOL; null in PROMPT mode
+    private final OutputTool documentTool;
+    
+    private final OutputTool narrativeTool;
+    
+    private final OutputTool validationTool;
+    
+    private final OutputTool lineReasonsTool;
+    
+    // Static system prompts, identical on every call so Bedrock can cache them; requests carry only data
+    private final String documentSystem;
+    
+    private final String narrativeSystem;
+    
+    private final String summarySystem;
+    
+    private final String validationSystem;
+    
+    private final String lineReasonsSystem;
+    
+    // Offline batch records have no tools, so they always carry the format instructions
+    private final String documentBatchSystem;
+    
+    private final String narrativeBatchSystem;
+    
+    private final StructuredOutputMode structuredOutput;
+    
+    private final StructuredOutputParser outputParser;
+    
+    // Memos crediting at least this many line items are generated in chunks; 0 when off
+    private final int chunkMinItems;
+    
+    private final ChunkSizer chunkSizer;
+    
+    private final Duration documentTimeout;
+    
+    private final Duration summaryTimeout;
+    
+    private final SummaryMode summaryMode;
+    
+    private final GenerationMode generationMode;
+    
+    private final Map<CreditMemoRequest.RequesterType, GenerationMode> generationModes;
+    
+    private final ResponseCache<CreditMemoResponse> responseCache;
+    
+    private final ResponseCache<String> summaryCache;
+    
+    private final ResponseCache<ValidationResult> validationCache;
+    
+    private final ValidationRulesEngine rulesEngine;
+    
+    private final TokenUsageMeter tokenUsageMeter;
+    
+    private final CreditMemoPrompts prompts;
+    
+    private final RequesterRateLimiter rateLimiter;
+    
+    private final ModelRouter modelRouter;
+    
+    public CreditMemoService(@NonNull @Qualifier("documentChatClient") ChatClient documentChatClient,
+                             @NonNull @Qualifier("summaryChatClient") ChatClient summaryChatClient,
+                             @NonNull @Qualifier("validationChatClient") ChatClient validationChatClient,
+                             @NonNull @Qualifier("creditMemoExecutor") ExecutorService executor,
+                             @NonNull CreditMemoProperties properties,
+                             @NonNull ResponseCacheFactory cacheFactory,
+                             @NonNull ValidationRulesEngine rulesEngine,
+                             @NonNull TokenUsageMeter tokenUsageMeter,
+                             @NonNull CreditMemoPrompts prompts,
+                             @NonNull RequesterRateLimiter rateLimiter,
+                             @NonNull ModelRouter modelRouter,
+                             @NonNull StructuredOutputParser outputParser) {
+        Objects.requireNonNull(properties, "CreditMemoProperties must not be null");
+        Objects.requireNonNull(cacheFactory, "ResponseCacheFactory must not be null");
+        this.chatClients = Map.of(
+            "document", Objects.requireNonNull(documentChatClient, "Document ChatClient must not be null"),
+            "summary", Objects.requireNonNull(summaryChatClient, "Summary ChatClient must not be null"),
+            "validation", Objects.requireNonNull(validationChatClient, "Validation ChatClient must not be null"));
+        CreditMemoProperties.Clients clients = properties.clients();
+        this.clientOptions = Map.of(
+            "document", clients.document(),
+            "summary", clients.summary(),
+            "validation", clients.validation());
+        this.executor = Objects.requireNonNull(executor, "ExecutorService must not be null");
+        this.scheduler = Schedulers.fromExecutorService(executor);
+        this.documentTimeout = properties.generation().documentTimeout();
+        this.summaryTimeout = properties.generation().summaryTimeout();
+        this.summaryMode = properties.summary().mode();
+        this.generationMode = properties.generation().mode();
+        this.generationModes = Map.copyOf(properties.generation().modes());
+        this.rulesEngine = Objects.requireNonNull(rulesEngine, "ValidationRulesEngine must not be null");
+        this.tokenUsageMeter = Objects.requireNonNull(tokenUsageMeter, "TokenUsageMeter must not be null");
+        this.prompts = Objects.requireNonNull(prompts, "CreditMemoPrompts must not be null");
+        this.rateLimiter = Objects.requireNonNull(rateLimiter, "RequesterRateLimiter must not be null");
+        this.modelRouter = Objects.requireNonNull(modelRouter, "ModelRouter must not be null");
+        this.outputParser = Objects.requireNonNull(outputParser, "StructuredOutputParser must not be null");
+        this.structuredOutput = properties.generation().structuredOutput();
+        boolean tools = structuredOutput == StructuredOutputMode.TOOL;
+        this.documentTool = tools
+            ? new OutputTool("submit_credit_memo", "Submit the credit memo document", documentConverter.getJsonSchema())
+            : null;
+        this.narrativeTool = tools
+            ? new OutputTool("submit_narrative", "Submit the credit memo narrative fields", narrativeConverter.getJsonSchema())
+            : null;
+        this.validationTool = tools
+            ? new OutputTool("submit_validation", "Submit the validation result", validationConverter.getJsonSchema())
+            : null;
+        this.lineReasonsTool = tools
+            ? new OutputTool("submit_line_reasons", "Submit the credit reasons of the listed line items",
+                             lineReasonsConverter.getJsonSchema())
+            : null;
+        this.documentBatchSystem = systemPrompt(prompts.documentInstructions(), documentConverter, null);
+        this.narrativeBatchSystem = systemPrompt(prompts.narrativeInstructions(), narrativeConverter, null);
+        this.documentSystem = tools
+            ? systemPrompt(prompts.documentInstructions(), documentConverter, documentTool)
+            : documentBatchSystem;
+        this.narrativeSystem = tools
+            ? systemPrompt(prompts.narrativeInstructions(), narrativeConverter, narrativeTool)
+            : narrativeBatchSystem;
+        this.summarySystem = prompts.summaryInstructions();
+        this.validationSystem = systemPrompt(prompts.validationInstructions(), validationConverter, validationTool);
+        this.lineReasonsSystem = systemPrompt(prompts.lineReasonsInstructions(), lineReasonsConverter, lineReasonsTool);
+        this.chunkMinItems = properties.generation().chunking().minItems();
+        this.chunkSizer = new ChunkSizer(properties.generation().chunking());
+        
+        CreditMemoProperties.Cache cache = properties.cache();
+        this.responseCache = cacheFactory.create("creditmemo.responses", CreditMemoResponse.class,
+            cache.generation().ttl(), cache.generation().maxSize());
+        this.summaryCache = cacheFactory.create("creditmemo.summaries", String.class,
+            cache.summary().ttl(), cache.summary().maxSize());
+        this.validationCache = cacheFactory.create("creditmemo.validations", ValidationResult.class,
+            cache.validation().ttl(), cache.validation().maxSize());
+        logger.info("CreditMemoService initialized with per-call ChatClients, generation mode {} {}, summary mode {}, "
+                    + "structured output {}", generationMode, generationModes, summaryMode, structuredOutput);
     }
     
     /**
      * Generate a credit memo based on the provided request
      */
     public CreditMemoResponse generateCreditMemo(@NonNull CreditMemoRequest request) {
+        return generateCreditMemo(request, true);
+    }
+    
+    /**
+     * Generate a credit memo, optionally without the summary regardless of the configured mode.
+     * Identical requests within the cache TTL replay the first response, memo number included.
+     */
+    public CreditMemoResponse generateCreditMemo(@NonNull CreditMemoRequest request, boolean includeSummary) {
         Objects.requireNonNull(request, "CreditMemoRequest must not be null");
         
-        logger.info("Generating credit memo for customer: {}, requester type: {}", 
+        GenerationMode generation = generationModeFor(request);
+        SummaryMode mode = summaryModeFor(generation, includeSummary);
+        String cacheKey = RequestFingerprint.of(request) + ":" + mode;
+        
+        Optional<CreditMemoResponse> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            logger.info("Returning cached credit memo {} for customer: {}", 
+                        cached.get().creditMemoNumber(), 
+                        request.customer().customerId());
+            return cached.get();
+        }
+        
+        CreditMemoResponse response = generate(request, generation, mode);
+        responseCache.put(cacheKey, response);
+        return response;
+    }
+    
+    @NonNull
+    private CreditMemoResponse generate(@NonNull CreditMemoRequest request, @NonNull GenerationMode generation,
+                                        @NonNull SummaryMode mode) {
+        logger.info("Generating credit memo for customer: {}, requester type: {}, mode: {}", 
                     request.customer().customerId(), 
-                    request.requester().requesterType());
+                    request.requester().requesterType(),
+                    generation);
         
         long startTime = System.currentTimeMillis();
         
+        // The summary prompt only needs request fields, so both model calls run side by side
+        AtomicReference<TokenUsage> usage = new AtomicReference<>(TokenUsage.NONE);
+        Future<CreditMemoDocument> documentFuture = generation == GenerationMode.DETERMINISTIC
+            ? CompletableFuture.completedFuture(DocumentTemplates.build(request))
+            : executor.submit(() -> generateDocument(request, generation, "generate", usage));
+        Future<String> summaryFuture = mode == SummaryMode.LLM
+            ? executor.submit(() -> generateLlmSummary(request, "generate", usage))
+            : CompletableFuture.completedFuture(mode == SummaryMode.TEMPLATE ? SummaryTemplates.render(request) : null);
+        
         try {
-            // Build the prompt for credit memo generation
-            String prompt = buildCreditMemoPrompt(request);
-            Objects.requireNonNull(prompt, "Generated prompt must not be null");
-            
-            // Call Bedrock via Spring AI
-            CreditMemoDocument document = chatClient.prompt()
-                .user(prompt)
-                .call()
-                .entity(CreditMemoDocument.class);
-            
+            CreditMemoDocument document = documentFuture.get(documentTimeout.toMillis(), TimeUnit.MILLISECONDS);
             Objects.requireNonNull(document, "AI failed to generate credit memo document");
             
+            String summary = awaitSummary(request, mode, summaryFuture, startTime);
+            
             long processingTime = System.currentTimeMillis() - startTime;
             
             // Build response
-            return buildResponse(request, document, processingTime);
-            
+            return buildResponse(request, document, summary, processingTime, usage.get(), modelFor(generation, request));
+        
+        } catch (TimeoutException e) {
+            documentFuture.cancel(true);
+            summaryFuture.cancel(true);
+            logger.error("Credit memo document generation timed out after {}", documentTimeout);
+            throw new CreditMemoGenerationException("Failed to generate credit memo: timed out after " + documentTimeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            documentFuture.cancel(true);
+            summaryFuture.cancel(true);
+            throw new CreditMemoGenerationException("Failed to generate credit memo: interrupted", e);
         } catch (Exception e) {
-            logger.error("Error generating credit memo", e);
-            throw new CreditMemoGenerationException("Failed to generate credit memo: " + e.getMessage(), e);
+            summaryFuture.cancel(true);
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ModelCapacityExceededException capacity) {
+                // Not a generation failure: the caller should back off and retry
+                logger.warn("Credit memo not generated: {}", capacity.getMessage());
+                throw capacity;
+            }
+            logger.error("Error generating credit memo", cause);
+            throw new CreditMemoGenerationException("Failed to generate credit memo: " + cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * Generate a credit memo as a stream of events: accepted, document tokens as they arrive,
+     * the parsed document, the summary, and finally the complete response
+     */
+    public Flux<CreditMemoStreamEvent> streamCreditMemo(@NonNull CreditMemoRequest request, boolean includeSummary) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        
+        return Flux.defer(() -> {
+            logger.info("Streaming credit memo for customer: {}, requester type: {}", 
+                        request.customer().customerId(), 
+                        request.requester().requesterType());
+            
+            long startTime = System.currentTimeMillis();
+            GenerationMode generation = generationModeFor(request);
+            SummaryMode mode = summaryModeFor(generation, includeSummary);
+            AtomicReference<TokenUsage> usage = new AtomicReference<>(TokenUsage.NONE);
+            Future<String> summaryFuture = mode == SummaryMode.LLM
+                ? executor.submit(() -> generateLlmSummary(request, "stream", usage))
+                : CompletableFuture.completedFuture(mode == SummaryMode.TEMPLATE ? SummaryTemplates.render(request) : null);
+            
+            Flux<CreditMemoStreamEvent> tokens;
+            Callable<CreditMemoDocument> documentSource;
+            if (generation == GenerationMode.DETERMINISTIC) {
+                tokens = Flux.empty();
+                documentSource = () -> DocumentTemplates.build(request);
+            } else if (isChunked(request)) {
+                // Chunks are written in parallel, so there is no one token stream to relay
+                tokens = Flux.empty();
+                documentSource = () -> generateChunked(request, "stream", usage);
+            } else {
+                // In hybrid mode the tokens are the narrative, merged into the locally built document
+                CreditMemoDocument built = generation == GenerationMode.HYBRID ? DocumentTemplates.build(request) : null;
+                String prompt = built != null ? prompts.narrative(request, built) : prompts.document(request);
+                StringBuilder output = new StringBuilder(built != null ? 1024 : 4096);
+                // Usage arrives on a late chunk, cumulative for the whole response
+                AtomicReference<ChatResponse> usageChunk = new AtomicReference<>();
+                // In TOOL mode the answer arrives whole, as the input of a tool call on a late chunk
+                OutputTool tool = built != null ? narrativeTool : documentTool;
+                AtomicReference<String> toolInput = new AtomicReference<>();
+                
+                tokens = prompt(request, "document", built != null ? "narrative" : "document", tool)
+                    .system(built != null ? narrativeSystem : documentSystem)
+                    .user(prompt)
+                    .stream()
+                    .chatResponse()
+                    .doOnNext(chunk -> {
+                        if (!TokenUsage.of(chunk).isEmpty()) {
+                            usageChunk.set(chunk);
+                        }
+                        String input = toolInputOf(chunk, tool);
+                        if (input != null) {
+                            toolInput.set(input);
+                        }
+                    })
+                    .mapNotNull(CreditMemoService::textOf)
+                    .filter(text -> !text.isEmpty())
+                    .doOnNext(output::append)
+                    .map(CreditMemoStreamEvent::token)
+                    .timeout(documentTimeout);
+                documentSource = () -> {
+                    recordUsage("stream", "document", request, usageChunk.get(), usage);
+                    String answer = toolInput.get() != null ? toolInput.get() : output.toString();
+                    return built != null
+                        ? DocumentTemplates.withNarrative(built, parseNarrative(answer))
+                        : documentOf(request, answer, "stream", usage);
+                };
+            }
+            
+            // Parsing and waiting on the summary block, so they run on the model-call executor
+            Flux<CreditMemoStreamEvent> tail = Mono.fromCallable(() -> {
+                    CreditMemoDocument document = documentSource.call();
+                    String summary = awaitSummary(request, mode, summaryFuture, startTime);
+                    long processingTime = System.currentTimeMillis() - startTime;
+                    CreditMemoResponse response = buildResponse(request, document, summary, processingTime, usage.get(),
+                                                                modelFor(generation, request));
+                    return summary != null
+                        ? List.of(CreditMemoStreamEvent.document(document), CreditMemoStreamEvent.summary(summary),
+                                  CreditMemoStreamEvent.complete(response))
+                        : List.of(CreditMemoStreamEvent.document(document), CreditMemoStreamEvent.complete(response));
+                })
+                .subscribeOn(scheduler)
+                .flatMapIterable(events -> events);
+            
+            return Flux.concat(
+                    Flux.just(CreditMemoStreamEvent.accepted(new CreditMemoStreamEvent.Accepted(
+                        request.customer().customerId(),
+                        request.originalTransaction().invoiceNumber(),
+                        request.requester().requesterType().name()))),
+                    tokens,
+                    tail)
+                .doOnCancel(() -> summaryFuture.cancel(true))
+                .onErrorMap(e -> !(e instanceof CreditMemoGenerationException)
+                                 && !(e instanceof ModelCapacityExceededException), e -> {
+                    summaryFuture.cancel(true);
+                    logger.error("Error streaming credit memo", e);
+                    return new CreditMemoGenerationException("Failed to generate credit memo: " + e.getMessage(), e);
+                });
+        });
+    }
+    
+    @NonNull
+    private CreditMemoDocument generateDocument(@NonNull CreditMemoRequest request, @NonNull GenerationMode generation,
+                                                @NonNull String endpoint, @NonNull AtomicReference<TokenUsage> usage) {
+        if (generation != GenerationMode.DETERMINISTIC && isChunked(request)) {
+            return generateChunked(request, endpoint, usage);
+        }
+        return switch (generation) {
+            case DETERMINISTIC -> DocumentTemplates.build(request);
+            case HYBRID -> generateNarrative(request, endpoint, usage);
+            case LLM -> generateLlmDocument(request, endpoint, usage);
+        };
+    }
+    
+    @NonNull
+    private CreditMemoDocument generateLlmDocument(@NonNull CreditMemoRequest request, @NonNull String endpoint,
+                                                   @NonNull AtomicReference<TokenUsage> usage) {
+        return documentOf(request, callDocument(request, endpoint, usage), endpoint, usage);
+    }
+    
+    private String callDocument(@NonNull CreditMemoRequest request, @NonNull String endpoint,
+                                @NonNull AtomicReference<TokenUsage> usage) {
+        // Build the prompt for credit memo generation
+        String prompt = prompts.document(request);
+        Objects.requireNonNull(prompt, "Generated prompt must not be null");
+        
+        // Call Bedrock via Spring AI; the JSON format is part of the cached system prompt
+        ChatResponse response = prompt(request, "document", "document", documentTool)
+            .system(documentSystem)
+            .user(prompt)
+            .call()
+            .chatResponse();
+        recordUsage(endpoint, "document", request, response, usage);
+        
+        return outputOf(response, documentTool);
+    }
+    
+    /**
+     * Document from the model's answer in {@code LLM} mode. An answer that does not parse, most
+     * often one cut off by the token limit, is salvaged when it holds any of the document; only
+     * an answer with nothing to salvage is generated again, once.
+     */
+    @NonNull
+    private CreditMemoDocument documentOf(@NonNull CreditMemoRequest request, String output,
+                                          @NonNull String endpoint, @NonNull AtomicReference<TokenUsage> usage) {
+        try {
+            return parseOrSalvageDocument(request, output, endpoint, usage);
+        } catch (InvalidModelOutputException e) {
+            outputParser.retried("document");
+            logger.warn("Nothing to salvage from the document output ({}), generating it again", e.getMessage());
+            return parseOrSalvageDocument(request, callDocument(request, endpoint, usage), endpoint, usage);
+        }
+    }
+    
+    @NonNull
+    private CreditMemoDocument parseOrSalvageDocument(@NonNull CreditMemoRequest request, String output,
+                                                      @NonNull String endpoint,
+                                                      @NonNull AtomicReference<TokenUsage> usage) {
+        try {
+            return parseDocument(output);
+        } catch (InvalidModelOutputException e) {
+            CreditMemoDocument partial = outputParser.salvage("document", CreditMemoDocument.class, output);
+            if (partial == null) {
+                throw e;
+            }
+            return completeDocument(request, partial, endpoint, usage);
+        }
+    }
+    
+    /**
+     * Finish a truncated document: everything the request determines (parties, invoice, credit
+     * lines, financial summary, terms) is built locally, the model's narrative is kept as far as
+     * it arrived, and continuation calls write only what is still missing
+     */
+    @NonNull
+    private CreditMemoDocument completeDocument(@NonNull CreditMemoRequest request, @NonNull CreditMemoDocument partial,
+                                                @NonNull String endpoint, @NonNull AtomicReference<TokenUsage> usage) {
+        CreditMemoDocument built = DocumentTemplates.build(request);
+        CreditMemoNarrative narrative = DocumentTemplates.narrativeOf(partial);
+        boolean continued = !DocumentTemplates.isComplete(narrative, built);
+        if (continued) {
+            narrative = DocumentTemplates.orElse(narrative, continueNarrative(request, built, narrative, endpoint, usage));
+        }
+        logger.warn("Salvaged a truncated credit memo document for customer: {}{}",
+                    request.customer().customerId(), continued ? ", narrative completed by continuation calls" : "");
+        return DocumentTemplates.withNarrative(built, narrative);
+    }
+    
+    /**
+     * The pieces a salvaged narrative lacks: reasons for the lines without one, written in chunks
+     * like a chunked memo's, and the explanation and notes from a narrative call only when one of
+     * them is missing. A continuation whose answer cannot be read leaves its pieces to the
+     * template text rather than generating the document again.
+     */
+    @NonNull
+    private CreditMemoNarrative continueNarrative(@NonNull CreditMemoRequest request, @NonNull CreditMemoDocument built,
+                                                  @NonNull CreditMemoNarrative narrative, @NonNull String endpoint,
+                                                  @NonNull AtomicReference<TokenUsage> usage) {
+        List<CreditMemoDocument.CreditLineItem> lines = built.creditLineItems();
+        List<String> reasons = narrative.lineItemReasons() != null ? narrative.lineItemReasons() : List.of();
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (i >= reasons.size() || !StringUtils.hasText(reasons.get(i))) {
+                missing.add(i);
+            }
+        }
+        
+        List<String> written = new ArrayList<>(Collections.nCopies(lines.size(), (String) null));
+        int size = chunkSizer.size();
+        for (int from = 0; from < missing.size(); from += size) {
+            List<Integer> chunk = missing.subList(from, Math.min(missing.size(), from + size));
+            try {
+                List<String> chunkReasons = callLineReasons(request, chunk.stream().map(lines::get).toList(), endpoint, usage);
+                for (int i = 0; i < Math.min(chunk.size(), chunkReasons.size()); i++) {
+                    written.set(chunk.get(i), chunkReasons.get(i));
+                }
+            } catch (InvalidModelOutputException e) {
+                logger.warn("Continuation for {} line item reasons unreadable ({}), keeping template text",
+                            chunk.size(), e.getMessage());
+            }
+        }
+        
+        boolean notesMissing = StringUtils.hasText(built.notes()) && !StringUtils.hasText(narrative.notes());
+        if (!StringUtils.hasText(narrative.detailedExplanation()) || notesMissing) {
+            try {
+                CreditMemoNarrative rest = callNarrative(request,
+                    prompts.narrative(request, built, NARRATIVE_LISTED_ITEMS), endpoint, usage);
+                return new CreditMemoNarrative(rest.detailedExplanation(), written, rest.notes());
+            } catch (InvalidModelOutputException e) {
+                logger.warn("Continuation for the explanation and notes unreadable ({}), keeping template text",
+                            e.getMessage());
+            }
+        }
+        return new CreditMemoNarrative(null, written, null);
+    }
+    
+    /**
+     * Build the document locally and have the model write only its explanation, line-item
+     * reasons and notes
+     */
+    @NonNull
+    private CreditMemoDocument generateNarrative(@NonNull CreditMemoRequest request, @NonNull String endpoint,
+                                                 @NonNull AtomicReference<TokenUsage> usage) {
+        CreditMemoDocument document = DocumentTemplates.build(request);
+        return DocumentTemplates.withNarrative(document,
+            callNarrative(request, prompts.narrative(request, document), endpoint, usage));
+    }
+    
+    @NonNull
+    private CreditMemoNarrative callNarrative(@NonNull CreditMemoRequest request, @NonNull String userPrompt,
+                                              @NonNull String endpoint, @NonNull AtomicReference<TokenUsage> usage) {
+        ChatResponse response = prompt(request, "document", "narrative", narrativeTool)
+            .system(narrativeSystem)
+            .user(userPrompt)
+            .call()
+            .chatResponse();
+        recordUsage(endpoint, "document", request, response, usage);
+        
+        return parseNarrative(outputOf(response, narrativeTool));
+    }
+    
+    private boolean isChunked(@NonNull CreditMemoRequest request) {
+        return chunkMinItems > 0 && DocumentTemplates.creditedItemCount(request) >= chunkMinItems;
+    }
+    
+    /**
+     * Build the document locally and have the model write its line item reasons in parallel
+     * chunk calls, alongside one narrative call for the explanation and notes that lists only the
+     * first items. No call sees the whole item list, and totals are the locally built ones.
+     */
+    @NonNull
+    private CreditMemoDocument generateChunked(@NonNull CreditMemoRequest request, @NonNull String endpoint,
+                                               @NonNull AtomicReference<TokenUsage> usage) {
+        CreditMemoDocument document = DocumentTemplates.build(request);
+        List<CreditMemoDocument.CreditLineItem> lines = document.creditLineItems();
+        int size = chunkSizer.size();
+        logger.info("Writing reasons for {} line items in chunks of {} for customer: {}",
+                    lines.size(), size, request.customer().customerId());
+        
+        long deadline = System.nanoTime() + documentTimeout.toNanos();
+        String narrativePrompt = prompts.narrative(request, document, NARRATIVE_LISTED_ITEMS);
+        Future<CreditMemoNarrative> narrativeFuture =
+            executor.submit(() -> callNarrative(request, narrativePrompt, endpoint, usage));
+        List<Future<List<String>>> chunkFutures = new ArrayList<>();
+        for (int from = 0; from < lines.size(); from += size) {
+            List<CreditMemoDocument.CreditLineItem> chunk = lines.subList(from, Math.min(lines.size(), from + size));
+            chunkFutures.add(executor.submit(() -> callLineReasons(request, chunk, endpoint, usage)));
+        }
+        
+        try {
+            // Each chunk's reasons take exactly its items' places, however many the model wrote
+            List<String> reasons = new ArrayList<>(lines.size());
+            for (int i = 0; i < chunkFutures.size(); i++) {
+                List<String> chunkReasons = await(chunkFutures.get(i), deadline);
+                int chunkSize = Math.min(size, lines.size() - i * size);
+                for (int j = 0; j < chunkSize; j++) {
+                    reasons.add(j < chunkReasons.size() ? chunkReasons.get(j) : null);
+                }
+            }
+            CreditMemoNarrative narrative = await(narrativeFuture, deadline);
+            return DocumentTemplates.withNarrative(document,
+                new CreditMemoNarrative(narrative.detailedExplanation(), reasons, narrative.notes()));
+        } finally {
+            // Stops the remaining calls once one has failed; completed ones are unaffected
+            narrativeFuture.cancel(true);
+            chunkFutures.forEach(future -> future.cancel(true));
+        }
+    }
+    
+    @NonNull
+    private List<String> callLineReasons(@NonNull CreditMemoRequest request,
+                                         @NonNull List<CreditMemoDocument.CreditLineItem> chunk,
+                                         @NonNull String endpoint, @NonNull AtomicReference<TokenUsage> usage) {
+        ChatResponse response = prompt(request, "document", "line-reasons", lineReasonsTool)
+            .system(lineReasonsSystem)
+            .user(prompts.lineReasons(request, chunk))
+            .call()
+            .chatResponse();
+        recordUsage(endpoint, "document", request, response, usage);
+        
+        String output = outputOf(response, lineReasonsTool);
+        CreditMemoLineReasons reasons;
+        boolean complete = !hitTokenLimit(response);
+        try {
+            reasons = outputParser.parse("line-reasons", CreditMemoLineReasons.class, output);
+        } catch (InvalidModelOutputException e) {
+            // A chunk cut off by the token limit keeps the reasons that arrived; the rest keep their template text
+            reasons = outputParser.salvage("line-reasons", CreditMemoLineReasons.class, output);
+            if (reasons == null) {
+                throw e;
+            }
+            complete = false;
+        }
+        // A cut-off chunk's output tokens stop at the limit and would understate the tokens per item
+        if (complete) {
+            chunkSizer.record(chunk.size(), TokenUsage.of(response).outputTokens());
+        }
+        return reasons.lineItemReasons() != null ? reasons.lineItemReasons() : List.of();
+    }
+    
+    private static boolean hitTokenLimit(ChatResponse response) {
+        return response != null && response.getResult() != null && response.getResult().getMetadata() != null
+               && MAX_TOKENS_FINISH_REASON.equalsIgnoreCase(response.getResult().getMetadata().getFinishReason());
+    }
+    
+    private static <T> T await(@NonNull Future<T> future, long deadline) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new CreditMemoGenerationException("Line item chunks did not complete in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CreditMemoGenerationException("Interrupted waiting for line item chunks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CreditMemoGenerationException(e.getCause().getMessage(), e.getCause());
         }
     }
     
+    /**
+     * Wait for the summary within its own deadline; a failed or late summary degrades
+     * to a locally built one rather than failing the whole memo
+     */
+    private String awaitSummary(@NonNull CreditMemoRequest request, @NonNull SummaryMode mode,
+                                @NonNull Future<String> summaryFuture, long startTime) {
+        if (mode != SummaryMode.LLM) {
+            // Locally produced: a template render, or no summary at all
+            return summaryFuture.resultNow();
+        }
+        long remainingMs = summaryTimeout.toMillis() - (System.currentTimeMillis() - startTime);
+        try {
+            String summary = summaryFuture.get(Math.max(remainingMs, 0), TimeUnit.MILLISECONDS);
+            if (summary != null && !summary.isBlank()) {
+                return summary;
+            }
+            logger.warn("Summary generation returned no content, using degraded summary");
+        } catch (TimeoutException e) {
+            summaryFuture.cancel(true);
+            logger.warn("Summary generation timed out after {}, using degraded summary", summaryTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            summaryFuture.cancel(true);
+        } catch (ExecutionException e) {
+            logger.warn("Summary generation failed, using degraded summary: {}", e.getCause().getMessage());
+        }
+        return SummaryTemplates.render(request);
+    }
+    
     /**
      * Generate a summary of the credit memo without full document
      */
     public String generateCreditMemoSummary(@NonNull CreditMemoRequest request) {
         Objects.requireNonNull(request, "CreditMemoRequest must not be null");
         
+        if (summaryMode == SummaryMode.TEMPLATE) {
+            return SummaryTemplates.render(request);
+        }
+        
+        String cacheKey = RequestFingerprint.of(request);
+        Optional<String> cached = summaryCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
+        String summary = generateLlmSummary(request, "summary", new AtomicReference<>(TokenUsage.NONE));
+        if (summary != null) {
+            summaryCache.put(cacheKey, summary);
+        }
+        return summary;
+    }
+    
+    private String generateLlmSummary(@NonNull CreditMemoRequest request, @NonNull String endpoint,
+                                      @NonNull AtomicReference<TokenUsage> usage) {
         logger.info("Generating credit memo summary for customer: {}", 
                     request.customer().customerId());
         
-        String summaryPrompt = buildSummaryPrompt(request);
+        String summaryPrompt = prompts.summary(request);
         Objects.requireNonNull(summaryPrompt, "Summary prompt must not be null");
         
-        return chatClient.prompt()
+        ChatResponse response = prompt(request, "summary", "summary", null)
+            .system(summarySystem)
             .user(summaryPrompt)
             .call()
-            .content();
+            .chatResponse();
+        recordUsage(endpoint, "summary", request, response, usage);
+        return textOf(response);
     }
     
     /**
@@ -95,377 +743,221 @@ public class CreditMemoService {
     public ValidationResult validateCreditMemoRequest(@NonNull CreditMemoRequest request) {
         Objects.requireNonNull(request, "CreditMemoRequest must not be null");
         
-        String validationPrompt = buildValidationPrompt(request);
+        // Clear-cut requests are answered by the local rules without a model call
+        RulesVerdict verdict = rulesEngine.evaluate(request);
+        switch (verdict.decision()) {
+            case REJECT -> {
+                List<String> issues = new ArrayList<>(verdict.failures());
+                issues.addAll(verdict.reviews());
+                return new ValidationResult(false, issues, List.of(), "HIGH");
+            }
+            case ACCEPT -> {
+                return new ValidationResult(true, List.of(), List.of(), "LOW");
+            }
+            case ESCALATE -> logger.debug("Escalating validation to the model: {}", verdict.reviews());
+        }
+        
+        String cacheKey = RequestFingerprint.of(request);
+        Optional<ValidationResult> cached = validationCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
+        String validationPrompt = prompts.validation(request, verdict.reviews());
         Objects.requireNonNull(validationPrompt, "Validation prompt must not be null");
         
-        return chatClient.prompt()
+        ChatResponse response = prompt(request, "validation", "validation", validationTool)
+            .system(validationSystem)
             .user(validationPrompt)
             .call()
-            .entity(ValidationResult.class);
+            .chatResponse();
+        recordUsage("validate", "validation", request, response, new AtomicReference<>(TokenUsage.NONE));
+        ValidationResult result = outputParser.parse("validation", ValidationResult.class,
+                                                     outputOf(response, validationTool));
+        if (result != null) {
+            validationCache.put(cacheKey, result);
+        }
+        return result;
     }
     
+    /**
+     * {@code creditmemo.generation.modes} entry for the requester type, else {@code creditmemo.generation.mode}
+     */
     @NonNull
-    @SuppressWarnings("null")
-    private String buildCreditMemoPrompt(@NonNull CreditMemoRequest request) {
-        // Determine issuer and context based on requester type
-        boolean isBankIssued = (request.requester().requesterType() == CreditMemoRequest.RequesterType.BANK_COLLEAGUE);
-        
-        // For bank colleague: Bank is issuer, customer is recipient
-        // For business customer: Business customer (from issuer field) is issuer, customer is recipient
-        String issuerName;
-        String issuerAddress;
-        String issuerEmail;
-        String issuerPhone;
-        String issuerAccountNumber;
-        
-        if (isBankIssued) {
-            // Bank is the issuer
-            issuerName = "UK Business Bank PLC";
-            issuerAddress = "1 Bank Street, London, EC2R 8AH, United Kingdom";
-            issuerEmail = "customerservice@ukbusinessbank.com";
-            issuerPhone = "0800-123-4567";
-            issuerAccountNumber = "N/A (Bank)";
-        } else {
-            // Business customer is the issuer - use issuer field if provided, otherwise derive from context
-            if (request.issuer() != null && request.issuer().companyName() != null) {
-                issuerName = request.issuer().companyName();
-                issuerAddress = request.issuer().address() != null 
-                    ? String.format("%s, %s, %s %s, %s",
-                        request.issuer().address().street(),
-                        request.issuer().address().city(),
-                        request.issuer().address().state(),
-                        request.issuer().address().zipCode(),
-                        request.issuer().address().country())
-                    : "N/A";
-                issuerEmail = request.issuer().email() != null ? request.issuer().email() : "N/A";
-                issuerPhone = request.issuer().phone() != null ? request.issuer().phone() : "N/A";
-                issuerAccountNumber = request.issuer().accountNumber() != null ? request.issuer().accountNumber() : "N/A";
-            } else {
-                // Fallback: extract from requester email domain
-                issuerName = "Business Customer";
-                issuerAddress = "N/A";
-                issuerEmail = request.requester().email();
-                issuerPhone = "N/A";
-                issuerAccountNumber = "N/A";
-            }
+    private GenerationMode generationModeFor(@NonNull CreditMemoRequest request) {
+        return generationModes.getOrDefault(request.requester().requesterType(), generationMode);
+    }
+    
+    /**
+     * A memo built without the model gets a template summary rather than waiting on one
+     */
+    @NonNull
+    private SummaryMode summaryModeFor(@NonNull GenerationMode generation, boolean includeSummary) {
+        if (!includeSummary) {
+            return SummaryMode.NONE;
         }
-        
-        String contextNote = switch (request.requester().requesterType()) {
-            case BUSINESS_CUSTOMER -> "This credit memo is issued by a business banking customer (" + issuerName + ") for their own customer. The business customer is a client of UK Business Bank PLC.";
-            case BANK_COLLEAGUE -> "This credit memo is issued by UK Business Bank PLC to correct an incorrect fee charge or banking error for their business customer.";
-            case SYSTEM_AUTOMATED -> "This credit memo is system-generated for automated processing.";
-            case CUSTOMER_SERVICE -> "This credit memo is issued by customer service on behalf of the customer.";
-        };
-        
-        // Build detailed line items information
-        StringBuilder lineItemsDetail = new StringBuilder();
-        if (request.originalTransaction().lineItems() != null && !request.originalTransaction().lineItems().isEmpty()) {
-            request.originalTransaction().lineItems().forEach(item -> {
-                lineItemsDetail.append(String.format("\n  - Item: %s | Description: %s | Qty: %d | Unit Price: £%.2f | Total: £%.2f",
-                    item.itemId(),
-                    item.description(),
-                    item.quantity(),
-                    item.unitPrice(),
-                    item.totalPrice()));
-            });
+        return generation == GenerationMode.DETERMINISTIC && summaryMode == SummaryMode.LLM
+            ? SummaryMode.TEMPLATE
+            : summaryMode;
+    }
+    
+    @NonNull
+    private String modelFor(@NonNull GenerationMode generation, @NonNull CreditMemoRequest request) {
+        return generation == GenerationMode.DETERMINISTIC
+            ? DocumentTemplates.MODEL
+            : modelRouter.modelFor("document", request);
+    }
+    
+    /**
+     * Publish a call's token usage and add it to the request's running total
+     */
+    private void recordUsage(@NonNull String endpoint, @NonNull String call, @NonNull CreditMemoRequest request,
+                             ChatResponse response, @NonNull AtomicReference<TokenUsage> usage) {
+        TokenUsage callUsage = TokenUsage.of(response);
+        // Bedrock does not echo the model, so the routed one is what was used
+        String model = response != null && response.getMetadata() != null
+                       && StringUtils.hasText(response.getMetadata().getModel())
+            ? response.getMetadata().getModel()
+            : modelRouter.modelFor(call, request);
+        tokenUsageMeter.record(endpoint, call, request, model, callUsage);
+        rateLimiter.recordTokens(request.requester().requesterType(), callUsage.totalTokens());
+        usage.accumulateAndGet(callUsage, TokenUsage::plus);
+    }
+    
+    /**
+     * Start a model call on the call type's client and the model routed for it, on behalf of the
+     * request's requester so the concurrency limiter can queue it by priority, and name the call
+     * type for its bulkhead
+     * @param output what the call writes, so its latency is only compared with calls like it
+     * @param tool answer tool to offer, or null to take the answer as text
+     */
+    private ChatClient.ChatClientRequestSpec prompt(@NonNull CreditMemoRequest request, @NonNull String call,
+                                                    @NonNull String output, OutputTool tool) {
+        ToolCallingChatOptions.Builder options = SpringAiConfig.options(clientOptions.get(call))
+            .model(modelRouter.modelFor(call, request));
+        if (tool != null) {
+            options.toolCallbacks(tool).internalToolExecutionEnabled(false);
         }
-        
-        // Calculate tax (20% UK VAT)
-        BigDecimal creditAmount = request.creditDetails().creditAmount();
-        BigDecimal taxRate = new BigDecimal("0.20");
-        BigDecimal subtotal = creditAmount.divide(BigDecimal.ONE.add(taxRate), 2, java.math.RoundingMode.HALF_UP);
-        BigDecimal taxAmount = creditAmount.subtract(subtotal);
-        
-        // Determine credit type
-        String creditType = creditAmount.compareTo(request.originalTransaction().originalAmount()) >= 0 ? "FULL" : "PARTIAL";
-        
-        // Generate unique credit memo number
-        String creditMemoNumber = String.format("CM-%s-%s", 
-            LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyy")),
-            UUID.randomUUID().toString().substring(0, 8).toUpperCase());
-        
-        // Build bank details section if provided
-        String bankDetailsSection = "";
-        if (request.customer().bankDetails() != null) {
-            CreditMemoRequest.BankDetails bd = request.customer().bankDetails();
-            bankDetailsSection = String.format("""
-                Bank Details (Recipient banks with different institution):
-                  Bank Name: %s
-                  Bank Branch: %s
-                  Sort Code: %s
-                  SWIFT/BIC: %s
-                  Account Holder: %s""",
-                bd.bankName() != null ? bd.bankName() : "N/A",
-                bd.bankBranch() != null ? bd.bankBranch() : "N/A",
-                bd.sortCode() != null ? bd.sortCode() : "N/A",
-                bd.swiftCode() != null ? bd.swiftCode() : "N/A",
-                bd.accountHolderName() != null ? bd.accountHolderName() : "N/A"
-            );
+        return chatClients.get(call).prompt()
+            .options(options.build())
+            .advisors(advisor -> advisor
+                .param(ModelConcurrencyLimiter.REQUESTER_TYPE, request.requester().requesterType())
+                .param(ModelConcurrencyLimiter.OUTPUT, output)
+                .param(ModelResilienceAdvisor.CALL, call));
+    }
+    
+    private static String textOf(ChatResponse response) {
+        return response != null && response.getResult() != null && response.getResult().getOutput() != null
+            ? response.getResult().getOutput().getText()
+            : null;
+    }
+    
+    /**
+     * The answer in a response: the input of its call to the answer tool, else its text
+     */
+    private static String outputOf(ChatResponse response, OutputTool tool) {
+        String input = toolInputOf(response, tool);
+        return input != null ? input : textOf(response);
+    }
+    
+    private static String toolInputOf(ChatResponse response, OutputTool tool) {
+        if (tool == null || response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
         }
-        
-        return String.format("""
-            Generate a professional UK business banking credit memo using the following data:
-            
-            === CONTEXT ===
-            %s
-            
-            === CREDIT MEMO DETAILS ===
-            Credit Memo Number: %s
-            Issue Date: %s
-            
-            === ISSUER INFORMATION (Who is issuing this credit memo) ===
-            Issuer Name: %s
-            Issuer Address: %s
-            Issuer Email: %s
-            Issuer Phone: %s
-            Issuer Account: %s
-            
-            === RECIPIENT INFORMATION (Who is receiving this credit) ===
-            Customer ID: %s
-            Customer Name: %s
-            Customer Email: %s
-            Customer Phone: %s
-            Billing Address: %s, %s, %s %s, %s
-            Account Number: %s
-            %s
-            
-            === ORIGINAL TRANSACTION ===
-            Transaction ID: %s
-            Invoice Number: %s
-            Invoice Date: %s
-            Original Amount: £%.2f
-            Line Items: %s
-            
-            === CREDIT DETAILS ===
-            Credit Type: %s
-            Credit Reason: %s
-            Reason Description: %s
-            Credit Amount (incl. tax): £%.2f
-            Subtotal (excl. tax): £%.2f
-            Tax Amount (20%% VAT): £%.2f
-            Affected Items: %s
-            Additional Notes: %s
-            
-            === AUTHORIZATION ===
-            Requested By: %s
-            Requester Type: %s
-            Requester Email: %s
-            Department: %s
-            
-            
-            YOU MUST OUTPUT ONLY THE FOLLOWING JSON STRUCTURE (NO OTHER TEXT):
-            {
-              "creditMemoNumber": "%s",
-              "issueDate": "%s",
-              "issuer": {
-                "name": "%s",
-                "address": "%s",
-                "email": "%s",
-                "phone": "%s",
-                "accountNumber": "%s"
-              },
-              "recipient": {
-                "customerId": "%s",
-                "name": "%s",
-                "address": "%s, %s, %s %s, %s",
-                "email": "%s",
-                "phone": "%s",
-                "accountNumber": "%s",
-                "bankDetails": %s
-              },
-              "originalInvoice": {
-                "invoiceNumber": "%s",
-                "invoiceDate": "%s",
-                "originalAmount": %.2f
-              },
-              "creditInfo": {
-                "reason": "%s",
-                "detailedExplanation": "[Write a professional 3-4 sentence explanation suitable for UK business banking. Include: (1) What is being credited, (2) Why the credit is being issued, (3) Impact on customer account, (4) Any follow-up actions if applicable. Use formal business tone.]",
-                "creditType": "%s"
-              },
-              "creditLineItems": [
-                [FOR EACH affected item, create an entry with format:]
-                {
-                  "itemDescription": "[Item description from line items]",
-                  "quantity": [quantity as integer],
-                  "unitPrice": [unit price as decimal],
-                  "lineTotal": [line total as decimal],
-                  "reasonForCredit": "[Specific reason for this item's credit]"
-                }
-              ],
-              "financialSummary": {
-                "subtotal": %.2f,
-                "taxAmount": %.2f,
-                "totalCreditAmount": %.2f,
-                "currency": "GBP"
-              },
-              "termsAndConditions": "This credit memo will be applied to your account within 5-7 business days. The credited amount will be reflected in your next statement. For queries, please contact our customer service team at customerservice@ukbusinessbank.com or call 0800-123-4567. Credit memo issued in accordance with UK business banking regulations and FCA guidelines.",
-              "authorizedBy": "%s",
-              "notes": "%s"
+        for (AssistantMessage.ToolCall toolCall : response.getResult().getOutput().getToolCalls()) {
+            if (tool.name().equals(toolCall.name())) {
+                return toolCall.arguments();
             }
-            
-            CRITICAL REQUIREMENTS:
-            1. Output ONLY valid JSON - no markdown, no code blocks, no explanations
-            2. Use provided values exactly as shown
-            3. creditLineItems array must contain at least one item based on the affected items
-            4. detailedExplanation must be professional, factual, and specific to this transaction
-            5. All numeric values must be decimals without commas
-            6. Dates in YYYY-MM-DD format
-            7. Do not invent any financial figures - calculate from provided data
-            8. If bank details are provided for recipient, include them in the bankDetails object
-            9. If no bank details provided, set bankDetails to null
-            10. Bank details indicate the recipient banks with a different institution than the issuer
-            """,
-            // Context
-            contextNote,
-            
-            // Header information
-            creditMemoNumber,
-            LocalDateTime.now().toLocalDate(),
-            
-            // Issuer information (bank or business customer)
-            issuerName,
-            issuerAddress,
-            issuerEmail,
-            issuerPhone,
-            issuerAccountNumber,
-            
-            // Recipient information (always the customer field)
-            request.customer().customerId(),
-            request.customer().customerName(),
-            request.customer().email(),
-            request.customer().phone() != null ? request.customer().phone() : "N/A",
-            request.customer().billingAddress().street(),
-            request.customer().billingAddress().city(),
-            request.customer().billingAddress().state(),
-            request.customer().billingAddress().zipCode(),
-            request.customer().billingAddress().country(),
-            request.customer().accountNumber(),
-            bankDetailsSection,
-            
-            // Original transaction
-            request.originalTransaction().transactionId(),
-            request.originalTransaction().invoiceNumber(),
-            request.originalTransaction().transactionDate(),
-            request.originalTransaction().originalAmount(),
-            lineItemsDetail.toString(),
-            
-            // Credit details
-            creditType,
-            request.creditDetails().reason(),
-            request.creditDetails().reasonDescription(),
-            creditAmount,
-            subtotal,
-            taxAmount,
-            request.creditDetails().affectedItems() != null ? String.join(", ", request.creditDetails().affectedItems()) : "All items",
-            request.creditDetails().additionalNotes(),
-            
-            // Authorization
-            request.requester().name(),
-            request.requester().requesterType(),
-            request.requester().email(),
-            request.requester().department() != null ? request.requester().department() : "N/A",
-            
-            // JSON template values
-            creditMemoNumber,
-            LocalDateTime.now().toLocalDate(),
-            // Issuer info for JSON template
-            issuerName,
-            issuerAddress,
-            issuerEmail,
-            issuerPhone,
-            issuerAccountNumber,
-            // Recipient info for JSON template
-            request.customer().customerId(),
-            request.customer().customerName(),
-            request.customer().billingAddress().street(),
-            request.customer().billingAddress().city(),
-            request.customer().billingAddress().state(),
-            request.customer().billingAddress().zipCode(),
-            request.customer().billingAddress().country(),
-            request.customer().email(),
-            request.customer().phone() != null ? request.customer().phone() : "N/A",
-            request.customer().accountNumber(),
-            // Bank details JSON
-            request.customer().bankDetails() != null 
-                ? String.format("{\"bankName\": \"%s\", \"bankBranch\": \"%s\", \"sortCode\": \"%s\", \"swiftCode\": \"%s\", \"accountHolderName\": \"%s\"}",
-                    request.customer().bankDetails().bankName() != null ? request.customer().bankDetails().bankName() : "",
-                    request.customer().bankDetails().bankBranch() != null ? request.customer().bankDetails().bankBranch() : "",
-                    request.customer().bankDetails().sortCode() != null ? request.customer().bankDetails().sortCode() : "",
-                    request.customer().bankDetails().swiftCode() != null ? request.customer().bankDetails().swiftCode() : "",
-                    request.customer().bankDetails().accountHolderName() != null ? request.customer().bankDetails().accountHolderName() : "")
-                : "null",
-            request.originalTransaction().invoiceNumber(),
-            request.originalTransaction().transactionDate(),
-            request.originalTransaction().originalAmount(),
-            request.creditDetails().reason(),
-            creditType,
-            subtotal,
-            taxAmount,
-            creditAmount,
-            request.requester().name(),
-            request.creditDetails().additionalNotes()
-        );
+        }
+        return null;
     }
     
+    /**
+     * Whether an offline batch record is written for the request; {@code DETERMINISTIC} memos are
+     * built at ingest instead
+     */
+    boolean needsModel(@NonNull CreditMemoRequest request) {
+        return generationModeFor(request) != GenerationMode.DETERMINISTIC;
+    }
+    
+    /**
+     * Response built from templates alone, as a {@code DETERMINISTIC} memo is
+     */
     @NonNull
-    @SuppressWarnings("null")
-    private String buildSummaryPrompt(@NonNull CreditMemoRequest request) {
-        return String.format("""
-            Provide a brief 2-3 sentence summary of this credit memo request:
-            
-            - Customer: %s (ID: %s)
-            - Original Invoice: %s
-            - Credit Reason: %s
-            - Credit Amount: %s %s
-            - Requester: %s (%s)
-            
-            Summarize the key details in a professional manner suitable for management review.
-            """,
-            request.customer().customerName(),
-            request.customer().customerId(),
-            request.originalTransaction().invoiceNumber(),
-            request.creditDetails().reason(),
-            request.creditDetails().creditAmount(),
-            request.originalTransaction().currency(),
-            request.requester().name(),
-            request.requester().requesterType()
-        );
+    CreditMemoResponse buildDeterministicResponse(@NonNull CreditMemoRequest request) {
+        return buildResponse(request, DocumentTemplates.build(request), SummaryTemplates.render(request), 0,
+            TokenUsage.NONE, DocumentTemplates.MODEL);
     }
     
+    /**
+     * System prompt for an offline batch record: the narrative one unless the request's mode is
+     * {@code LLM}; either ends with the JSON format instructions
+     */
     @NonNull
-    @SuppressWarnings("null")
-    private String buildValidationPrompt(@NonNull CreditMemoRequest request) {
-        return String.format("""
-            Validate this credit memo request and identify any issues or concerns:
-            
-            - Credit Amount: %s (Original Transaction: %s)
-            - Reason: %s - %s
-            - Requester Type: %s
-            - Requires Approval: %s
-            
-            Analyze:
-            1. Is the credit amount reasonable compared to the original transaction?
-            2. Is the reason clearly explained and justified?
-            3. Are there any red flags or concerns?
-            4. Should this require additional approval?
-            
-            Return a validation result with isValid (boolean), issues (list of strings), 
-            recommendations (list of strings), and riskLevel (LOW, MEDIUM, HIGH).
-            """,
-            request.creditDetails().creditAmount(),
-            request.originalTransaction().originalAmount(),
-            request.creditDetails().reason(),
-            request.creditDetails().reasonDescription(),
-            request.requester().requesterType(),
-            request.creditDetails().requiresApproval()
-        );
+    String documentSystemPrompt(@NonNull CreditMemoRequest request) {
+        return generationModeFor(request) == GenerationMode.LLM ? documentBatchSystem : narrativeBatchSystem;
+    }
+    
+    /**
+     * User prompt for an offline batch record, to follow {@link #documentSystemPrompt}
+     */
+    @NonNull
+    String documentUserPrompt(@NonNull CreditMemoRequest request) {
+        return generationModeFor(request) == GenerationMode.LLM
+            ? prompts.document(request)
+            : prompts.narrative(request, DocumentTemplates.build(request));
+    }
+    
+    /**
+     * Document built from raw model output for a {@link #documentUserPrompt} prompt
+     */
+    @NonNull
+    CreditMemoDocument parseDocument(@NonNull CreditMemoRequest request, @NonNull String output) {
+        return generationModeFor(request) == GenerationMode.LLM
+            ? parseDocument(output)
+            : DocumentTemplates.withNarrative(DocumentTemplates.build(request), parseNarrative(output));
     }
     
+    /**
+     * Shared system prompt, then the call's instructions, then its JSON format or, with an answer
+     * tool, the instruction to call it: all static, in the same order on every call
+     */
     @NonNull
-    private CreditMemoResponse buildResponse(@NonNull CreditMemoRequest request, 
+    private static String systemPrompt(@NonNull String instructions, @NonNull BeanOutputConverter<?> converter,
+                                       OutputTool tool) {
+        String format = tool != null
+            ? "Submit your answer by calling the " + tool.name() + " tool; its input schema is the required JSON format. "
+              + "Do not answer in text."
+            : converter.getFormat();
+        return SpringAiConfig.SYSTEM_PROMPT + '\n' + instructions + "\n\n" + format;
+    }
+    
+    @NonNull
+    private CreditMemoDocument parseDocument(String output) {
+        return outputParser.parse("document", CreditMemoDocument.class, output);
+    }
+    
+    @NonNull
+    private CreditMemoNarrative parseNarrative(String output) {
+        return outputParser.parse("narrative", CreditMemoNarrative.class, output);
+    }
+    
+    @NonNull
+    CreditMemoResponse buildResponse(@NonNull CreditMemoRequest request, 
                                              @NonNull CreditMemoDocument document, 
-                                             long processingTime) {
+                                             String summary,
+                                             long processingTime,
+                                             @NonNull TokenUsage usage) {
+        return buildResponse(request, document, summary, processingTime, usage, modelRouter.modelFor("document", request));
+    }
+    
+    @NonNull
+    private CreditMemoResponse buildResponse(@NonNull CreditMemoRequest request,
+                                             @NonNull CreditMemoDocument document,
+                                             String summary,
+                                             long processingTime,
+                                             @NonNull TokenUsage usage,
+                                             @NonNull String model) {
         String creditMemoId = UUID.randomUUID().toString();
         
         CreditMemoResponse.CreditMemoStatus status = 
@@ -473,8 +965,6 @@ public class CreditMemoService {
                 ? CreditMemoResponse.CreditMemoStatus.PENDING_APPROVAL 
                 : CreditMemoResponse.CreditMemoStatus.DRAFT;
         
-        String summary = generateCreditMemoSummary(request);
-        
         return new CreditMemoResponse(
             creditMemoId,
             document.creditMemoNumber(),
@@ -486,94 +976,24 @@ public class CreditMemoService {
             request.creditDetails().creditAmount(),
             request.originalTransaction().currency(),
             request.creditDetails().reason().toString(),
-            formatDocumentAsString(document),
+            CreditMemoDocumentFormatter.format(document),
             summary,
             request.creditDetails().requiresApproval(),
             status.name(),
             request.requester().name(),
             new CreditMemoResponse.ProcessingMetadata(
                 processingTime,
-                modelName,
-                0, // Token count would need to be extracted from response metadata
+                model,
+                usage.totalTokens(),
+                usage.inputTokens(),
+                usage.outputTokens(),
+                usage.cacheReadTokens(),
+                usage.cacheWriteTokens(),
                 creditMemoId
             )
         );
     }
     
-    @NonNull
-    @SuppressWarnings("null")
-    private String formatDocumentAsString(@NonNull CreditMemoDocument document) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("=== CREDIT MEMO ===\n\n");
-        sb.append("Credit Memo Number: ").append(document.creditMemoNumber()).append("\n");
-        sb.append("Issue Date: ").append(document.issueDate()).append("\n\n");
-        
-        sb.append("ISSUER (FROM):\n");
-        sb.append("Name: ").append(document.issuer().name()).append("\n");
-        sb.append("Address: ").append(document.issuer().address()).append("\n");
-        sb.append("Email: ").append(document.issuer().email()).append("\n");
-        sb.append("Phone: ").append(document.issuer().phone()).append("\n");
-        if (document.issuer().accountNumber() != null && !document.issuer().accountNumber().equals("N/A (Bank)")) {
-            sb.append("Account: ").append(document.issuer().accountNumber()).append("\n");
-        }
-        sb.append("\n");
-        
-        sb.append("RECIPIENT (TO):\n");
-        sb.append("Name: ").append(document.recipient().name()).append("\n");
-        sb.append("Customer ID: ").append(document.recipient().customerId()).append("\n");
-        sb.append("Address: ").append(document.recipient().address()).append("\n");
-        sb.append("Email: ").append(document.recipient().email()).append("\n");
-        sb.append("Account: ").append(document.recipient().accountNumber()).append("\n");
-        
-        if (document.recipient().bankDetails() != null) {
-            sb.append("\nRecipient Bank Details:\n");
-            sb.append("  Bank: ").append(document.recipient().bankDetails().bankName()).append("\n");
-            sb.append("  Branch: ").append(document.recipient().bankDetails().bankBranch()).append("\n");
-            sb.append("  Sort Code: ").append(document.recipient().bankDetails().sortCode()).append("\n");
-            sb.append("  SWIFT: ").append(document.recipient().bankDetails().swiftCode()).append("\n");
-            sb.append("  Account Holder: ").append(document.recipient().bankDetails().accountHolderName()).append("\n");
-        }
-        sb.append("\n");
-        
-        sb.append("ORIGINAL INVOICE REFERENCE:\n");
-        sb.append("Invoice Number: ").append(document.originalInvoice().invoiceNumber()).append("\n");
-        sb.append("Invoice Date: ").append(document.originalInvoice().invoiceDate()).append("\n");
-        sb.append("Original Amount: ").append(document.originalInvoice().originalAmount()).append("\n\n");
-        
-        sb.append("CREDIT REASON:\n");
-        sb.append(document.creditInfo().reason()).append("\n");
-        sb.append(document.creditInfo().detailedExplanation()).append("\n\n");
-        
-        sb.append("CREDIT LINE ITEMS:\n");
-        if (document.creditLineItems() != null && !document.creditLineItems().isEmpty()) {
-            document.creditLineItems().forEach(item -> {
-                sb.append(String.format("- %s (Qty: %d) @ %s = %s - %s\n",
-                    item.itemDescription(),
-                    item.quantity(),
-                    item.unitPrice(),
-                    item.lineTotal(),
-                    item.reasonForCredit()));
-            });
-        } else {
-            sb.append("- No line item breakdown available\n");
-        }
-        
-        sb.append("\nFINANCIAL SUMMARY:\n");
-        sb.append("Subtotal: ").append(document.financialSummary().subtotal()).append("\n");
-        sb.append("Tax: ").append(document.financialSummary().taxAmount()).append("\n");
-        sb.append("TOTAL CREDIT: ").append(document.financialSummary().totalCreditAmount())
-          .append(" ").append(document.financialSummary().currency()).append("\n\n");
-        
-        sb.append("Terms & Conditions: ").append(document.termsAndConditions()).append("\n");
-        sb.append("Authorized By: ").append(document.authorizedBy()).append("\n");
-        
-        if (document.notes() != null && !document.notes().isEmpty()) {
-            sb.append("Notes: ").append(document.notes()).append("\n");
-        }
-        
-        return sb.toString();
-    }
-    
     public record ValidationResult(
         boolean isValid,
         java.util.List<String> issues,
@@ -0,0 +1,354 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoNarrative;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.CreditReason;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Deterministic credit memo documents built from the request alone.
+ * 
+ * Parties, invoice reference, credit lines, financial summary and terms are copied or calculated
+ * exactly as the document prompt tells the model to. The explanation and line-item reasons come
+ * from one template per {@link CreditReason}. Explanation placeholders: 1 customer name,
+ * 2 amount, 3 currency, 4 invoice number, 5 invoice date, 6 reason description, 7 credited items.
+ */
+public final class DocumentTemplates {
+    
+    /** Recorded as the model of a memo built without a model call */
+    public static final String MODEL = "deterministic";
+    
+    // 20% UK VAT, included in the credit amount
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.20");
+    
+    static final String TERMS = "This credit memo will be applied to your account within 5-7 business days. The credited amount will be reflected in your next statement. For queries, please contact our customer service team at customerservice@ukbusinessbank.com or call 0800-123-4567. Credit memo issued in accordance with UK business banking regulations and FCA guidelines.";
+    
+    // Explanation sentence 3 and 4: impact on the account and follow-up
+    private static final String IMPACT = " The credit of %2$s %3$s will be applied to the account of %1$s within 5-7 business days and shown on the next statement. No further action is required from the customer.";
+    
+    private static final Map<CreditReason, String> EXPLANATIONS = new EnumMap<>(CreditReason.class);
+    
+    private static final Map<CreditReason, String> LINE_REASONS = new EnumMap<>(CreditReason.class);
+    
+    static {
+        EXPLANATIONS.put(CreditReason.PRODUCT_RETURN,
+            "This credit memo credits %7$s returned by %1$s against invoice %4$s dated %5$s. The credit is issued because the goods have been returned: %6$s.");
+        EXPLANATIONS.put(CreditReason.DEFECTIVE_GOODS,
+            "This credit memo credits %7$s supplied to %1$s under invoice %4$s dated %5$s. The credit is issued because the goods were found to be defective: %6$s.");
+        EXPLANATIONS.put(CreditReason.BILLING_ERROR,
+            "This credit memo credits %7$s billed to %1$s on invoice %4$s dated %5$s. The credit is issued to correct a billing error: %6$s.");
+        EXPLANATIONS.put(CreditReason.OVERCHARGE,
+            "This credit memo credits %7$s billed to %1$s on invoice %4$s dated %5$s. The credit is issued to refund an overcharge: %6$s.");
+        EXPLANATIONS.put(CreditReason.PRICE_ADJUSTMENT,
+            "This credit memo credits %7$s billed to %1$s on invoice %4$s dated %5$s. The credit reflects an agreed price adjustment: %6$s.");
+        EXPLANATIONS.put(CreditReason.SERVICE_ISSUE,
+            "This credit memo credits %7$s provided to %1$s under invoice %4$s dated %5$s. The credit is issued in recognition of a service issue: %6$s.");
+        EXPLANATIONS.put(CreditReason.CANCELLATION,
+            "This credit memo credits %7$s ordered by %1$s and billed on invoice %4$s dated %5$s. The credit is issued following cancellation of the order: %6$s.");
+        EXPLANATIONS.put(CreditReason.GOODWILL_GESTURE,
+            "This credit memo grants %1$s a goodwill credit against %7$s billed on invoice %4$s dated %5$s. The credit is issued as a gesture of goodwill: %6$s.");
+        EXPLANATIONS.put(CreditReason.OTHER,
+            "This credit memo credits %7$s billed to %1$s on invoice %4$s dated %5$s. The credit is issued for the following reason: %6$s.");
+        
+        LINE_REASONS.put(CreditReason.PRODUCT_RETURN, "Goods returned");
+        LINE_REASONS.put(CreditReason.DEFECTIVE_GOODS, "Defective goods");
+        LINE_REASONS.put(CreditReason.BILLING_ERROR, "Billing error");
+        LINE_REASONS.put(CreditReason.OVERCHARGE, "Overcharge refunded");
+        LINE_REASONS.put(CreditReason.PRICE_ADJUSTMENT, "Price adjustment");
+        LINE_REASONS.put(CreditReason.SERVICE_ISSUE, "Service issue");
+        LINE_REASONS.put(CreditReason.CANCELLATION, "Order cancelled");
+        LINE_REASONS.put(CreditReason.GOODWILL_GESTURE, "Goodwill credit");
+        LINE_REASONS.put(CreditReason.OTHER, "Credit");
+    }
+    
+    private DocumentTemplates() {
+    }
+    
+    /**
+     * Build the complete document for a request, with a newly assigned memo number
+     */
+    @NonNull
+    public static CreditMemoDocument build(@NonNull CreditMemoRequest request) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        
+        CreditMemoRequest.CustomerInfo customer = request.customer();
+        CreditMemoRequest.TransactionInfo transaction = request.originalTransaction();
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        LocalDate today = LocalDate.now();
+        BigDecimal total = credit.creditAmount().setScale(2, RoundingMode.HALF_UP);
+        BigDecimal subtotal = subtotal(total);
+        
+        CreditMemoRequest.BankDetails bank = customer.bankDetails();
+        List<CreditMemoDocument.CreditLineItem> lines = creditLines(request, total);
+        return new CreditMemoDocument(
+            creditMemoNumber(today),
+            today,
+            issuer(request),
+            new CreditMemoDocument.RecipientDetails(
+                customer.customerId(), customer.customerName(), address(customer.billingAddress()),
+                customer.email(), orNa(customer.phone()), customer.accountNumber(),
+                bank == null ? null : new CreditMemoDocument.BankDetails(
+                    bank.bankName(), bank.bankBranch(), bank.sortCode(), bank.swiftCode(), bank.accountHolderName())),
+            new CreditMemoDocument.OriginalInvoiceReference(
+                transaction.invoiceNumber(), transaction.transactionDate(), transaction.originalAmount()),
+            new CreditMemoDocument.CreditInformation(
+                credit.reason().name(), explanation(request, lines), creditType(request)),
+            lines,
+            new CreditMemoDocument.FinancialSummary(subtotal, total.subtract(subtotal), total, transaction.currency()),
+            TERMS,
+            request.requester().name(),
+            credit.additionalNotes());
+    }
+    
+    /**
+     * Replace the templated text of a built document with the model's; fields the model left
+     * blank keep their template text
+     */
+    @NonNull
+    public static CreditMemoDocument withNarrative(@NonNull CreditMemoDocument document,
+                                                   @NonNull CreditMemoNarrative narrative) {
+        List<String> reasons = narrative.lineItemReasons() != null ? narrative.lineItemReasons() : List.of();
+        List<CreditMemoDocument.CreditLineItem> lines = new ArrayList<>(document.creditLineItems().size());
+        for (int i = 0; i < document.creditLineItems().size(); i++) {
+            CreditMemoDocument.CreditLineItem line = document.creditLineItems().get(i);
+            lines.add(i < reasons.size() && StringUtils.hasText(reasons.get(i))
+                ? new CreditMemoDocument.CreditLineItem(line.itemDescription(), line.quantity(), line.unitPrice(),
+                    line.lineTotal(), reasons.get(i))
+                : line);
+        }
+        CreditMemoDocument.CreditInformation creditInfo = document.creditInfo();
+        return new CreditMemoDocument(
+            document.creditMemoNumber(),
+            document.issueDate(),
+            document.issuer(),
+            document.recipient(),
+            document.originalInvoice(),
+            new CreditMemoDocument.CreditInformation(creditInfo.reason(),
+                orElse(narrative.detailedExplanation(), creditInfo.detailedExplanation()), creditInfo.creditType()),
+            List.copyOf(lines),
+            document.financialSummary(),
+            document.termsAndConditions(),
+            document.authorizedBy(),
+            orElse(narrative.notes(), document.notes()));
+    }
+    
+    /**
+     * The narrative of a model-written document, possibly partial: null where the explanation,
+     * a line item's reason or the notes did not arrive
+     */
+    @NonNull
+    public static CreditMemoNarrative narrativeOf(@NonNull CreditMemoDocument document) {
+        List<String> reasons = new ArrayList<>();
+        if (document.creditLineItems() != null) {
+            for (CreditMemoDocument.CreditLineItem line : document.creditLineItems()) {
+                reasons.add(line != null ? line.reasonForCredit() : null);
+            }
+        }
+        return new CreditMemoNarrative(
+            document.creditInfo() != null ? document.creditInfo().detailedExplanation() : null,
+            reasons,
+            document.notes());
+    }
+    
+    /**
+     * Whether a narrative has its explanation, a reason for each of a document's lines, and notes
+     * when the document has any to rewrite
+     */
+    public static boolean isComplete(@NonNull CreditMemoNarrative narrative, @NonNull CreditMemoDocument document) {
+        List<String> reasons = narrative.lineItemReasons() != null ? narrative.lineItemReasons() : List.of();
+        return StringUtils.hasText(narrative.detailedExplanation())
+               && (!StringUtils.hasText(document.notes()) || StringUtils.hasText(narrative.notes()))
+               && reasons.size() >= document.creditLineItems().size()
+               && reasons.subList(0, document.creditLineItems().size()).stream().allMatch(StringUtils::hasText);
+    }
+    
+    /**
+     * The narrative with its missing pieces taken from another
+     */
+    @NonNull
+    public static CreditMemoNarrative orElse(@NonNull CreditMemoNarrative narrative,
+                                             @NonNull CreditMemoNarrative fallback) {
+        List<String> reasons = narrative.lineItemReasons() != null ? narrative.lineItemReasons() : List.of();
+        List<String> fallbackReasons = fallback.lineItemReasons() != null ? fallback.lineItemReasons() : List.of();
+        List<String> merged = new ArrayList<>();
+        for (int i = 0; i < Math.max(reasons.size(), fallbackReasons.size()); i++) {
+            merged.add(orElse(i < reasons.size() ? reasons.get(i) : null,
+                              i < fallbackReasons.size() ? fallbackReasons.get(i) : null));
+        }
+        return new CreditMemoNarrative(
+            orElse(narrative.detailedExplanation(), fallback.detailedExplanation()),
+            merged,
+            orElse(narrative.notes(), fallback.notes()));
+    }
+    
+    /**
+     * For a bank colleague the bank issues the memo; otherwise the business customer named as
+     * issuer does, with the requester standing in when none is given
+     */
+    @NonNull
+    public static CreditMemoDocument.IssuerDetails issuer(@NonNull CreditMemoRequest request) {
+        if (request.requester().requesterType() == CreditMemoRequest.RequesterType.BANK_COLLEAGUE) {
+            return new CreditMemoDocument.IssuerDetails("UK Business Bank PLC",
+                "1 Bank Street, London, EC2R 8AH, United Kingdom", "customerservice@ukbusinessbank.com",
+                "0800-123-4567", "N/A (Bank)");
+        }
+        CreditMemoRequest.IssuerInfo issuer = request.issuer();
+        if (issuer != null && issuer.companyName() != null) {
+            return new CreditMemoDocument.IssuerDetails(issuer.companyName(),
+                issuer.address() != null ? address(issuer.address()) : "N/A",
+                orNa(issuer.email()), orNa(issuer.phone()), orNa(issuer.accountNumber()));
+        }
+        return new CreditMemoDocument.IssuerDetails("Business Customer", "N/A", request.requester().email(),
+            "N/A", "N/A");
+    }
+    
+    @NonNull
+    public static String creditMemoNumber(@NonNull LocalDate issueDate) {
+        return "CM-" + issueDate.getYear() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase(Locale.ROOT);
+    }
+    
+    /**
+     * Credit amount excluding VAT
+     */
+    @NonNull
+    public static BigDecimal subtotal(@NonNull BigDecimal creditAmount) {
+        return creditAmount.divide(BigDecimal.ONE.add(TAX_RATE), 2, RoundingMode.HALF_UP);
+    }
+    
+    @NonNull
+    public static String creditType(@NonNull CreditMemoRequest request) {
+        return request.creditDetails().creditAmount().compareTo(request.originalTransaction().originalAmount()) >= 0
+            ? "FULL"
+            : "PARTIAL";
+    }
+    
+    @NonNull
+    public static String address(@NonNull CreditMemoRequest.Address address) {
+        return address.street() + ", " + address.city() + ", " + address.state() + " " + address.zipCode()
+               + ", " + address.country();
+    }
+    
+    /**
+     * Number of credit lines the request's document will have
+     */
+    public static int creditedItemCount(@NonNull CreditMemoRequest request) {
+        return Math.max(credited(request).size(), 1);
+    }
+    
+    private static List<CreditMemoRequest.LineItem> credited(CreditMemoRequest request) {
+        List<CreditMemoRequest.LineItem> items = request.originalTransaction().lineItems();
+        List<String> named = request.creditDetails().affectedItems();
+        if (items == null || named == null || named.isEmpty()) {
+            return items == null ? List.of() : items;
+        }
+        // A set, as a large memo can name hundreds of affected items
+        Set<String> affected = new HashSet<>(named);
+        return items.stream().filter(item -> affected.contains(item.itemId())).toList();
+    }
+    
+    /**
+     * The affected line items (all of them if none are named), their totals scaled so they add
+     * up to the credit amount. Without line items the whole credit is one line.
+     */
+    private static List<CreditMemoDocument.CreditLineItem> creditLines(CreditMemoRequest request, BigDecimal total) {
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        List<CreditMemoRequest.LineItem> credited = credited(request);
+        String reason = LINE_REASONS.get(credit.reason()) + ": " + stripTrailingPeriod(credit.reasonDescription());
+        if (credited.isEmpty()) {
+            return List.of(new CreditMemoDocument.CreditLineItem(
+                "Credit against invoice " + request.originalTransaction().invoiceNumber(), 1, total, total, reason));
+        }
+        
+        // Items without a positive total carry no weight; with no weight at all the last line takes the credit
+        List<BigDecimal> weights = credited.stream()
+            .map(item -> item.totalPrice() != null && item.totalPrice().signum() > 0 ? item.totalPrice() : BigDecimal.ZERO)
+            .toList();
+        long[] cents = allocate(total.unscaledValue().longValueExact(), weights);
+        List<CreditMemoDocument.CreditLineItem> lines = new ArrayList<>(credited.size());
+        for (int i = 0; i < credited.size(); i++) {
+            CreditMemoRequest.LineItem item = credited.get(i);
+            lines.add(new CreditMemoDocument.CreditLineItem(item.description(), item.quantity(), item.unitPrice(),
+                BigDecimal.valueOf(cents[i], 2), reason));
+        }
+        return List.copyOf(lines);
+    }
+    
+    /**
+     * Split an amount in proportion to the weights by largest remainder: every share is rounded
+     * down and the units left over go one each to the largest remainders, so the shares add up
+     * exactly and none goes below zero
+     */
+    private static long[] allocate(long amount, List<BigDecimal> weights) {
+        long[] shares = new long[weights.size()];
+        BigDecimal weightTotal = weights.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (weightTotal.signum() == 0) {
+            shares[shares.length - 1] = amount;
+            return shares;
+        }
+        BigDecimal exactAmount = BigDecimal.valueOf(amount);
+        BigDecimal[] remainders = new BigDecimal[shares.length];
+        long left = amount;
+        for (int i = 0; i < shares.length; i++) {
+            BigDecimal scaled = weights.get(i).multiply(exactAmount);
+            BigDecimal share = scaled.divide(weightTotal, 0, RoundingMode.FLOOR);
+            shares[i] = share.longValueExact();
+            remainders[i] = scaled.subtract(share.multiply(weightTotal));
+            left -= shares[i];
+        }
+        // Fewer units are left over than there are shares; ties go to the earlier line
+        List<Integer> byRemainder = new ArrayList<>(shares.length);
+        for (int i = 0; i < shares.length; i++) {
+            byRemainder.add(i);
+        }
+        byRemainder.sort((a, b) -> remainders[b].compareTo(remainders[a]));
+        for (int i = 0; i < left; i++) {
+            shares[byRemainder.get(i)]++;
+        }
+        return shares;
+    }
+    
+    @SuppressWarnings("null")
+    private static String explanation(CreditMemoRequest request, List<CreditMemoDocument.CreditLineItem> lines) {
+        String items = lines.size() == 1
+            ? lines.getFirst().itemDescription()
+            : lines.size() + " items";
+        Object[] args = {
+            request.customer().customerName(),
+            request.creditDetails().creditAmount().setScale(2, RoundingMode.HALF_UP).toPlainString(),
+            request.originalTransaction().currency(),
+            request.originalTransaction().invoiceNumber(),
+            request.originalTransaction().transactionDate(),
+            stripTrailingPeriod(request.creditDetails().reasonDescription()),
+            items
+        };
+        return String.format(EXPLANATIONS.get(request.creditDetails().reason()) + IMPACT, args);
+    }
+    
+    private static String stripTrailingPeriod(String text) {
+        String trimmed = text.strip();
+        return trimmed.endsWith(".") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+    
+    private static String orElse(String value, String fallback) {
+        return StringUtils.hasText(value) ? value : fallback;
+    }
+    
+    private static String orNa(String value) {
+        return value != null ? value : "N/A";
+    }
+}
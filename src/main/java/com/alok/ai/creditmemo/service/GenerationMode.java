@@ -0,0 +1,13 @@
+package com.alok.ai.creditmemo.service;
+
+/**
+ * How the credit memo document is produced
+ */
+public enum GenerationMode {
+    /** Ask the model for the whole document */
+    LLM,
+    /** Build the document locally and ask the model only for its narrative fields */
+    HYBRID,
+    /** Build the whole document locally from per-reason templates, no model call */
+    DETERMINISTIC
+}
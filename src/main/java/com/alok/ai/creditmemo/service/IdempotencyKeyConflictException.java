@@ -0,0 +1,11 @@
+package com.alok.ai.creditmemo.service;
+
+/**
+ * Exception thrown when an Idempotency-Key is reused with a different request payload
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+    
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,119 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.cache.RequestFingerprint;
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Credit memo generation under client-supplied Idempotency-Keys.
+ * 
+ * Concurrent requests with the same key attach to the single in-flight generation instead of
+ * starting new model calls, and a completed result is replayed for the configured window.
+ * Failed generations are forgotten so the client can retry with the same key. Reusing a key
+ * with a different payload is rejected at once, without waiting for the generation. Keys are
+ * scoped to the requester, so two requesters choosing the same key never see each other's memos.
+ */
+@Service
+public class IdempotentCreditMemoService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentCreditMemoService.class);
+    
+    private static final int MAX_KEY_LENGTH = 255;
+    
+    private final CreditMemoService creditMemoService;
+    
+    private final ExecutorService executor;
+    
+    // In-flight futures never expire; the replay window starts when a future completes
+    private final AsyncCache<String, CreditMemoResponse> calls;
+    
+    public IdempotentCreditMemoService(@NonNull CreditMemoService creditMemoService,
+                                       @NonNull @Qualifier("creditMemoExecutor") ExecutorService executor,
+                                       @NonNull CreditMemoProperties properties) {
+        this.creditMemoService = Objects.requireNonNull(creditMemoService, "CreditMemoService must not be null");
+        this.executor = Objects.requireNonNull(executor, "ExecutorService must not be null");
+        this.calls = Caffeine.newBuilder()
+            .expireAfterWrite(properties.idempotency().replayWindow())
+            .maximumSize(properties.idempotency().maxKeys())
+            .buildAsync();
+    }
+    
+    /**
+     * Generate a credit memo once per idempotency key
+     */
+    @NonNull
+    public IdempotentResult generateCreditMemo(@NonNull String idempotencyKey,
+                                               @NonNull CreditMemoRequest request,
+                                               boolean includeSummary) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        
+        String fingerprint = RequestFingerprint.of(request) + ":" + includeSummary;
+        boolean[] started = new boolean[1];
+        
+        // The cache hands back the future its loader returned, so every call under the key is a KeyedCall
+        KeyedCall call = (KeyedCall) calls.get(request.requester().requesterId() + ":" + idempotencyKey, (key, ignored) -> {
+            started[0] = true;
+            KeyedCall keyed = new KeyedCall(fingerprint);
+            CompletableFuture.supplyAsync(() -> creditMemoService.generateCreditMemo(request, includeSummary), executor)
+                .whenComplete((response, failure) -> {
+                    if (failure == null) {
+                        keyed.complete(response);
+                    } else {
+                        keyed.completeExceptionally(failure);
+                    }
+                });
+            return keyed;
+        });
+        
+        if (!call.fingerprint.equals(fingerprint)) {
+            throw new IdempotencyKeyConflictException(
+                "Idempotency-Key " + idempotencyKey + " was already used with a different request");
+        }
+        if (!started[0]) {
+            logger.info("Idempotency-Key {} attached to an existing generation", idempotencyKey);
+        }
+        
+        try {
+            return new IdempotentResult(call.join(), !started[0]);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CreditMemoGenerationException("Failed to generate credit memo: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * A generation under one key, carrying the fingerprint of the request that started it so a
+     * different payload can be turned away before the generation finishes
+     */
+    private static final class KeyedCall extends CompletableFuture<CreditMemoResponse> {
+        
+        private final String fingerprint;
+        
+        KeyedCall(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+    
+    /**
+     * @param replayed true when the response came from an earlier or concurrent request with the same key
+     */
+    public record IdempotentResult(CreditMemoResponse response, boolean replayed) {}
+}
@@ -0,0 +1,43 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoJob;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Job store held in memory; jobs are lost on restart
+ */
+@Component
+public class InMemoryCreditMemoJobStore implements CreditMemoJobStore {
+    
+    private final Map<String, CreditMemoJob> jobs = new ConcurrentHashMap<>();
+    
+    @Override
+    public void save(@NonNull CreditMemoJob job) {
+        Objects.requireNonNull(job, "CreditMemoJob must not be null");
+        jobs.put(job.jobId(), job);
+    }
+    
+    @Override
+    public Optional<CreditMemoJob> findById(@NonNull String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+    
+    @Override
+    public void delete(@NonNull String jobId) {
+        jobs.remove(jobId);
+    }
+    
+    @Override
+    public int deleteFinishedBefore(@NonNull Instant cutoff) {
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isFinished() && job.completedAt().isBefore(cutoff));
+        return before - jobs.size();
+    }
+}
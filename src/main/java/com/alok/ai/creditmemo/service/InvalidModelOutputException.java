@@ -0,0 +1,21 @@
+package com.alok.ai.creditmemo.service;
+
+/**
+ * Exception thrown when model output cannot be bound to the JSON expected from the call
+ */
+public class InvalidModelOutputException extends RuntimeException {
+    
+    private final String output;
+    
+    public InvalidModelOutputException(String message, String output, Throwable cause) {
+        super(message, cause);
+        this.output = output;
+    }
+    
+    /**
+     * The model's output as received
+     */
+    public String getOutput() {
+        return output;
+    }
+}
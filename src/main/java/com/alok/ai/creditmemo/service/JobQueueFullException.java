@@ -0,0 +1,20 @@
+package com.alok.ai.creditmemo.service;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when the asynchronous job queue cannot accept more work
+ */
+public class JobQueueFullException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    
+    public JobQueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,103 @@
+package com.alok.ai.creditmemo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Local stand-in for a Bedrock batch inference job: plays each model-input record through a
+ * {@link ChatModel} and writes the output JSONL in the same record format Bedrock produces
+ */
+@Component
+public class LocalBatchInferenceRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LocalBatchInferenceRunner.class);
+    
+    private final ChatModel chatModel;
+    
+    private final ObjectMapper objectMapper;
+    
+    public LocalBatchInferenceRunner(@NonNull ChatModel chatModel, @NonNull ObjectMapper objectMapper) {
+        this.chatModel = Objects.requireNonNull(chatModel, "ChatModel must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper must not be null");
+    }
+    
+    /**
+     * @return number of records processed
+     */
+    public int run(@NonNull Path modelInputFile, @NonNull Path resultsFile) {
+        int count = 0;
+        try (MappingIterator<JsonNode> records = objectMapper.readerFor(JsonNode.class).readValues(modelInputFile.toFile());
+             BufferedWriter writer = Files.newBufferedWriter(resultsFile, StandardCharsets.UTF_8)) {
+            while (records.hasNextValue()) {
+                ObjectNode record = (ObjectNode) records.nextValue();
+                try {
+                    record.set("modelOutput", invoke(record.path("modelInput")));
+                } catch (Exception e) {
+                    logger.warn("Batch record {} failed: {}", record.path("recordId").asText(), e.getMessage());
+                    ObjectNode error = record.putObject("error");
+                    error.put("errorCode", 500);
+                    error.put("errorMessage", e.getMessage());
+                }
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to run batch records from " + modelInputFile, e);
+        }
+        logger.info("Ran {} batch inference records into {}", count, resultsFile);
+        return count;
+    }
+    
+    @NonNull
+    private ObjectNode invoke(@NonNull JsonNode modelInput) {
+        List<Message> messages = new ArrayList<>();
+        if (modelInput.hasNonNull("system")) {
+            messages.add(new SystemMessage(modelInput.get("system").asText()));
+        }
+        modelInput.path("messages").forEach(message -> {
+            StringBuilder text = new StringBuilder();
+            message.path("content").forEach(block -> text.append(block.path("text").asText()));
+            messages.add(new UserMessage(text.toString()));
+        });
+        
+        ChatResponse response = chatModel.call(new Prompt(messages));
+        
+        ObjectNode output = objectMapper.createObjectNode();
+        output.put("type", "message");
+        output.put("role", "assistant");
+        ObjectNode content = output.putArray("content").addObject();
+        content.put("type", "text");
+        content.put("text", response.getResult().getOutput().getText());
+        output.put("stop_reason", "end_turn");
+        
+        Usage usage = response.getMetadata().getUsage();
+        ObjectNode usageNode = output.putObject("usage");
+        usageNode.put("input_tokens", usage.getPromptTokens() != null ? usage.getPromptTokens() : 0);
+        usageNode.put("output_tokens", usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0);
+        return output;
+    }
+}
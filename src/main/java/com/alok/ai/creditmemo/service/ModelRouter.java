@@ -0,0 +1,80 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Picks the model for each call from {@code creditmemo.models}.
+ * 
+ * Routes are checked in order and the first one whose conditions all hold wins: call type,
+ * credit reason, credit amount at most {@code max-amount} and at most {@code max-line-items}
+ * line items. Without a matching route the call type's model is used, and without that the
+ * chat model's default ({@code spring.ai.bedrock.converse.chat.options.model}). Small, simple
+ * memos can so go to a faster, cheaper model while the rest keep the large one.
+ */
+@Component
+public class ModelRouter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ModelRouter.class);
+    
+    private final List<CreditMemoProperties.ModelRoute> routes;
+    
+    private final Map<String, String> callModels;
+    
+    private final String defaultModel;
+    
+    public ModelRouter(@NonNull ChatModel chatModel, @NonNull CreditMemoProperties properties) {
+        CreditMemoProperties.Models config = properties.models();
+        ChatOptions defaults = chatModel.getDefaultOptions();
+        this.defaultModel = defaults != null && StringUtils.hasText(defaults.getModel())
+            ? defaults.getModel()
+            : "unknown";
+        this.routes = List.copyOf(config.routes());
+        for (int i = 0; i < routes.size(); i++) {
+            if (!StringUtils.hasText(routes.get(i).model())) {
+                throw new IllegalArgumentException("creditmemo.models.routes[" + i + "].model must be set");
+            }
+        }
+        this.callModels = Map.of(
+            "document", Objects.requireNonNullElse(config.document(), defaultModel),
+            "summary", Objects.requireNonNullElse(config.summary(), defaultModel),
+            "validation", Objects.requireNonNullElse(config.validation(), defaultModel));
+        
+        logger.info("Model routing: {} by call, {} routes, default {}", callModels, routes.size(), defaultModel);
+    }
+    
+    /**
+     * @param call document, summary or validation
+     * @return the model ID to send the call to
+     */
+    @NonNull
+    public String modelFor(@NonNull String call, @NonNull CreditMemoRequest request) {
+        for (CreditMemoProperties.ModelRoute route : routes) {
+            if (matches(route, call, request)) {
+                return route.model();
+            }
+        }
+        return callModels.getOrDefault(call, defaultModel);
+    }
+    
+    private static boolean matches(CreditMemoProperties.ModelRoute route, String call, CreditMemoRequest request) {
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        List<CreditMemoRequest.LineItem> lineItems = request.originalTransaction().lineItems();
+        int lineItemCount = lineItems != null ? lineItems.size() : 0;
+        return (route.calls().isEmpty() || route.calls().contains(call))
+               && (route.creditReasons().isEmpty() || route.creditReasons().contains(credit.reason()))
+               && (route.maxAmount() == null || credit.creditAmount().compareTo(route.maxAmount()) <= 0)
+               && (route.maxLineItems() == null || lineItemCount <= route.maxLineItems());
+    }
+}
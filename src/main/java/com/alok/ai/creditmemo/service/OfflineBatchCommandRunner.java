@@ -0,0 +1,62 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Runs one offline batch step at startup when {@code creditmemo.offline.command} is set:
+ * {@code prepare} (requests to model input), {@code run-local} (model input to results through the
+ * configured ChatModel, in place of a Bedrock batch job) or {@code ingest} (results to responses)
+ */
+@Component
+@ConditionalOnProperty(prefix = "creditmemo.offline", name = "command")
+public class OfflineBatchCommandRunner implements ApplicationRunner {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OfflineBatchCommandRunner.class);
+    
+    private final OfflineBatchService offlineBatchService;
+    
+    private final LocalBatchInferenceRunner localRunner;
+    
+    private final CreditMemoProperties.Offline offline;
+    
+    public OfflineBatchCommandRunner(@NonNull OfflineBatchService offlineBatchService,
+                                     @NonNull LocalBatchInferenceRunner localRunner,
+                                     @NonNull CreditMemoProperties properties) {
+        this.offlineBatchService = Objects.requireNonNull(offlineBatchService, "OfflineBatchService must not be null");
+        this.localRunner = Objects.requireNonNull(localRunner, "LocalBatchInferenceRunner must not be null");
+        this.offline = properties.offline();
+    }
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("Running offline batch command '{}'", offline.command());
+        switch (offline.command()) {
+            case "prepare" -> offlineBatchService.prepare(required(offline.requests(), "requests"),
+                                                          required(offline.modelInput(), "model-input"));
+            case "run-local" -> localRunner.run(required(offline.modelInput(), "model-input"),
+                                                required(offline.results(), "results"));
+            case "ingest" -> offlineBatchService.ingest(required(offline.requests(), "requests"),
+                                                        required(offline.results(), "results"),
+                                                        required(offline.responses(), "responses"));
+            default -> throw new IllegalArgumentException("Unknown offline batch command: " + offline.command()
+                + " (expected prepare, run-local or ingest)");
+        }
+    }
+    
+    private static Path required(Path path, String name) {
+        if (path == null) {
+            throw new IllegalArgumentException("creditmemo.offline." + name + " must be set");
+        }
+        return path;
+    }
+}
@@ -0,0 +1,268 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Offline credit memo generation through Bedrock batch inference.
+ * 
+ * {@link #prepare} turns a JSONL file of requests into a model-input JSONL in the Bedrock batch
+ * record format ({@code recordId} + Anthropic {@code modelInput}); the file is submitted as a
+ * batch inference job, and {@link #ingest} turns the job's output JSONL back into responses.
+ * Record IDs are derived from the request's line number, so the same requests file must be
+ * passed to both steps. Unless a request's generation mode is {@code LLM} its record asks only for
+ * the narrative, and the document is rebuilt from the request at ingest; a {@code DETERMINISTIC}
+ * request gets no record at all and its whole memo is built at ingest. Both steps must therefore
+ * run with the same {@code creditmemo.generation} settings. A line that is not a valid request is
+ * skipped by {@code prepare} and written as an error line by {@code ingest}, each naming its line number.
+ */
+@Service
+public class OfflineBatchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OfflineBatchService.class);
+    
+    static final String ANTHROPIC_VERSION = "bedrock-2023-05-31";
+    
+    private final CreditMemoService creditMemoService;
+    
+    private final ObjectMapper objectMapper;
+    
+    private final Validator validator;
+    
+    private final int maxTokens;
+    
+    private final double temperature;
+    
+    public OfflineBatchService(@NonNull CreditMemoService creditMemoService,
+                               @NonNull ObjectMapper objectMapper,
+                               @NonNull Validator validator,
+                               @Value("${spring.ai.bedrock.converse.chat.options.max-tokens:4096}") int maxTokens,
+                               @Value("${spring.ai.bedrock.converse.chat.options.temperature:0.3}") double temperature) {
+        this.creditMemoService = Objects.requireNonNull(creditMemoService, "CreditMemoService must not be null");
+        this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper must not be null");
+        this.validator = Objects.requireNonNull(validator, "Validator must not be null");
+        this.maxTokens = maxTokens;
+        this.temperature = temperature;
+    }
+    
+    /**
+     * Write one batch inference record per request that needs the model
+     * @return number of records written
+     */
+    public int prepare(@NonNull Path requestsFile, @NonNull Path modelInputFile) {
+        int index = 0;
+        int count = 0;
+        int invalid = 0;
+        try (MappingIterator<JsonNode> requests = readRequests(requestsFile);
+             BufferedWriter writer = Files.newBufferedWriter(modelInputFile, StandardCharsets.UTF_8)) {
+            while (requests.hasNextValue()) {
+                CreditMemoRequest request;
+                try {
+                    request = toRequest(requests.nextValue(), index);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping request: {}", e.getMessage());
+                    index++;
+                    invalid++;
+                    continue;
+                }
+                String recordId = recordId(index++);
+                if (!creditMemoService.needsModel(request)) {
+                    continue;
+                }
+                ObjectNode record = objectMapper.createObjectNode();
+                record.put("recordId", recordId);
+                record.set("modelInput", modelInput(creditMemoService.documentSystemPrompt(request),
+                                                       creditMemoService.documentUserPrompt(request)));
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare batch model input from " + requestsFile, e);
+        }
+        logger.info("Prepared {} batch inference records in {}, {} requests left to build at ingest, {} invalid",
+                    count, modelInputFile, index - count - invalid, invalid);
+        return count;
+    }
+    
+    /**
+     * Join batch inference output with the original requests and write one result line per record:
+     * {@code {"recordId", "result": CreditMemoResponse, "error"}}. Invalid requests and requests
+     * without a record are written first, the latter built from templates. Summaries are rendered
+     * from templates so ingestion makes no model calls.
+     * @return number of responses written
+     */
+    public int ingest(@NonNull Path requestsFile, @NonNull Path resultsFile, @NonNull Path responsesFile) {
+        Map<String, CreditMemoRequest> requestsById = new LinkedHashMap<>();
+        Map<String, String> invalidById = new LinkedHashMap<>();
+        try (MappingIterator<JsonNode> requests = readRequests(requestsFile)) {
+            for (int index = 0; requests.hasNextValue(); index++) {
+                JsonNode node = requests.nextValue();
+                try {
+                    requestsById.put(recordId(index), toRequest(node, index));
+                } catch (IllegalArgumentException e) {
+                    invalidById.put(recordId(index), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read requests from " + requestsFile, e);
+        }
+        
+        int succeeded = 0;
+        int failed = 0;
+        try (MappingIterator<JsonNode> results = objectMapper.readerFor(JsonNode.class).readValues(resultsFile.toFile());
+             BufferedWriter writer = Files.newBufferedWriter(responsesFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : invalidById.entrySet()) {
+                ObjectNode line = objectMapper.createObjectNode();
+                line.put("recordId", entry.getKey());
+                line.putNull("result");
+                line.put("error", entry.getValue());
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.newLine();
+                failed++;
+            }
+            Set<String> built = new HashSet<>();
+            for (Map.Entry<String, CreditMemoRequest> entry : requestsById.entrySet()) {
+                if (creditMemoService.needsModel(entry.getValue())) {
+                    continue;
+                }
+                ObjectNode line = objectMapper.createObjectNode();
+                line.put("recordId", entry.getKey());
+                line.set("result", objectMapper.valueToTree(creditMemoService.buildDeterministicResponse(entry.getValue())));
+                line.putNull("error");
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.newLine();
+                built.add(entry.getKey());
+                succeeded++;
+            }
+            while (results.hasNextValue()) {
+                JsonNode result = results.nextValue();
+                String recordId = result.path("recordId").asText(null);
+                if (built.contains(recordId)) {
+                    logger.warn("Batch record {} ignored: its request is built without the model", recordId);
+                    continue;
+                }
+                ObjectNode line = objectMapper.createObjectNode();
+                line.put("recordId", recordId);
+                try {
+                    CreditMemoResponse response = toResponse(requestsById.get(recordId), result);
+                    line.set("result", objectMapper.valueToTree(response));
+                    line.putNull("error");
+                    succeeded++;
+                } catch (Exception e) {
+                    logger.warn("Batch record {} could not be ingested: {}", recordId, e.getMessage());
+                    line.putNull("result");
+                    line.put("error", e.getMessage());
+                    failed++;
+                }
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to ingest batch results from " + resultsFile, e);
+        }
+        logger.info("Ingested batch results: {} succeeded, {} failed, written to {}", succeeded, failed, responsesFile);
+        return succeeded;
+    }
+    
+    @NonNull
+    private CreditMemoResponse toResponse(CreditMemoRequest request, @NonNull JsonNode result) {
+        if (request == null) {
+            throw new IllegalArgumentException("No request matches this record ID");
+        }
+        if (result.hasNonNull("error")) {
+            throw new CreditMemoGenerationException("Model invocation failed: " + result.get("error"));
+        }
+        StringBuilder text = new StringBuilder();
+        result.path("modelOutput").path("content").forEach(block -> {
+            if ("text".equals(block.path("type").asText())) {
+                text.append(block.path("text").asText());
+            }
+        });
+        if (text.isEmpty()) {
+            throw new CreditMemoGenerationException("Model output has no text content");
+        }
+        CreditMemoDocument document = creditMemoService.parseDocument(request, text.toString());
+        JsonNode usage = result.path("modelOutput").path("usage");
+        return creditMemoService.buildResponse(request, document, SummaryTemplates.render(request), 0,
+            new TokenUsage(usage.path("input_tokens").asInt(), usage.path("output_tokens").asInt()));
+    }
+    
+    @NonNull
+    private ObjectNode modelInput(@NonNull String system, @NonNull String prompt) {
+        ObjectNode input = objectMapper.createObjectNode();
+        input.put("anthropic_version", ANTHROPIC_VERSION);
+        input.put("max_tokens", maxTokens);
+        input.put("temperature", temperature);
+        input.put("system", system);
+        ObjectNode message = input.putArray("messages").addObject();
+        message.put("role", "user");
+        ObjectNode content = message.putArray("content").addObject();
+        content.put("type", "text");
+        content.put("text", prompt);
+        return input;
+    }
+    
+    private MappingIterator<JsonNode> readRequests(@NonNull Path requestsFile) throws IOException {
+        return objectMapper.readerFor(JsonNode.class).readValues(requestsFile.toFile());
+    }
+    
+    /**
+     * Bind and validate one line of the requests file, as the online endpoints do
+     * @param index zero-based position of the line
+     * @throws IllegalArgumentException naming the line when it is not a valid request
+     */
+    @NonNull
+    private CreditMemoRequest toRequest(JsonNode node, int index) {
+        CreditMemoRequest request;
+        try {
+            request = objectMapper.treeToValue(node, CreditMemoRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Line " + (index + 1) + ": Malformed request: " + e.getOriginalMessage());
+        }
+        if (request == null) {
+            throw new IllegalArgumentException("Line " + (index + 1) + ": Not a credit memo request object");
+        }
+        Set<ConstraintViolation<CreditMemoRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            Map<String, String> errors = new TreeMap<>();
+            violations.forEach(v -> errors.put(v.getPropertyPath().toString(), v.getMessage()));
+            throw new IllegalArgumentException("Line " + (index + 1) + ": Invalid request parameters: " + errors);
+        }
+        return request;
+    }
+    
+    /**
+     * Bedrock batch record IDs are 11 alphanumeric characters
+     */
+    @NonNull
+    static String recordId(int index) {
+        return String.format("CM%09d", index);
+    }
+}
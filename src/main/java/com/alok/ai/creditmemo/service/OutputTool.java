@@ -0,0 +1,40 @@
+package com.alok.ai.creditmemo.service;
+
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.lang.NonNull;
+
+/**
+ * Converse tool whose input schema is the JSON answer expected from a call.
+ * 
+ * It is offered with internal tool execution off, so the model's call to it is the answer and
+ * the tool itself never runs.
+ */
+final class OutputTool implements ToolCallback {
+    
+    private final ToolDefinition definition;
+    
+    OutputTool(@NonNull String name, @NonNull String description, @NonNull String inputSchema) {
+        this.definition = ToolDefinition.builder()
+            .name(name)
+            .description(description)
+            .inputSchema(inputSchema)
+            .build();
+    }
+    
+    @NonNull
+    String name() {
+        return definition.name();
+    }
+    
+    @Override
+    @NonNull
+    public ToolDefinition getToolDefinition() {
+        return definition;
+    }
+    
+    @Override
+    public String call(String toolInput) {
+        throw new UnsupportedOperationException(definition.name() + " is the answer to a call and is never executed");
+    }
+}
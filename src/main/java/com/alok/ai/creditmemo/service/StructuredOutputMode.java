@@ -0,0 +1,17 @@
+package com.alok.ai.creditmemo.service;
+
+/**
+ * How calls answered in JSON ask for it
+ */
+public enum StructuredOutputMode {
+    
+    /**
+     * The JSON schema and format instructions are part of the system prompt and the model answers in text
+     */
+    PROMPT,
+    
+    /**
+     * The schema is the input schema of a Converse tool and the model answers by calling it
+     */
+    TOOL
+}
@@ -0,0 +1,227 @@
+package com.alok.ai.creditmemo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds the JSON a model returns to a record, reading the output text as it is.
+ * 
+ * Output that starts with a JSON object, as tool input and well-behaved text answers do, is bound
+ * by one Jackson pass with no cleanup of the text first. Anything else is repaired by binding the
+ * span from the first {@code {} to the last {@code }}, which drops markdown fences and prose
+ * around the object. Each parse is counted in {@code creditmemo.output.parse}, tagged with the
+ * schema and the outcome: {@code parsed}, {@code repaired} or {@code failed}.
+ * 
+ * Output cut off by the token limit can still be salvaged: {@link #salvage} binds the members
+ * that arrived complete. Salvages and full regenerations are counted in
+ * {@code creditmemo.output.recovery}, tagged with the schema and the action: {@code salvage}
+ * or {@code retry}.
+ */
+@Component
+public class StructuredOutputParser {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StructuredOutputParser.class);
+    
+    static final String METER_NAME = "creditmemo.output.parse";
+    
+    static final String RECOVERY_METER_NAME = "creditmemo.output.recovery";
+    
+    private final ObjectMapper objectMapper;
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    
+    public StructuredOutputParser(@NonNull ObjectMapper objectMapper, @NonNull MeterRegistry meterRegistry) {
+        this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper must not be null");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null");
+    }
+    
+    /**
+     * @param schema name of the expected output for metrics and errors: document, narrative or validation
+     * @throws InvalidModelOutputException when no JSON object of the type can be read from the output
+     */
+    @NonNull
+    public <T> T parse(@NonNull String schema, @NonNull Class<T> type, String output) {
+        if (output == null || output.isBlank()) {
+            count(schema, "failed");
+            throw new InvalidModelOutputException("Model returned no " + schema + " output", output, null);
+        }
+        ObjectReader reader = readers.computeIfAbsent(type, objectMapper::readerFor);
+        
+        JsonProcessingException failure = null;
+        if (output.charAt(firstNonWhitespace(output)) == '{') {
+            try {
+                T value = reader.readValue(output);
+                if (value != null) {
+                    count(schema, "parsed");
+                    return value;
+                }
+            } catch (JsonProcessingException e) {
+                failure = e;
+            }
+        }
+        
+        int open = output.indexOf('{');
+        int close = output.lastIndexOf('}');
+        if (open >= 0 && close > open && (open > 0 || close < output.length() - 1)) {
+            try {
+                T value = reader.readValue(output.substring(open, close + 1));
+                if (value != null) {
+                    count(schema, "repaired");
+                    logger.debug("Repaired {} output by trimming {} leading and {} trailing characters",
+                                 schema, open, output.length() - 1 - close);
+                    return value;
+                }
+            } catch (JsonProcessingException e) {
+                failure = e;
+            }
+        }
+        
+        count(schema, "failed");
+        throw new InvalidModelOutputException("Model output is not valid " + schema + " JSON"
+            + (failure != null ? ": " + failure.getOriginalMessage() : ""), output, failure);
+    }
+    
+    /**
+     * Bind what arrived of a truncated JSON object: every member that was complete before the
+     * output stopped, including those of nested objects and arrays. Counted as a salvage.
+     * @return the partial value, or null when the output holds no object to salvage
+     */
+    public <T> T salvage(@NonNull String schema, @NonNull Class<T> type, String output) {
+        String closed = output != null ? closeTruncated(output) : null;
+        if (closed == null) {
+            return null;
+        }
+        try {
+            T value = readers.computeIfAbsent(type, objectMapper::readerFor).readValue(closed);
+            if (value != null) {
+                countRecovery(schema, "salvage");
+                logger.debug("Salvaged {} output from the first {} of {} characters",
+                             schema, closed.length(), output.length());
+            }
+            return value;
+        } catch (JsonProcessingException e) {
+            logger.debug("Could not salvage {} output: {}", schema, e.getOriginalMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Count a call made again from scratch because its output could not be used
+     */
+    public void retried(@NonNull String schema) {
+        countRecovery(schema, "retry");
+    }
+    
+    /**
+     * The output from its first {@code {} up to the end of the last complete value, with the
+     * objects and arrays still open there closed. Scans the output once, tracking the open
+     * brackets and whether it is inside a string.
+     * @return null when the output has no {@code {}
+     */
+    static String closeTruncated(@NonNull String output) {
+        int start = output.indexOf('{');
+        if (start < 0) {
+            return null;
+        }
+        // Closing bracket of each container still open, innermost last
+        StringBuilder open = new StringBuilder();
+        int cut = start;
+        String closers = "";
+        boolean inString = false;
+        boolean escaped = false;
+        boolean valueString = false;
+        char last = 0;
+        for (int i = start; i < output.length(); i++) {
+            char c = output.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    last = c;
+                    if (valueString) {
+                        cut = i + 1;
+                        closers = reversed(open);
+                    }
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    // Array elements and strings after a colon are values; other strings are member names
+                    valueString = last == ':' || (!open.isEmpty() && open.charAt(open.length() - 1) == ']');
+                }
+                case '{', '[' -> {
+                    open.append(c == '{' ? '}' : ']');
+                    cut = i + 1;
+                    closers = reversed(open);
+                }
+                case '}', ']' -> {
+                    open.setLength(open.length() - 1);
+                    if (open.isEmpty()) {
+                        // The object is complete
+                        return output.substring(start, i + 1);
+                    }
+                    cut = i + 1;
+                    closers = reversed(open);
+                }
+                case ',' -> {
+                    cut = i;
+                    closers = reversed(open);
+                }
+                default -> {
+                }
+            }
+            if (!Character.isWhitespace(c)) {
+                last = c;
+            }
+        }
+        return output.substring(start, cut) + closers;
+    }
+    
+    private static String reversed(StringBuilder open) {
+        return new StringBuilder(open).reverse().toString();
+    }
+    
+    private static int firstNonWhitespace(String output) {
+        int i = 0;
+        while (i < output.length() - 1 && Character.isWhitespace(output.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private void countRecovery(String schema, String action) {
+        Counter.builder(RECOVERY_METER_NAME)
+            .description("Unusable structured model outputs, by how they were recovered")
+            .tag("schema", schema)
+            .tag("action", action)
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    private void count(String schema, String outcome) {
+        Counter.builder(METER_NAME)
+            .description("Structured model outputs parsed, by outcome")
+            .tag("schema", schema)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -0,0 +1,13 @@
+package com.alok.ai.creditmemo.service;
+
+/**
+ * How the management summary of a credit memo is produced
+ */
+public enum SummaryMode {
+    /** Ask the model for a 2-3 sentence summary */
+    LLM,
+    /** Render the summary locally from a per-reason template, no model call */
+    TEMPLATE,
+    /** Skip the summary entirely */
+    NONE
+}
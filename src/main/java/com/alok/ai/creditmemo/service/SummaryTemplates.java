@@ -0,0 +1,71 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.CreditReason;
+import org.springframework.lang.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Deterministic credit memo summaries rendered from one template per {@link CreditReason}.
+ * Placeholders: 1 customer name, 2 customer ID, 3 amount, 4 currency, 5 invoice number,
+ * 6 reason description. The requester and approval line is appended to every template.
+ */
+public final class SummaryTemplates {
+    
+    private static final Map<CreditReason, String> TEMPLATES = new EnumMap<>(CreditReason.class);
+    
+    static {
+        TEMPLATES.put(CreditReason.PRODUCT_RETURN,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) for goods returned against invoice %5$s. Return details: %6$s.");
+        TEMPLATES.put(CreditReason.DEFECTIVE_GOODS,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) as compensation for defective goods supplied under invoice %5$s. Defect reported: %6$s.");
+        TEMPLATES.put(CreditReason.BILLING_ERROR,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) to correct a billing error on invoice %5$s. Error identified: %6$s.");
+        TEMPLATES.put(CreditReason.OVERCHARGE,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) to refund an overcharge on invoice %5$s. Overcharge identified: %6$s.");
+        TEMPLATES.put(CreditReason.PRICE_ADJUSTMENT,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) reflecting a price adjustment to invoice %5$s. Adjustment basis: %6$s.");
+        TEMPLATES.put(CreditReason.SERVICE_ISSUE,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) in recognition of a service issue relating to invoice %5$s. Issue reported: %6$s.");
+        TEMPLATES.put(CreditReason.CANCELLATION,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) following cancellation of the order billed on invoice %5$s. Cancellation details: %6$s.");
+        TEMPLATES.put(CreditReason.GOODWILL_GESTURE,
+            "A goodwill credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) in connection with invoice %5$s. Context: %6$s.");
+        TEMPLATES.put(CreditReason.OTHER,
+            "A credit of %3$s %4$s is to be issued to %1$s (ID: %2$s) against invoice %5$s. Reason: %6$s.");
+    }
+    
+    private SummaryTemplates() {
+    }
+    
+    /**
+     * Render the summary for a request from the template matching its credit reason
+     */
+    @NonNull
+    @SuppressWarnings("null")
+    public static String render(@NonNull CreditMemoRequest request) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        
+        String template = TEMPLATES.get(request.creditDetails().reason());
+        String summary = String.format(template,
+            request.customer().customerName(),
+            request.customer().customerId(),
+            request.creditDetails().creditAmount().toPlainString(),
+            request.originalTransaction().currency(),
+            request.originalTransaction().invoiceNumber(),
+            stripTrailingPeriod(request.creditDetails().reasonDescription()));
+        
+        return summary + String.format(" Requested by %s (%s); %s.",
+            request.requester().name(),
+            request.requester().requesterType(),
+            request.creditDetails().requiresApproval() ? "approval is required before issue" : "no further approval is required");
+    }
+    
+    private static String stripTrailingPeriod(String text) {
+        String trimmed = text.strip();
+        return trimmed.endsWith(".") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
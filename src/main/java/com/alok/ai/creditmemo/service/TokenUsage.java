@@ -0,0 +1,70 @@
+package com.alok.ai.creditmemo.service;
+
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.lang.NonNull;
+
+/**
+ * Input and output tokens reported by the model for one or more calls.
+ * 
+ * Input tokens are the uncached part of the prompt; the cached prefix is counted separately as
+ * tokens read from the prompt cache, or written to it by the call that first sent the prefix.
+ */
+public record TokenUsage(int inputTokens, int outputTokens, int cacheReadTokens, int cacheWriteTokens) {
+    
+    public static final TokenUsage NONE = new TokenUsage(0, 0);
+    
+    static final String CACHE_READ_KEY = "cacheReadInputTokens";
+    
+    static final String CACHE_WRITE_KEY = "cacheWriteInputTokens";
+    
+    public TokenUsage(int inputTokens, int outputTokens) {
+        this(inputTokens, outputTokens, 0, 0);
+    }
+    
+    /**
+     * Usage from a chat response's metadata; zero when the model did not report it
+     */
+    @NonNull
+    public static TokenUsage of(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return NONE;
+        }
+        ChatResponseMetadata metadata = response.getMetadata();
+        Usage usage = metadata.getUsage();
+        if (usage == null) {
+            return NONE;
+        }
+        int cacheRead = intValue(metadata.get(CACHE_READ_KEY));
+        int cacheWrite = intValue(metadata.get(CACHE_WRITE_KEY));
+        // Streamed responses carry the cache counts only on Bedrock's own usage object
+        if (usage.getNativeUsage() instanceof software.amazon.awssdk.services.bedrockruntime.model.TokenUsage bedrock) {
+            cacheRead = Math.max(cacheRead, intValue(bedrock.cacheReadInputTokens()));
+            cacheWrite = Math.max(cacheWrite, intValue(bedrock.cacheWriteInputTokens()));
+        }
+        return new TokenUsage(
+            usage.getPromptTokens() != null ? usage.getPromptTokens() : 0,
+            usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0,
+            cacheRead,
+            cacheWrite);
+    }
+    
+    private static int intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+    
+    public int totalTokens() {
+        return inputTokens + outputTokens;
+    }
+    
+    public boolean isEmpty() {
+        return totalTokens() == 0 && cacheReadTokens == 0 && cacheWriteTokens == 0;
+    }
+    
+    @NonNull
+    public TokenUsage plus(@NonNull TokenUsage other) {
+        return new TokenUsage(inputTokens + other.inputTokens, outputTokens + other.outputTokens,
+                              cacheReadTokens + other.cacheReadTokens, cacheWriteTokens + other.cacheWriteTokens);
+    }
+}
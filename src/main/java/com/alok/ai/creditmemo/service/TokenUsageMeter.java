@@ -0,0 +1,58 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Publishes model token usage as the {@code creditmemo.tokens} distribution summary.
+ * 
+ * One sample per model call and direction ({@code input} / {@code output}, and
+ * {@code cache-read} / {@code cache-write} for the prompt prefix served from or written to the
+ * Bedrock prompt cache), tagged with the
+ * endpoint that triggered the call, the call itself ({@code document}, {@code summary},
+ * {@code validation}), the requester type, the credit reason and the model. The summary's
+ * total is the token counter; its distribution shows prompt size drift.
+ */
+@Component
+public class TokenUsageMeter {
+    
+    static final String METER_NAME = "creditmemo.tokens";
+    
+    private final MeterRegistry meterRegistry;
+    
+    public TokenUsageMeter(@NonNull MeterRegistry meterRegistry) {
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "MeterRegistry must not be null");
+    }
+    
+    public void record(@NonNull String endpoint, @NonNull String call, @NonNull CreditMemoRequest request,
+                       @NonNull String model, @NonNull TokenUsage usage) {
+        if (usage.isEmpty()) {
+            return;
+        }
+        Tags tags = Tags.of(
+            "endpoint", endpoint,
+            "call", call,
+            "requester.type", request.requester().requesterType().name(),
+            "credit.reason", request.creditDetails().reason().name(),
+            "model", model);
+        summary(tags, "input").record(usage.inputTokens());
+        summary(tags, "output").record(usage.outputTokens());
+        summary(tags, "cache-read").record(usage.cacheReadTokens());
+        summary(tags, "cache-write").record(usage.cacheWriteTokens());
+    }
+    
+    private DistributionSummary summary(Tags tags, String direction) {
+        return DistributionSummary.builder(METER_NAME)
+            .description("Tokens per model call")
+            .baseUnit("tokens")
+            .tags(tags)
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+}
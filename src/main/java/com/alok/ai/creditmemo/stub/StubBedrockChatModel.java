@@ -0,0 +1,379 @@
+package com.alok.ai.creditmemo.stub;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoNarrative;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatGenerationMetadata;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.bedrockruntime.model.InternalServerException;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for the Bedrock chat model, for load tests that must not spend quota.
+ * 
+ * Document prompts are answered with schema-valid {@link CreditMemoDocument} JSON built from
+ * the labelled values in the prompt, narrative prompts with a {@link CreditMemoNarrative}, line
+ * item reason prompts with one reason per listed item, validation prompts with a validation
+ * result, and anything else with a short summary. When the request offers a tool, the JSON
+ * answer comes back as a call to it. Answers longer than the call's max tokens are cut off
+ * there. Latency, failures and throttling follow {@code creditmemo.stub.*};
+ * failures are the exceptions the Bedrock SDK would throw.
+ * 
+ * System prompts long enough for Bedrock to cache are treated as cached for five minutes after
+ * each use: the first call reports them as cache-write tokens, later ones as cache-read tokens,
+ * and neither counts them as input tokens.
+ */
+public class StubBedrockChatModel implements ChatModel {
+    
+    static final String MODEL = "stub-llm";
+    
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+    
+    private static final String LINE_ITEM_PREFIX = "- Item: ";
+    
+    // Bedrock's minimum cacheable prefix for Claude Sonnet
+    private static final int MIN_CACHED_TOKENS = 1024;
+    
+    private static final long CACHE_TTL_NANOS = Duration.ofMinutes(5).toNanos();
+    
+    // System prompt to the time its cache entry expires
+    private final Map<String, Long> promptCache = new ConcurrentHashMap<>();
+    
+    private final ObjectMapper objectMapper;
+    
+    private final double latencyMu;
+    
+    private final double latencySigma;
+    
+    private final double errorRate;
+    
+    private final double throttleRate;
+    
+    private final int streamChunkSize;
+    
+    public StubBedrockChatModel(@NonNull CreditMemoProperties.Stub config, @NonNull ObjectMapper objectMapper) {
+        this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper must not be null");
+        double median = Math.max(config.latencyMedian().toNanos(), 1);
+        double p99 = Math.max(config.latencyP99().toNanos(), median);
+        this.latencyMu = Math.log(median);
+        this.latencySigma = Math.log(p99 / median) / Z_99;
+        this.errorRate = config.errorRate();
+        this.throttleRate = config.throttleRate();
+        this.streamChunkSize = Math.max(config.streamChunkSize(), 1);
+    }
+    
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        failOrThrottle();
+        String answer = respond(prompt);
+        String output = truncate(prompt, answer);
+        sleep(sampleLatency());
+        return response(prompt, output, output.length() < answer.length());
+    }
+    
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            failOrThrottle();
+            String answer = respond(prompt);
+            String output = truncate(prompt, answer);
+            boolean truncated = output.length() < answer.length();
+            List<ChatResponse> chunks = new ArrayList<>();
+            if (toolOf(prompt) != null) {
+                // Bedrock streams tool input as deltas that Spring AI hands over whole on the last chunk
+                chunks.add(response(prompt, output, truncated));
+            } else {
+                for (int i = 0; i < output.length(); i += streamChunkSize) {
+                    String chunk = output.substring(i, Math.min(output.length(), i + streamChunkSize));
+                    chunks.add(new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+                }
+                // Like Bedrock, usage arrives on a final chunk with no text
+                chunks.add(response(prompt, "", truncated));
+            }
+            
+            // A fifth of the latency before the first token, the rest spread over the chunks
+            Duration latency = sampleLatency();
+            Duration firstToken = latency.dividedBy(5);
+            Duration perChunk = latency.minus(firstToken).dividedBy(chunks.size());
+            return Flux.fromIterable(chunks)
+                .delayElements(perChunk)
+                .delaySubscription(firstToken);
+        });
+    }
+    
+    private void failOrThrottle() {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < throttleRate) {
+            throw ThrottlingException.builder()
+                .message("Too many requests, please wait before trying again. (simulated)")
+                .statusCode(429)
+                .build();
+        }
+        if (roll < throttleRate + errorRate) {
+            throw InternalServerException.builder()
+                .message("The server encountered an error processing the request. (simulated)")
+                .statusCode(500)
+                .build();
+        }
+    }
+    
+    private Duration sampleLatency() {
+        double nanos = Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofNanos((long) nanos);
+    }
+    
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Stub model call interrupted", e);
+        }
+    }
+    
+    private ChatResponse response(Prompt prompt, String output, boolean truncated) {
+        // Answers as whichever model the call was routed to
+        String model = prompt.getOptions() != null && prompt.getOptions().getModel() != null
+            ? prompt.getOptions().getModel()
+            : MODEL;
+        // Roughly four characters per token, as for English text
+        String system = prompt.getSystemMessage().getText();
+        int systemTokens = system != null ? system.length() / 4 : 0;
+        int cacheRead = 0;
+        int cacheWrite = 0;
+        if (systemTokens >= MIN_CACHED_TOKENS) {
+            long now = System.nanoTime();
+            Long expiry = promptCache.put(model + '\n' + system, now + CACHE_TTL_NANOS);
+            if (expiry != null && expiry - now > 0) {
+                cacheRead = systemTokens;
+            } else {
+                cacheWrite = systemTokens;
+            }
+        }
+        int inputTokens = prompt.getContents().length() / 4 - cacheRead - cacheWrite;
+        DefaultUsage usage = new DefaultUsage(inputTokens, Math.max(output.length() / 4, 1));
+        String tool = toolOf(prompt);
+        AssistantMessage message = tool != null && !output.isEmpty()
+            ? AssistantMessage.builder()
+                .content("")
+                .toolCalls(List.of(new AssistantMessage.ToolCall(
+                    "tooluse_" + Long.toHexString(ThreadLocalRandom.current().nextLong()), "function", tool, output)))
+                .build()
+            : new AssistantMessage(output);
+        // Bedrock's stop reason becomes the generation's finish reason
+        String stopReason = truncated ? "max_tokens" : tool != null ? "tool_use" : "end_turn";
+        return new ChatResponse(List.of(new Generation(message,
+                ChatGenerationMetadata.builder().finishReason(stopReason).build())),
+            ChatResponseMetadata.builder()
+                .model(model)
+                .usage(usage)
+                .keyValue("cacheReadInputTokens", cacheRead)
+                .keyValue("cacheWriteInputTokens", cacheWrite)
+                .build());
+    }
+    
+    // Like Bedrock, stops at the call's max tokens, mid-JSON if need be
+    private static String truncate(Prompt prompt, String output) {
+        Integer maxTokens = prompt.getOptions() != null ? prompt.getOptions().getMaxTokens() : null;
+        return maxTokens != null && output.length() > maxTokens * 4 ? output.substring(0, maxTokens * 4) : output;
+    }
+    
+    // Name of the tool offered for the answer, or null when the answer is expected as text
+    private static String toolOf(Prompt prompt) {
+        return prompt.getOptions() instanceof ToolCallingChatOptions options && !options.getToolCallbacks().isEmpty()
+            ? options.getToolCallbacks().getFirst().getToolDefinition().name()
+            : null;
+    }
+    
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().model(MODEL).build();
+    }
+    
+    private String respond(Prompt request) {
+        // The instructions and any tool schema say what is asked for; the data comes from the user message alone
+        String instructions = request.getContents();
+        if (request.getOptions() instanceof ToolCallingChatOptions options) {
+            for (ToolCallback tool : options.getToolCallbacks()) {
+                instructions += tool.getToolDefinition().inputSchema();
+            }
+        }
+        String prompt = request.getUserMessage().getText();
+        if (instructions.contains("\"creditMemoNumber\"")) {
+            return toJson(document(labelledValues(prompt), lineItems(prompt)));
+        }
+        if (instructions.contains("\"lineItemReasons\"")) {
+            CreditMemoNarrative narrative = narrative(labelledValues(prompt), prompt);
+            // Line item reasons of one chunk of a chunked memo
+            return instructions.contains("\"detailedExplanation\"")
+                ? toJson(narrative)
+                : toJson(Map.of("lineItemReasons", narrative.lineItemReasons()));
+        }
+        if (instructions.contains("riskLevel")) {
+            return """
+                {"isValid": true, "issues": [], "recommendations": ["Confirm the supporting evidence before approval"], "riskLevel": "MEDIUM"}""";
+        }
+        Map<String, String> values = labelledValues(prompt);
+        return "Credit memo requested for %s against invoice %s, for %s. The request is consistent with the original transaction and is ready for management review."
+            .formatted(values.getOrDefault("Customer", "the customer"),
+                       values.getOrDefault("Original Invoice", "the original invoice"),
+                       values.getOrDefault("Credit Amount", "the stated amount"));
+    }
+    
+    private CreditMemoDocument document(Map<String, String> values, List<String[]> lineItems) {
+        List<String> affected = Arrays.stream(values.getOrDefault("Affected Items", "All items").split(","))
+            .map(String::strip)
+            .toList();
+        String reasonDescription = values.getOrDefault("Reason Description", "Credit requested");
+        List<CreditMemoDocument.CreditLineItem> creditLines = lineItems.stream()
+            .filter(item -> affected.contains("All items") || affected.contains(item[0]))
+            .map(item -> new CreditMemoDocument.CreditLineItem(item[1], integer(item[2]), money(item[3]), money(item[4]),
+                reasonDescription))
+            .toList();
+        BigDecimal total = money(values.get("Credit Amount (incl. tax)"));
+        BigDecimal subtotal = money(values.get("Subtotal (excl. tax)"));
+        
+        return new CreditMemoDocument(
+            values.getOrDefault("Credit Memo Number", "CM-0000-STUB0000"),
+            date(values.get("Issue Date")),
+            new CreditMemoDocument.IssuerDetails(
+                values.get("Issuer Name"), values.get("Issuer Address"), values.get("Issuer Email"),
+                values.get("Issuer Phone"), values.get("Issuer Account")),
+            new CreditMemoDocument.RecipientDetails(
+                values.get("Customer ID"), values.get("Customer Name"), values.get("Billing Address"),
+                values.get("Customer Email"), values.get("Customer Phone"), values.get("Account Number"), null),
+            new CreditMemoDocument.OriginalInvoiceReference(
+                values.get("Invoice Number"), date(values.get("Invoice Date")), money(values.get("Original Amount"))),
+            new CreditMemoDocument.CreditInformation(
+                values.get("Credit Reason"),
+                "This credit memo corrects the original invoice following the reported issue: " + reasonDescription
+                + ". The credited amount will be applied to the customer's account and shown on the next statement. "
+                + "No further action is required from the customer.",
+                values.getOrDefault("Credit Type", "PARTIAL")),
+            creditLines,
+            new CreditMemoDocument.FinancialSummary(subtotal, total.subtract(subtotal), total, "GBP"),
+            "This credit memo will be applied to your account within 5-7 business days.",
+            values.get("Requested By"),
+            values.get("Additional Notes"));
+    }
+    
+    private static CreditMemoNarrative narrative(Map<String, String> values, String prompt) {
+        String reasonDescription = values.getOrDefault("Reason Description", "Credit requested");
+        long items = prompt.lines().filter(line -> line.strip().startsWith("- ") && line.contains(" | Qty: ")).count();
+        return new CreditMemoNarrative(
+            "This credit memo corrects invoice " + values.getOrDefault("Invoice Number", "the original invoice")
+            + " following the reported issue: " + reasonDescription
+            + ". The credited amount will be applied to the customer's account and shown on the next statement. "
+            + "No further action is required from the customer.",
+            Collections.nCopies((int) items, reasonDescription),
+            values.getOrDefault("Additional Notes", ""));
+    }
+    
+    /**
+     * {@code Label: value} lines of the prompt's data section, first occurrence wins
+     */
+    private static Map<String, String> labelledValues(String prompt) {
+        Map<String, String> values = new HashMap<>();
+        for (String line : prompt.split("\n")) {
+            if (line.startsWith("YOU MUST OUTPUT")) {
+                break;
+            }
+            String stripped = line.strip();
+            if (stripped.startsWith("- ") && !stripped.startsWith(LINE_ITEM_PREFIX)) {
+                stripped = stripped.substring(2);
+            }
+            int colon = stripped.indexOf(": ");
+            if (colon > 0 && !stripped.startsWith(LINE_ITEM_PREFIX)) {
+                values.putIfAbsent(stripped.substring(0, colon).strip(), stripped.substring(colon + 2).strip());
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * {@code - Item: id | Description: d | Qty: n | Unit Price: £x | Total: £y} lines as
+     * [id, description, quantity, unit price, total]
+     */
+    private static List<String[]> lineItems(String prompt) {
+        List<String[]> items = new ArrayList<>();
+        for (String line : prompt.split("\n")) {
+            String stripped = line.strip();
+            if (!stripped.startsWith(LINE_ITEM_PREFIX)) {
+                continue;
+            }
+            String[] fields = stripped.substring(2).split(" \\| ");
+            if (fields.length == 5) {
+                String[] item = new String[5];
+                for (int i = 0; i < 5; i++) {
+                    item[i] = fields[i].substring(fields[i].indexOf(": ") + 2).strip();
+                }
+                items.add(item);
+            }
+        }
+        return items;
+    }
+    
+    private static BigDecimal money(String value) {
+        if (value == null) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        try {
+            return new BigDecimal(value.replace("£", "").strip()).setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+    }
+    
+    private static int integer(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+    
+    private static LocalDate date(String value) {
+        try {
+            return value != null ? LocalDate.parse(value) : LocalDate.now();
+        } catch (DateTimeParseException e) {
+            return LocalDate.now();
+        }
+    }
+    
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stub model could not serialise its response", e);
+        }
+    }
+}
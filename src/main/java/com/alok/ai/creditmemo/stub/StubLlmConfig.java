@@ -0,0 +1,29 @@
+package com.alok.ai.creditmemo.stub;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces the Bedrock chat model with {@link StubBedrockChatModel} under the {@code stub-llm}
+ * profile; application-stub-llm.yaml switches the Bedrock autoconfiguration off
+ */
+@Configuration
+@Profile("stub-llm")
+public class StubLlmConfig {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StubLlmConfig.class);
+    
+    @Bean
+    public ChatModel stubBedrockChatModel(CreditMemoProperties properties, ObjectMapper objectMapper) {
+        CreditMemoProperties.Stub stub = properties.stub();
+        logger.warn("Using the stub chat model: median latency {}, p99 {}, error rate {}, throttle rate {}",
+                    stub.latencyMedian(), stub.latencyP99(), stub.errorRate(), stub.throttleRate());
+        return new StubBedrockChatModel(stub, objectMapper);
+    }
+}
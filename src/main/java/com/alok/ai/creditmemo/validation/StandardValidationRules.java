@@ -0,0 +1,145 @@
+package com.alok.ai.creditmemo.validation;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.LineItem;
+import com.alok.ai.creditmemo.validation.ValidationRule.RuleOutcome;
+import org.springframework.lang.NonNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The built-in validation rules
+ */
+public final class StandardValidationRules {
+    
+    private StandardValidationRules() {
+    }
+    
+    @NonNull
+    public static List<ValidationRule> all(@NonNull CreditMemoProperties.Validation config) {
+        return List.of(
+            rule("credit-amount-positive", StandardValidationRules::creditAmountPositive),
+            rule("credit-within-original", StandardValidationRules::creditWithinOriginal),
+            rule("affected-items-exist", StandardValidationRules::affectedItemsExist),
+            rule("line-totals-consistent", request -> lineTotalsConsistent(request, config.lineTotalTolerance())),
+            rule("credit-within-affected-items", StandardValidationRules::creditWithinAffectedItems),
+            rule("reason-described", request -> reasonDescribed(request, config.minReasonLength())),
+            rule("auto-accept-limit", request -> autoAcceptLimit(request, config.autoAcceptMaxAmount()))
+        );
+    }
+    
+    private static ValidationRule rule(String name, Function<CreditMemoRequest, RuleOutcome> check) {
+        return new ValidationRule() {
+            @Override
+            @NonNull
+            public String name() {
+                return name;
+            }
+            
+            @Override
+            @NonNull
+            public RuleOutcome evaluate(@NonNull CreditMemoRequest request) {
+                return check.apply(request);
+            }
+        };
+    }
+    
+    private static RuleOutcome creditAmountPositive(CreditMemoRequest request) {
+        return request.creditDetails().creditAmount().signum() > 0
+            ? RuleOutcome.PASS
+            : RuleOutcome.fail("Credit amount must be greater than zero");
+    }
+    
+    private static RuleOutcome creditWithinOriginal(CreditMemoRequest request) {
+        BigDecimal credit = request.creditDetails().creditAmount();
+        BigDecimal original = request.originalTransaction().originalAmount();
+        return credit.compareTo(original) <= 0
+            ? RuleOutcome.PASS
+            : RuleOutcome.fail("Credit amount " + credit.toPlainString()
+                + " exceeds the original transaction amount " + original.toPlainString());
+    }
+    
+    private static RuleOutcome affectedItemsExist(CreditMemoRequest request) {
+        List<String> affected = request.creditDetails().affectedItems();
+        if (affected == null || affected.isEmpty()) {
+            return RuleOutcome.PASS;
+        }
+        List<LineItem> lineItems = request.originalTransaction().lineItems();
+        if (lineItems == null || lineItems.isEmpty()) {
+            return RuleOutcome.review("Affected items are listed but the original transaction has no line items");
+        }
+        if (affected.stream().anyMatch(itemId -> itemId == null || itemId.isBlank())) {
+            return RuleOutcome.fail("Affected items must not contain a missing or blank item ID");
+        }
+        List<String> unknown = new ArrayList<>();
+        for (String itemId : affected) {
+            if (lineItems.stream().noneMatch(item -> itemId.equals(item.itemId()))) {
+                unknown.add(itemId);
+            }
+        }
+        return unknown.isEmpty()
+            ? RuleOutcome.PASS
+            : RuleOutcome.fail("Affected items not present in the original line items: " + String.join(", ", unknown));
+    }
+    
+    private static RuleOutcome lineTotalsConsistent(CreditMemoRequest request, BigDecimal tolerance) {
+        List<LineItem> lineItems = request.originalTransaction().lineItems();
+        if (lineItems == null) {
+            return RuleOutcome.PASS;
+        }
+        List<String> mismatches = new ArrayList<>();
+        for (LineItem item : lineItems) {
+            if (item.unitPrice() == null || item.totalPrice() == null) {
+                continue;
+            }
+            BigDecimal expected = item.unitPrice().multiply(BigDecimal.valueOf(item.quantity()));
+            if (expected.subtract(item.totalPrice()).abs().compareTo(tolerance) > 0) {
+                mismatches.add(item.itemId() + " (" + item.quantity() + " x " + item.unitPrice().toPlainString()
+                    + " != " + item.totalPrice().toPlainString() + ")");
+            }
+        }
+        return mismatches.isEmpty()
+            ? RuleOutcome.PASS
+            : RuleOutcome.fail("Line totals do not equal quantity x unit price: " + String.join(", ", mismatches));
+    }
+    
+    private static RuleOutcome creditWithinAffectedItems(CreditMemoRequest request) {
+        List<String> affected = request.creditDetails().affectedItems();
+        List<LineItem> lineItems = request.originalTransaction().lineItems();
+        if (affected == null || affected.isEmpty() || lineItems == null || lineItems.isEmpty()) {
+            return RuleOutcome.PASS;
+        }
+        Map<String, BigDecimal> totals = new HashMap<>();
+        lineItems.forEach(item -> {
+            if (item.itemId() != null && item.totalPrice() != null) {
+                totals.merge(item.itemId(), item.totalPrice(), BigDecimal::add);
+            }
+        });
+        BigDecimal affectedTotal = affected.stream()
+            .map(id -> totals.getOrDefault(id, BigDecimal.ZERO))
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return request.creditDetails().creditAmount().compareTo(affectedTotal) <= 0
+            ? RuleOutcome.PASS
+            : RuleOutcome.fail("Credit amount " + request.creditDetails().creditAmount().toPlainString()
+                + " exceeds the total of the affected items " + affectedTotal.toPlainString());
+    }
+    
+    private static RuleOutcome reasonDescribed(CreditMemoRequest request, int minLength) {
+        String description = request.creditDetails().reasonDescription();
+        return description != null && description.strip().length() >= minLength
+            ? RuleOutcome.PASS
+            : RuleOutcome.review("Reason description is too brief to justify the credit");
+    }
+    
+    private static RuleOutcome autoAcceptLimit(CreditMemoRequest request, BigDecimal maxAmount) {
+        return request.creditDetails().creditAmount().compareTo(maxAmount) <= 0
+            ? RuleOutcome.PASS
+            : RuleOutcome.review("Credit amount is above the automatic acceptance limit of " + maxAmount.toPlainString());
+    }
+}
@@ -0,0 +1,42 @@
+package com.alok.ai.creditmemo.validation;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import org.springframework.lang.NonNull;
+
+/**
+ * A deterministic check on a credit memo request
+ */
+public interface ValidationRule {
+    
+    /**
+     * Stable rule name, used in configuration and metrics
+     */
+    @NonNull
+    String name();
+    
+    @NonNull
+    RuleOutcome evaluate(@NonNull CreditMemoRequest request);
+    
+    /**
+     * @param verdict PASS, REVIEW (needs judgement) or FAIL (request is definitely invalid)
+     * @param message issue or reason for review; null on PASS
+     */
+    record RuleOutcome(Verdict verdict, String message) {
+        
+        public static final RuleOutcome PASS = new RuleOutcome(Verdict.PASS, null);
+        
+        public static RuleOutcome review(String message) {
+            return new RuleOutcome(Verdict.REVIEW, message);
+        }
+        
+        public static RuleOutcome fail(String message) {
+            return new RuleOutcome(Verdict.FAIL, message);
+        }
+    }
+    
+    enum Verdict {
+        PASS,
+        REVIEW,
+        FAIL
+    }
+}
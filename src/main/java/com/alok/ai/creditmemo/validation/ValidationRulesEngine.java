@@ -0,0 +1,117 @@
+package com.alok.ai.creditmemo.validation;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.validation.ValidationRule.RuleOutcome;
+import com.alok.ai.creditmemo.validation.ValidationRule.Verdict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the configured validation rules locally before any model call.
+ * 
+ * Any FAIL rejects the request and all PASS accepts it; anything flagged for REVIEW is
+ * escalated to the model. Each rule's evaluation time and outcome is recorded in the
+ * {@code creditmemo.validation.rule} timer, tagged with the rule name and verdict, and every
+ * decision in the {@code creditmemo.validation.decisions} counter.
+ */
+@Component
+public class ValidationRulesEngine {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ValidationRulesEngine.class);
+    
+    private final List<ValidationRule> rules;
+    
+    private final boolean enabled;
+    
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+    
+    private final Map<String, Map<Verdict, Timer>> timers;
+    
+    public ValidationRulesEngine(@NonNull CreditMemoProperties properties, @NonNull MeterRegistry meterRegistry) {
+        CreditMemoProperties.Validation config = properties.validation();
+        this.enabled = config.rulesEnabled();
+        this.rules = StandardValidationRules.all(config).stream()
+            .filter(rule -> !config.disabledRules().contains(rule.name()))
+            .toList();
+        
+        for (Decision decision : Decision.values()) {
+            decisions.put(decision, Counter.builder("creditmemo.validation.decisions")
+                .tag("decision", decision.name())
+                .register(meterRegistry));
+        }
+        this.timers = new HashMap<>();
+        for (ValidationRule rule : rules) {
+            Map<Verdict, Timer> byVerdict = new EnumMap<>(Verdict.class);
+            for (Verdict verdict : Verdict.values()) {
+                byVerdict.put(verdict, Timer.builder("creditmemo.validation.rule")
+                    .tag("rule", rule.name())
+                    .tag("verdict", verdict.name())
+                    .register(meterRegistry));
+            }
+            timers.put(rule.name(), byVerdict);
+        }
+        
+        logger.info("Validation rules engine {} with rules {}", 
+                    enabled ? "enabled" : "disabled",
+                    rules.stream().map(ValidationRule::name).toList());
+    }
+    
+    /**
+     * Evaluate every rule; the verdict is ESCALATE when the engine is disabled
+     */
+    @NonNull
+    public RulesVerdict evaluate(@NonNull CreditMemoRequest request) {
+        Objects.requireNonNull(request, "CreditMemoRequest must not be null");
+        if (!enabled) {
+            return new RulesVerdict(Decision.ESCALATE, List.of(), List.of());
+        }
+        
+        List<String> failures = new ArrayList<>();
+        List<String> reviews = new ArrayList<>();
+        for (ValidationRule rule : rules) {
+            long start = System.nanoTime();
+            RuleOutcome outcome = rule.evaluate(request);
+            timers.get(rule.name()).get(outcome.verdict()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            switch (outcome.verdict()) {
+                case FAIL -> failures.add(outcome.message());
+                case REVIEW -> reviews.add(outcome.message());
+                case PASS -> { }
+            }
+        }
+        
+        Decision decision = !failures.isEmpty() ? Decision.REJECT
+            : !reviews.isEmpty() ? Decision.ESCALATE
+            : Decision.ACCEPT;
+        decisions.get(decision).increment();
+        return new RulesVerdict(decision, failures, reviews);
+    }
+    
+    public enum Decision {
+        /** Every rule passed; no model call needed */
+        ACCEPT,
+        /** At least one rule failed; no model call needed */
+        REJECT,
+        /** Some rule needs judgement; ask the model */
+        ESCALATE
+    }
+    
+    /**
+     * @param failures messages from failed rules
+     * @param reviews  messages from rules that flagged the request for review
+     */
+    public record RulesVerdict(Decision decision, List<String> failures, List<String> reviews) {}
+}
@@ -0,0 +1,25 @@
+package com.alok.ai.creditmemo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestFingerprintTest {
+
+    record Amounts(BigDecimal amount, String currency) {}
+
+    @Test
+    void equalDecimalsHashTheSame() {
+        assertThat(RequestFingerprint.of(new Amounts(new BigDecimal("500.00"), "GBP")))
+            .isEqualTo(RequestFingerprint.of(new Amounts(new BigDecimal("500"), "GBP")))
+            .isEqualTo(RequestFingerprint.of(new Amounts(new BigDecimal("5E+2"), "GBP")));
+    }
+
+    @Test
+    void differentValuesHashDifferently() {
+        assertThat(RequestFingerprint.of(new Amounts(new BigDecimal("500.01"), "GBP")))
+            .isNotEqualTo(RequestFingerprint.of(new Amounts(new BigDecimal("500"), "GBP")));
+    }
+}
@@ -0,0 +1,60 @@
+package com.alok.ai.creditmemo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpringAiConfigTest {
+
+    private static CreditMemoProperties properties(Map<String, String> values) {
+        return new Binder(new MapConfigurationPropertySource(values)).bindOrCreate("creditmemo", CreditMemoProperties.class);
+    }
+
+    @Test
+    void clientSendsItsDefaultOptionsAndSystemPrompt() {
+        AtomicReference<Prompt> sent = new AtomicReference<>();
+        ChatModel model = prompt -> {
+            sent.set(prompt);
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("{}"))));
+        };
+        CreditMemoProperties.ClientOptions options = properties(Map.of(
+            "creditmemo.clients.validation.max-tokens", "1024",
+            "creditmemo.clients.validation.temperature", "0")).clients().validation();
+
+        SpringAiConfig.chatClient(model, "validation", options, SpringAiConfig.SYSTEM_PROMPT)
+            .prompt().user("Validate this").call().content();
+
+        assertThat(sent.get().getOptions().getMaxTokens()).isEqualTo(1024);
+        assertThat(sent.get().getOptions().getTemperature()).isZero();
+        assertThat(sent.get().getSystemMessage().getText()).isEqualTo(SpringAiConfig.SYSTEM_PROMPT);
+    }
+
+    @Test
+    void misconfiguredClientStopsStartup() {
+        ChatModel model = prompt -> {
+            throw new UnsupportedOperationException();
+        };
+        CreditMemoProperties.Clients clients = properties(Map.of(
+            "creditmemo.clients.summary.max-tokens", "0",
+            "creditmemo.clients.validation.temperature", "1.5")).clients();
+
+        assertThatThrownBy(() -> SpringAiConfig.chatClient(model, "summary", clients.summary(), null))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("creditmemo.clients.summary.max-tokens must be at least 1");
+        assertThatThrownBy(() -> SpringAiConfig.chatClient(model, "validation", clients.validation(), null))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("temperature");
+    }
+}
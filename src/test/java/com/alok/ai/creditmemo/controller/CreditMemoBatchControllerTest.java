@@ -0,0 +1,183 @@
+package com.alok.ai.creditmemo.controller;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.config.ExecutionConfig;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.RequesterRateLimiter;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.alok.ai.creditmemo.service.CreditMemoBatchService;
+import com.alok.ai.creditmemo.service.CreditMemoGenerationException;
+import com.alok.ai.creditmemo.service.CreditMemoService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = CreditMemoBatchController.class, properties = {
+    "creditmemo.batch.max-items=3",
+    "creditmemo.batch.max-body-size=16KB",
+    "creditmemo.rate-limits.per-requester.rps=0.01",
+    "creditmemo.rate-limits.per-requester.burst=2"
+})
+@Import({CreditMemoBatchService.class, RequesterRateLimiter.class, ExecutionConfig.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties(CreditMemoProperties.class)
+class CreditMemoBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private CreditMemoService creditMemoService;
+
+    @Test
+    void ndjsonBatchStreamsOneResultPerItemWithCorrelationIds() throws Exception {
+        String sample = Files.readString(Path.of("samples/sample-request-billing-error.json"));
+        String ok = ((ObjectNode) objectMapper.readTree(sample)).put("correlationId", "ok-1").toString();
+        String failing = ((ObjectNode) objectMapper.readTree(sample)).put("correlationId", "boom-2").toString()
+            .replace("CUST12345", "CUST-FAIL");
+        String invalid = "{\"correlationId\": \"bad-3\", \"customer\": {}}";
+
+        CreditMemoResponse response = mock(CreditMemoResponse.class);
+        when(creditMemoService.generateCreditMemo(argThat(r -> r != null && "CUST12345".equals(r.customer().customerId()))))
+            .thenReturn(response);
+        when(creditMemoService.generateCreditMemo(argThat(r -> r != null && "CUST-FAIL".equals(r.customer().customerId()))))
+            .thenThrow(new CreditMemoGenerationException("Bedrock unavailable"));
+
+        Map<String, JsonNode> results = generate(String.join("\n", ok, failing, invalid));
+
+        assertThat(results).containsOnlyKeys("ok-1", "boom-2", "bad-3");
+        assertThat(results.get("ok-1").get("error").isNull()).isTrue();
+        assertThat(results.get("boom-2").get("error").get("status").asInt()).isEqualTo(500);
+        assertThat(results.get("bad-3").get("error").get("status").asInt()).isEqualTo(400);
+        assertThat(results.get("bad-3").get("index").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void itemsTurnedAwayForCapacityCarryTheirOwnStatusAndMessage() throws Exception {
+        String sample = Files.readString(Path.of("samples/sample-request-billing-error.json"))
+            .replace("REQ001", "REQ-CAPACITY");
+        String full = ((ObjectNode) objectMapper.readTree(sample)).put("correlationId", "full-1").toString();
+        String open = ((ObjectNode) objectMapper.readTree(sample)).put("correlationId", "open-2").toString()
+            .replace("CUST12345", "CUST-OPEN");
+
+        when(creditMemoService.generateCreditMemo(argThat(r -> r != null && "CUST12345".equals(r.customer().customerId()))))
+            .thenThrow(new ModelCapacityExceededException("Too many model calls waiting",
+                ModelCapacityExceededException.Reason.QUEUE_FULL, Duration.ofSeconds(1)));
+        when(creditMemoService.generateCreditMemo(argThat(r -> r != null && "CUST-OPEN".equals(r.customer().customerId()))))
+            .thenThrow(new ModelCapacityExceededException("Circuit open for document",
+                ModelCapacityExceededException.Reason.CIRCUIT_OPEN, Duration.ofSeconds(30)));
+
+        Map<String, JsonNode> results = generate(String.join("\n", full, open));
+
+        assertThat(results.get("full-1").get("error").get("status").asInt()).isEqualTo(429);
+        assertThat(results.get("full-1").get("error").get("message").asText()).isEqualTo("Too many model calls waiting");
+        assertThat(results.get("open-2").get("error").get("status").asInt()).isEqualTo(503);
+        assertThat(results.get("open-2").get("error").get("message").asText()).isEqualTo("Circuit open for document");
+    }
+
+    @Test
+    void itemsOverTheRequesterRateLimitFailWith429() throws Exception {
+        String sample = Files.readString(Path.of("samples/sample-request-billing-error.json"))
+            .replace("REQ001", "REQ-FLOOD");
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            items.add(((ObjectNode) objectMapper.readTree(sample)).put("correlationId", "flood-" + i).toString());
+        }
+        when(creditMemoService.generateCreditMemo(argThat(r -> r != null && "REQ-FLOOD".equals(r.requester().requesterId()))))
+            .thenReturn(mock(CreditMemoResponse.class));
+
+        Map<String, JsonNode> results = generate(String.join("\n", items));
+
+        // A burst of two per requester: the third item is turned away without a model call
+        List<JsonNode> limited = results.values().stream().filter(result -> !result.get("error").isNull()).toList();
+        assertThat(limited).singleElement().satisfies(result -> {
+            assertThat(result.at("/error/status").asInt()).isEqualTo(429);
+            assertThat(result.at("/error/message").asText()).startsWith("Rate limit for requester REQ-FLOOD exceeded");
+        });
+        verify(creditMemoService, times(2)).generateCreditMemo(argThat(r -> r != null && "REQ-FLOOD".equals(r.requester().requesterId())));
+    }
+
+    @Test
+    void batchOverTheItemLimitIsRejectedBeforeAnyMemoIsGenerated() throws Exception {
+        String sample = objectMapper.readTree(Files.readString(Path.of("samples/sample-request-billing-error.json"))).toString();
+
+        mockMvc.perform(post("/api/v1/credit-memos/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(String.join("\n", sample, sample, sample, sample)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Batch exceeds the limit of 3 items"));
+
+        verifyNoInteractions(creditMemoService);
+    }
+
+    @Test
+    void batchBodyOverTheSizeLimitIsRejected() throws Exception {
+        String sample = objectMapper.readTree(Files.readString(Path.of("samples/sample-request-billing-error.json"))).toString();
+
+        mockMvc.perform(post("/api/v1/credit-memos/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(sample + " ".repeat(16 * 1024)))
+            .andExpect(status().isPayloadTooLarge());
+
+        verifyNoInteractions(creditMemoService);
+    }
+
+    private Map<String, JsonNode> generate(String ndjson) throws Exception {
+        MvcResult async = mockMvc.perform(post("/api/v1/credit-memos/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(async))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+
+        return Arrays.stream(body.split("\n"))
+            .filter(line -> !line.isBlank())
+            .map(line -> {
+                try {
+                    return objectMapper.readTree(line);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            })
+            .collect(Collectors.toMap(node -> node.get("correlationId").asText(), node -> node));
+    }
+}
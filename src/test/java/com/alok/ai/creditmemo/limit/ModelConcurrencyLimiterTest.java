@@ -0,0 +1,206 @@
+package com.alok.ai.creditmemo.limit;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException.Reason;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ModelConcurrencyLimiter limiter(Map<String, String> values) {
+        CreditMemoProperties properties = new Binder(new MapConfigurationPropertySource(values))
+            .bindOrCreate("creditmemo", CreditMemoProperties.class);
+        ModelConcurrencyLimiter limiter = new ModelConcurrencyLimiter(properties, meterRegistry);
+        limiter.bindTo(meterRegistry);
+        return limiter;
+    }
+
+    @Test
+    void callsOnVirtualThreadsNeverExceedTheLimit() throws Exception {
+        ModelConcurrencyLimiter limiter = limiter(Map.of("creditmemo.model-calls.max-concurrent", "3"));
+        ChatModel slowModel = prompt -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+        };
+        ChatClient chatClient = ChatClient.builder(slowModel).defaultAdvisors(limiter).build();
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> chatClient.prompt().user("hi").call().content()));
+            }
+        }
+
+        for (Future<String> result : results) {
+            assertThat(result.resultNow()).isEqualTo("ok");
+        }
+        assertThat(limiter.peakActive()).isEqualTo(3);
+        assertThat(limiter.active()).isZero();
+        assertThat(meterRegistry.get("creditmemo.model.calls.wait").timer().count()).isEqualTo(20);
+    }
+
+    @Test
+    void callerIsRejectedWhenNoSlotFreesUpInTime() {
+        ModelConcurrencyLimiter limiter = limiter(Map.of(
+            "creditmemo.model-calls.min-concurrent", "1",
+            "creditmemo.model-calls.max-concurrent", "1",
+            "creditmemo.model-calls.acquire-timeout", "20ms",
+            "creditmemo.model-calls.retry-after", "7s"));
+
+        long start = limiter.acquire();
+        assertThatThrownBy(limiter::acquire)
+            .isInstanceOfSatisfying(ModelCapacityExceededException.class, e -> {
+                assertThat(e.getReason()).isEqualTo(Reason.TIMED_OUT);
+                assertThat(e.getRetryAfter()).hasSeconds(7);
+            });
+        assertThat(meterRegistry.get("creditmemo.model.calls.rejected").tag("reason", "timed-out")
+            .counter().count()).isEqualTo(1);
+
+        limiter.release(start, null);
+        limiter.acquire();
+        assertThat(limiter.active()).isEqualTo(1);
+    }
+
+    @Test
+    void callerIsRejectedAtOnceWhenTheQueueIsFull() {
+        ModelConcurrencyLimiter limiter = limiter(Map.of(
+            "creditmemo.model-calls.min-concurrent", "1",
+            "creditmemo.model-calls.max-concurrent", "1",
+            "creditmemo.model-calls.max-queued", "0"));
+
+        limiter.acquire();
+        long start = System.nanoTime();
+        assertThatThrownBy(limiter::acquire)
+            .isInstanceOfSatisfying(ModelCapacityExceededException.class,
+                e -> assertThat(e.getReason()).isEqualTo(Reason.QUEUE_FULL));
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void interactiveCallersTakeFreedSlotsBeforeBackgroundCallers() throws Exception {
+        ModelConcurrencyLimiter limiter = limiter(Map.of(
+            "creditmemo.model-calls.min-concurrent", "1",
+            "creditmemo.model-calls.max-concurrent", "1"));
+
+        long held = limiter.acquire();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Long> background = executor.submit(() -> limiter.acquire(ModelConcurrencyLimiter.Priority.BACKGROUND));
+            awaitWaiting("background", 1);
+            Future<Long> interactive = executor.submit(() -> limiter.acquire(ModelConcurrencyLimiter.Priority.INTERACTIVE));
+            awaitWaiting("interactive", 1);
+
+            limiter.release(held, null);
+            long interactiveStart = interactive.get(5, TimeUnit.SECONDS);
+            assertThat(background.isDone()).isFalse();
+
+            limiter.release(interactiveStart, null);
+            limiter.release(background.get(5, TimeUnit.SECONDS), null);
+        }
+        assertThat(limiter.active()).isZero();
+    }
+
+    private void awaitWaiting(String priority, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("creditmemo.model.calls.waiting").tag("priority", priority).gauge().value() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void throttlingCutsTheLimitOncePerWindowAndSuccessGrowsItBack() {
+        ModelConcurrencyLimiter limiter = limiter(Map.of(
+            "creditmemo.model-calls.min-concurrent", "1",
+            "creditmemo.model-calls.initial-concurrent", "10",
+            "creditmemo.model-calls.max-concurrent", "20",
+            "creditmemo.model-calls.backoff-ratio", "0.5",
+            "creditmemo.model-calls.latency-tolerance", "1000"));
+        ThrottlingException throttled = (ThrottlingException) ThrottlingException.builder()
+            .message("Too many requests")
+            .statusCode(429)
+            .build();
+
+        List<Long> starts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            starts.add(limiter.acquire());
+        }
+        // Every call of the burst is throttled, but the limit is cut once
+        limiter.release(starts.get(0), throttled);
+        limiter.release(starts.get(1), throttled);
+        limiter.release(starts.get(2), throttled);
+        assertThat(limiter.limit()).isEqualTo(5);
+        assertThat(meterRegistry.get("creditmemo.model.calls.limit.decreases").tag("cause", "throttled")
+            .counter().count()).isEqualTo(1);
+
+        // A call admitted after the cut and still throttled cuts again
+        limiter.abandon();
+        limiter.release(limiter.acquire(), throttled);
+        assertThat(limiter.limit()).isEqualTo(2);
+
+        // The rest of the burst is cancelled
+        for (int i = 4; i < starts.size(); i++) {
+            limiter.abandon();
+        }
+
+        // Healthy calls while the limit is in use grow it back
+        for (int i = 0; i < 10; i++) {
+            long first = limiter.acquire();
+            long second = limiter.acquire();
+            limiter.release(first, null);
+            limiter.release(second, null);
+        }
+        assertThat(limiter.limit()).isGreaterThan(2);
+        assertThat(meterRegistry.get("creditmemo.model.calls.limit").gauge().value()).isEqualTo(limiter.limit());
+    }
+
+    @Test
+    void slowerKindOfCallIsNotTakenForASlowerModel() throws InterruptedException {
+        ModelConcurrencyLimiter limiter = limiter(Map.of(
+            "creditmemo.model-calls.initial-concurrent", "10",
+            "creditmemo.model-calls.latency-tolerance", "2"));
+
+        // Quick summaries set their own average, which much slower document calls do not join
+        for (int i = 0; i < 20; i++) {
+            limiter.release(limiter.acquire(), "summary/summary", null);
+        }
+        for (int i = 0; i < 5; i++) {
+            long start = limiter.acquire();
+            Thread.sleep(20);
+            limiter.release(start, "document/document", null);
+        }
+        assertThat(meterRegistry.get("creditmemo.model.calls.limit.decreases").tag("cause", "latency")
+            .counter().count()).isZero();
+
+        // A summary as slow as the documents is a slowdown, and cuts the limit
+        long start = limiter.acquire();
+        Thread.sleep(20);
+        limiter.release(start, "summary/summary", null);
+        assertThat(meterRegistry.get("creditmemo.model.calls.limit.decreases").tag("cause", "latency")
+            .counter().count()).isEqualTo(1);
+    }
+}
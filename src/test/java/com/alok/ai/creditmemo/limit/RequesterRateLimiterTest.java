@@ -0,0 +1,121 @@
+package com.alok.ai.creditmemo.limit;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.RequesterInfo;
+import com.alok.ai.creditmemo.model.CreditMemoRequest.RequesterType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequesterRateLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RequesterRateLimiter limiter(Map<String, String> values) {
+        CreditMemoProperties properties = new Binder(new MapConfigurationPropertySource(values))
+            .bindOrCreate("creditmemo", CreditMemoProperties.class);
+        return new RequesterRateLimiter(properties, meterRegistry);
+    }
+
+    private static RequesterInfo requester(String id, RequesterType type) {
+        return new RequesterInfo(id, type, "Test Requester", null, null);
+    }
+
+    @Test
+    void requesterIsRejectedOnceItsBurstIsUsed() {
+        RequesterRateLimiter limiter = limiter(Map.of(
+            "creditmemo.rate-limits.per-requester.rps", "1",
+            "creditmemo.rate-limits.per-requester.burst", "2"));
+        RequesterInfo busy = requester("REQ001", RequesterType.BANK_COLLEAGUE);
+
+        limiter.acquire(busy);
+        limiter.acquire(busy);
+        assertThatThrownBy(() -> limiter.acquire(busy))
+            .isInstanceOfSatisfying(RateLimitExceededException.class, e -> assertThat(e.getRetryAfter())
+                .isPositive()
+                .isLessThanOrEqualTo(Duration.ofSeconds(1)));
+        assertThat(meterRegistry.get("creditmemo.ratelimit.rejected").tag("scope", "requester")
+            .tag("requester.type", "BANK_COLLEAGUE").counter().count()).isEqualTo(1);
+
+        // Other requesters have their own bucket
+        assertThatCode(() -> limiter.acquire(requester("REQ002", RequesterType.BANK_COLLEAGUE)))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void typeOverItsTokenBudgetIsRejectedUntilTheDebtIsRepaid() {
+        RequesterRateLimiter limiter = limiter(Map.of(
+            "creditmemo.rate-limits.requester-types.SYSTEM_AUTOMATED.tokens-per-minute", "600"));
+        RequesterInfo batch = requester("SYS001", RequesterType.SYSTEM_AUTOMATED);
+
+        limiter.acquire(batch);
+        // Twice the budget used: a minute of refill is owed before the next request
+        limiter.recordTokens(RequesterType.SYSTEM_AUTOMATED, 1200);
+        assertThatThrownBy(() -> limiter.acquire(requester("SYS002", RequesterType.SYSTEM_AUTOMATED)))
+            .isInstanceOfSatisfying(RateLimitExceededException.class, e -> assertThat(e.getRetryAfter())
+                .isGreaterThan(Duration.ofSeconds(55))
+                .isLessThanOrEqualTo(Duration.ofSeconds(60)));
+        assertThat(meterRegistry.get("creditmemo.ratelimit.rejected").tag("scope", "token-budget")
+            .counter().count()).isEqualTo(1);
+
+        assertThatCode(() -> limiter.acquire(requester("REQ001", RequesterType.BANK_COLLEAGUE)))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    void typeBucketIsSharedByItsRequesters() {
+        RequesterRateLimiter limiter = limiter(Map.of(
+            "creditmemo.rate-limits.requester-types.BUSINESS_CUSTOMER.rps", "1",
+            "creditmemo.rate-limits.requester-types.BUSINESS_CUSTOMER.burst", "1"));
+
+        limiter.acquire(requester("CUST1", RequesterType.BUSINESS_CUSTOMER));
+        assertThatThrownBy(() -> limiter.acquire(requester("CUST2", RequesterType.BUSINESS_CUSTOMER)))
+            .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void rejectedRequestsSpendNoTokenInTheOtherBucket() {
+        RequesterRateLimiter limiter = limiter(Map.of(
+            "creditmemo.rate-limits.per-requester.rps", "1",
+            "creditmemo.rate-limits.per-requester.burst", "1",
+            "creditmemo.rate-limits.requester-types.BUSINESS_CUSTOMER.rps", "1",
+            "creditmemo.rate-limits.requester-types.BUSINESS_CUSTOMER.burst", "2"));
+        RequesterInfo noisy = requester("CUST1", RequesterType.BUSINESS_CUSTOMER);
+
+        limiter.acquire(noisy);
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> limiter.acquire(noisy)).isInstanceOf(RateLimitExceededException.class);
+        }
+        // The noisy requester's rejections left the type's second token for someone else
+        limiter.acquire(requester("CUST2", RequesterType.BUSINESS_CUSTOMER));
+
+        // A request the type turns away leaves the requester's token in place
+        RequesterInfo patient = requester("CUST3", RequesterType.BUSINESS_CUSTOMER);
+        assertThatThrownBy(() -> limiter.acquire(patient))
+            .hasMessageContaining("Rate limit for BUSINESS_CUSTOMER requests exceeded");
+        assertThatThrownBy(() -> limiter.acquire(patient))
+            .hasMessageContaining("Rate limit for BUSINESS_CUSTOMER requests exceeded");
+    }
+
+    @Test
+    void nothingIsLimitedWhenDisabled() {
+        RequesterRateLimiter limiter = limiter(Map.of(
+            "creditmemo.rate-limits.enabled", "false",
+            "creditmemo.rate-limits.per-requester.rps", "1"));
+        RequesterInfo requester = requester("REQ001", RequesterType.BANK_COLLEAGUE);
+
+        assertThatCode(() -> {
+            for (int i = 0; i < 10; i++) {
+                limiter.acquire(requester);
+            }
+        }).doesNotThrowAnyException();
+    }
+}
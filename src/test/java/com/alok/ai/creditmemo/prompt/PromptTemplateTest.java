@@ -0,0 +1,40 @@
+package com.alok.ai.creditmemo.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PromptTemplateTest {
+
+    @Test
+    void rendersRepeatedAndTypedSlots() {
+        PromptTemplate template = PromptTemplate.compile("test",
+            "Memo {{number}} for £{{amount:money}} ({{amount}}); see {{ number }}.");
+
+        String rendered = template.render(template.arguments()
+            .set("number", "CM-1")
+            .set("amount", new BigDecimal("1234.5"))
+            .set("unused", "ignored"));
+
+        assertThat(rendered).isEqualTo("Memo CM-1 for £1234.50 (1234.5); see CM-1.");
+        assertThat(template.slotNames()).containsExactlyInAnyOrder("number", "amount");
+    }
+
+    @Test
+    void rejectsMalformedUnknownAndMissingSlots() {
+        assertThatThrownBy(() -> PromptTemplate.compile("test", "Hello {{name"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Unterminated");
+        assertThatThrownBy(() -> PromptTemplate.compile("test", "{{amount:percent}}"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("percent");
+        assertThatThrownBy(() -> PromptTemplate.compile("test", "{{name}} {{typo}}").requireSlotsWithin(Set.of("name")))
+            .isInstanceOf(IllegalStateException.class).hasMessageContaining("[typo]");
+
+        PromptTemplate template = PromptTemplate.compile("test", "Hello {{name}}");
+        assertThatThrownBy(() -> template.render(template.arguments()))
+            .isInstanceOf(IllegalStateException.class).hasMessageContaining("name");
+    }
+}
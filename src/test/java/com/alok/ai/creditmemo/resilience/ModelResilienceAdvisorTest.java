@@ -0,0 +1,157 @@
+package com.alok.ai.creditmemo.resilience;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException;
+import com.alok.ai.creditmemo.limit.ModelCapacityExceededException.Reason;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import software.amazon.awssdk.services.bedrockruntime.model.InternalServerException;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelResilienceAdvisorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void closeExecutor() {
+        executor.close();
+    }
+
+    private ModelResilienceAdvisor advisor(Map<String, String> values) {
+        CreditMemoProperties properties = new Binder(new MapConfigurationPropertySource(values))
+            .bindOrCreate("creditmemo", CreditMemoProperties.class);
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .waitDurationInOpenState(Duration.ofSeconds(30))
+            .ignoreException(new ThrottlingFailure())
+            .build());
+        RetryRegistry retries = RetryRegistry.of(RetryConfig.custom()
+            .maxAttempts(3)
+            .waitDuration(Duration.ofMillis(5))
+            .retryOnException(new RetryableModelFailure())
+            .build());
+        return new ModelResilienceAdvisor(circuitBreakers, retries, BulkheadRegistry.ofDefaults(), executor,
+                                          properties, meterRegistry);
+    }
+
+    private static ChatResponse ok(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static String summary(ChatClient chatClient) {
+        return chatClient.prompt()
+            .advisors(advisor -> advisor.param(ModelResilienceAdvisor.CALL, "summary"))
+            .user("hi")
+            .call()
+            .content();
+    }
+
+    @Test
+    void throttledCallsAreRetried() {
+        ChatModel model = prompt -> {
+            if (calls.incrementAndGet() < 3) {
+                throw ThrottlingException.builder().message("Too many requests").statusCode(429).build();
+            }
+            return ok("ok");
+        };
+        ChatClient chatClient = ChatClient.builder(model).defaultAdvisors(advisor(Map.of())).build();
+
+        assertThat(summary(chatClient)).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void openCircuitFailsFastWithoutCallingTheModel() {
+        ChatModel model = prompt -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Bedrock is down");
+        };
+        ChatClient chatClient = ChatClient.builder(model).defaultAdvisors(advisor(Map.of())).build();
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> summary(chatClient)).isInstanceOf(IllegalStateException.class);
+        }
+        assertThatThrownBy(() -> summary(chatClient))
+            .isInstanceOfSatisfying(ModelCapacityExceededException.class, e -> {
+                assertThat(e.getReason()).isEqualTo(Reason.CIRCUIT_OPEN);
+                assertThat(e.getRetryAfter()).hasSeconds(30);
+            });
+        assertThat(calls).hasValue(4);
+        assertThat(meterRegistry.get("creditmemo.model.calls.rejected").tag("reason", "circuit-open")
+            .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void serverErrorsAreRetriedButCountTowardsTheCircuit() {
+        ChatModel model = prompt -> {
+            calls.incrementAndGet();
+            throw InternalServerException.builder().message("Internal error").statusCode(500).build();
+        };
+        ChatClient chatClient = ChatClient.builder(model).defaultAdvisors(advisor(Map.of())).build();
+
+        assertThatThrownBy(() -> summary(chatClient)).isInstanceOf(InternalServerException.class);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void slowCallIsHedgedAndTheFirstResponseWins() {
+        ModelResilienceAdvisor advisor = advisor(Map.of(
+            "creditmemo.hedging.enabled", "true",
+            "creditmemo.hedging.min-samples", "5",
+            "creditmemo.hedging.min-delay", "20ms"));
+        ChatModel model = prompt -> {
+            if (calls.incrementAndGet() == 6) {
+                // The first attempt of the sixth call hangs until the hedge wins and cancels it
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("cancelled");
+                }
+            }
+            return ok("ok");
+        };
+        ChatClient chatClient = ChatClient.builder(model).defaultAdvisors(advisor).build();
+
+        for (int i = 0; i < 5; i++) {
+            summary(chatClient);
+        }
+        long start = System.nanoTime();
+        assertThat(summary(chatClient)).isEqualTo("ok");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+
+        ModelResilienceAdvisor.HedgeStats stats = advisor.hedgeStats().get("summary");
+        assertThat(stats.hedged()).isEqualTo(1);
+        assertThat(stats.hedgeWins()).isEqualTo(1);
+        assertThat(stats.hedgeWinRate()).isEqualTo(1.0);
+        assertThat(stats.delay()).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+    }
+}
@@ -0,0 +1,41 @@
+package com.alok.ai.creditmemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkSizerTest {
+
+    private final ChunkSizer sizer = new ChunkSizer(CreditMemoFixtures.properties(Map.of(
+        "creditmemo.generation.chunking.chunk-output-tokens", "1000",
+        "creditmemo.generation.chunking.initial-chunk-size", "25",
+        "creditmemo.generation.chunking.min-chunk-size", "5",
+        "creditmemo.generation.chunking.max-chunk-size", "80")).generation().chunking());
+
+    @Test
+    void sizeFollowsTheMeasuredOutputTokensPerItem() {
+        assertThat(sizer.size()).isEqualTo(25);
+
+        // 20 tokens per item: 1000 / 20
+        sizer.record(25, 500);
+        assertThat(sizer.size()).isEqualTo(50);
+
+        // Longer reasons pull the average up and the size down: 20 + 0.2 * (60 - 20) = 28 per item
+        sizer.record(10, 600);
+        assertThat(sizer.tokensPerItem()).isEqualTo(28.0);
+        assertThat(sizer.size()).isEqualTo(35);
+    }
+
+    @Test
+    void sizeStaysWithinItsBounds() {
+        sizer.record(10, 10);
+        assertThat(sizer.size()).isEqualTo(80);
+
+        for (int i = 0; i < 50; i++) {
+            sizer.record(1, 2000);
+        }
+        assertThat(sizer.size()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,115 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.cache.CaffeineResponseCacheFactory;
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.config.SpringAiConfig;
+import com.alok.ai.creditmemo.limit.ModelConcurrencyLimiter;
+import com.alok.ai.creditmemo.limit.RequesterRateLimiter;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.prompt.CreditMemoPrompts;
+import com.alok.ai.creditmemo.resilience.ModelResilienceAdvisor;
+import com.alok.ai.creditmemo.resilience.RetryableModelFailure;
+import com.alok.ai.creditmemo.validation.ValidationRulesEngine;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Shared request and model-output fixtures for service tests
+ */
+final class CreditMemoFixtures {
+
+    static final String DOCUMENT_JSON = """
+        {
+          "creditMemoNumber": "CM-2024-TEST0001",
+          "issueDate": "2024-02-01",
+          "issuer": {"name": "UK Business Bank PLC", "address": "1 Bank Street, London", "email": "cs@bank.com", "phone": "0800-123-4567", "accountNumber": "N/A (Bank)"},
+          "recipient": {"customerId": "CUST12345", "name": "Acme Corporation Ltd", "address": "123 High Street, London", "email": "billing@acme.co.uk", "phone": "N/A", "accountNumber": "ACC1", "bankDetails": null},
+          "originalInvoice": {"invoiceNumber": "INV-2024-001", "invoiceDate": "2024-01-15", "originalAmount": 5000.00},
+          "creditInfo": {"reason": "BILLING_ERROR", "detailedExplanation": "Pricing corrected.", "creditType": "PARTIAL"},
+          "creditLineItems": [{"itemDescription": "Professional Services", "quantity": 1, "unitPrice": 5000.00, "lineTotal": 500.00, "reasonForCredit": "Overcharge"}],
+          "financialSummary": {"subtotal": 416.67, "taxAmount": 83.33, "totalCreditAmount": 500.00, "currency": "GBP"},
+          "termsAndConditions": "Applied within 5-7 business days.",
+          "authorizedBy": "John Smith",
+          "notes": "None"
+        }
+        """;
+
+    static final String NARRATIVE_JSON = """
+        {"detailedExplanation": "Pricing corrected by the model.", "lineItemReasons": ["Rate card error"], "notes": ""}""";
+
+    private CreditMemoFixtures() {
+    }
+
+    /**
+     * Bind properties the way Spring does, so unspecified values take their defaults
+     */
+    static CreditMemoProperties properties(Map<String, String> values) {
+        return new Binder(new MapConfigurationPropertySource(values))
+            .bindOrCreate("creditmemo", CreditMemoProperties.class);
+    }
+
+    /**
+     * Service wired with in-memory collaborators, as the application context would
+     */
+    static CreditMemoService service(ChatModel model, ExecutorService executor, CreditMemoProperties properties) {
+        return service(model, executor, properties, new SimpleMeterRegistry());
+    }
+
+    static CreditMemoService service(ChatModel model, ExecutorService executor, CreditMemoProperties properties,
+                                     MeterRegistry meterRegistry) {
+        ModelConcurrencyLimiter concurrencyLimiter = new ModelConcurrencyLimiter(properties, meterRegistry);
+        ModelResilienceAdvisor resilienceAdvisor = new ModelResilienceAdvisor(CircuitBreakerRegistry.ofDefaults(),
+            RetryRegistry.of(RetryConfig.custom()
+                .retryOnException(new RetryableModelFailure())
+                .waitDuration(Duration.ofMillis(10))
+                .build()),
+            BulkheadRegistry.ofDefaults(), executor, properties, meterRegistry);
+        SpringAiConfig config = new SpringAiConfig();
+        return new CreditMemoService(
+            config.documentChatClient(model, properties, resilienceAdvisor, concurrencyLimiter),
+            config.summaryChatClient(model, properties, resilienceAdvisor, concurrencyLimiter),
+            config.validationChatClient(model, properties, resilienceAdvisor, concurrencyLimiter),
+            executor, properties, new CaffeineResponseCacheFactory(meterRegistry),
+            new ValidationRulesEngine(properties, meterRegistry), new TokenUsageMeter(meterRegistry),
+            new CreditMemoPrompts(new DefaultResourceLoader(), properties),
+            new RequesterRateLimiter(properties, meterRegistry), new ModelRouter(model, properties),
+            new StructuredOutputParser(Jackson2ObjectMapperBuilder.json().build(), meterRegistry));
+    }
+
+    static CreditMemoRequest request() {
+        return new CreditMemoRequest(
+            new CreditMemoRequest.RequesterInfo("REQ001", CreditMemoRequest.RequesterType.BANK_COLLEAGUE,
+                "John Smith", "john.smith@ukbusinessbank.com", "Customer Service"),
+            null,
+            new CreditMemoRequest.CustomerInfo("CUST12345", "Acme Corporation Ltd", "billing@acme.co.uk", null,
+                new CreditMemoRequest.Address("123 High Street", "London", "Greater London", "EC1A 1BB", "United Kingdom"),
+                "ACC1", null),
+            new CreditMemoRequest.TransactionInfo("TXN001", "INV-2024-001", LocalDate.of(2024, 1, 15),
+                new BigDecimal("5000.00"), "GBP",
+                List.of(new CreditMemoRequest.LineItem("ITEM001", "Professional Services", 1,
+                    new BigDecimal("5000.00"), new BigDecimal("5000.00")))),
+            new CreditMemoRequest.CreditDetails(CreditMemoRequest.CreditReason.BILLING_ERROR,
+                "Incorrect pricing applied", new BigDecimal("500.00"), List.of("ITEM001"),
+                "Customer notified", true, "manager@ukbusinessbank.com"));
+    }
+
+    static boolean isSummaryPrompt(String prompt) {
+        return prompt.contains("Provide a brief 2-3 sentence summary");
+    }
+}
@@ -0,0 +1,136 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoJob;
+import com.alok.ai.creditmemo.model.CreditMemoJob.JobStatus;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CreditMemoJobServiceTest {
+
+    private final CreditMemoService creditMemoService = mock(CreditMemoService.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CreditMemoJobService jobService = new CreditMemoJobService(
+        creditMemoService,
+        new InMemoryCreditMemoJobStore(),
+        CreditMemoFixtures.properties(Map.of(
+            "creditmemo.jobs.concurrency", "1",
+            "creditmemo.jobs.queue-capacity", "1",
+            "creditmemo.jobs.retry-after", "15s",
+            "creditmemo.jobs.callback.allowed-hosts", "localhost")),
+        RestClient.builder());
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobService.shutdown();
+    }
+
+    @Test
+    void jobRunsToCompletionAndCanBePolled() throws Exception {
+        CreditMemoResponse response = mock(CreditMemoResponse.class);
+        when(creditMemoService.generateCreditMemo(any())).thenReturn(response);
+
+        CreditMemoJob job = jobService.submit(request(), null);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (jobService.findJob(job.jobId()).orElseThrow().status() != JobStatus.SUCCEEDED
+                && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(jobService.findJob(job.jobId()).orElseThrow().result()).isSameAs(response);
+    }
+
+    @Test
+    void finishedJobsPastTheirRetentionAreSwept() throws Exception {
+        CreditMemoJobService shortLived = new CreditMemoJobService(creditMemoService, new InMemoryCreditMemoJobStore(),
+            CreditMemoFixtures.properties(Map.of("creditmemo.jobs.retention", "0s")), RestClient.builder());
+        try {
+            when(creditMemoService.generateCreditMemo(any())).thenReturn(mock(CreditMemoResponse.class));
+            CreditMemoJob job = shortLived.submit(request(), null);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (shortLived.findJob(job.jobId()).orElseThrow().status() != JobStatus.SUCCEEDED
+                    && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+
+            shortLived.deleteExpiredJobs();
+            assertThat(shortLived.findJob(job.jobId())).isEmpty();
+        } finally {
+            shortLived.shutdown();
+        }
+    }
+
+    @Test
+    void submissionsBeyondQueueCapacityAreRejected() {
+        when(creditMemoService.generateCreditMemo(any())).thenAnswer(invocation -> {
+            release.await();
+            return null;
+        });
+
+        jobService.submit(request(), null);
+        jobService.submit(request(), null);
+
+        assertThatThrownBy(() -> jobService.submit(request(), null))
+            .isInstanceOf(JobQueueFullException.class)
+            .satisfies(e -> assertThat(((JobQueueFullException) e).getRetryAfter()).hasSeconds(15));
+    }
+
+    @Test
+    void nonHttpCallbackUrlsAreRejected() {
+        assertThatThrownBy(() -> jobService.submit(request(), "file:///etc/passwd"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void callbacksToHostsNotAllowedAreRejected() {
+        assertThatThrownBy(() -> jobService.submit(request(), "http://169.254.169.254/latest/meta-data"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("not allowed");
+        assertThatThrownBy(() -> jobService.submit(request(), "http://127.0.0.1/hook"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void callbackCarriesOnlyTheJobIdStatusAndLinks() throws Exception {
+        CreditMemoResponse response = mock(CreditMemoResponse.class);
+        when(creditMemoService.generateCreditMemo(any())).thenReturn(response);
+        BlockingQueue<String> bodies = new LinkedBlockingQueue<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/hook", exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            CreditMemoJob job = jobService.submit(request(),
+                "http://localhost:" + server.getAddress().getPort() + "/hook");
+
+            assertThat(bodies.poll(5, TimeUnit.SECONDS))
+                .isEqualTo("{\"jobId\":\"" + job.jobId() + "\",\"status\":\"SUCCEEDED\","
+                           + "\"links\":{\"self\":\"/api/v1/credit-memos/jobs/" + job.jobId() + "\"}}");
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.config.SpringAiConfig;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.model.CreditMemoResponse;
+import com.alok.ai.creditmemo.model.CreditMemoStreamEvent;
+import com.alok.ai.creditmemo.model.CreditMemoStreamEvent.EventType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.DOCUMENT_JSON;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.NARRATIVE_JSON;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.isSummaryPrompt;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CreditMemoServiceTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private CreditMemoService service(StubChatModel model, Duration summaryTimeout) {
+        return service(model, summaryTimeout, SummaryMode.LLM);
+    }
+
+    private CreditMemoService service(StubChatModel model, Duration summaryTimeout, SummaryMode mode) {
+        // The model writes the whole document, so tests can tell its output from locally built text
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.mode", "LLM",
+            "creditmemo.generation.document-timeout", "10s",
+            "creditmemo.generation.summary-timeout", summaryTimeout.toMillis() + "ms",
+            "creditmemo.summary.mode", mode.name()));
+        return CreditMemoFixtures.service(model, executor, properties);
+    }
+
+    @Test
+    void documentAndSummaryCallsRunConcurrently() {
+        StubChatModel model = new StubChatModel(
+            prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON,
+            prompt -> isSummaryPrompt(prompt) ? 600L : 800L);
+
+        long start = System.nanoTime();
+        CreditMemoResponse response = service(model, Duration.ofSeconds(10)).generateCreditMemo(request());
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(response.creditMemoNumber()).isEqualTo("CM-2024-TEST0001");
+        assertThat(response.summary()).isEqualTo("Summary text.");
+        // Sequential calls would take at least 1400ms
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(800L).isLessThan(1300L);
+    }
+
+    @Test
+    void slowSummaryDegradesWithoutFailingTheMemo() {
+        StubChatModel model = new StubChatModel(
+            prompt -> isSummaryPrompt(prompt) ? "Too late." : DOCUMENT_JSON,
+            prompt -> isSummaryPrompt(prompt) ? 2_000L : 100L);
+
+        CreditMemoResponse response = service(model, Duration.ofMillis(300)).generateCreditMemo(request());
+
+        assertThat(response.creditMemoNumber()).isEqualTo("CM-2024-TEST0001");
+        assertThat(response.summary()).contains("Acme Corporation Ltd").contains("INV-2024-001");
+    }
+
+    @Test
+    void failedSummaryDegradesWithoutFailingTheMemo() {
+        StubChatModel model = new StubChatModel(prompt -> {
+            if (isSummaryPrompt(prompt)) {
+                throw new IllegalStateException("Bedrock unavailable");
+            }
+            return DOCUMENT_JSON;
+        });
+
+        CreditMemoResponse response = service(model, Duration.ofSeconds(10)).generateCreditMemo(request());
+
+        assertThat(response.summary()).contains("to correct a billing error");
+    }
+
+    @Test
+    void failedDocumentFailsTheMemo() {
+        StubChatModel model = new StubChatModel(prompt -> {
+            if (!isSummaryPrompt(prompt)) {
+                throw new IllegalStateException("Bedrock unavailable");
+            }
+            return "Summary text.";
+        });
+
+        assertThatThrownBy(() -> service(model, Duration.ofSeconds(10)).generateCreditMemo(request()))
+            .isInstanceOf(CreditMemoGenerationException.class)
+            .hasMessageContaining("Bedrock unavailable");
+    }
+
+    @Test
+    void templateModeMakesOnlyTheDocumentCall() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "LLM summary." : DOCUMENT_JSON);
+
+        CreditMemoResponse response = service(model, Duration.ofSeconds(10), SummaryMode.TEMPLATE)
+            .generateCreditMemo(request());
+
+        assertThat(model.calls()).isEqualTo(1);
+        assertThat(response.summary())
+            .startsWith("A credit of 500.00 GBP is to be issued to Acme Corporation Ltd (ID: CUST12345) to correct a billing error on invoice INV-2024-001.");
+    }
+
+    @Test
+    void summaryCanBeSkippedPerRequest() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "LLM summary." : DOCUMENT_JSON);
+
+        CreditMemoResponse response = service(model, Duration.ofSeconds(10)).generateCreditMemo(request(), false);
+
+        assertThat(model.calls()).isEqualTo(1);
+        assertThat(response.summary()).isNull();
+    }
+
+    @Test
+    void streamEmitsTokensThenDocumentSummaryAndCompleteResponse() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON);
+
+        List<CreditMemoStreamEvent> events = service(model, Duration.ofSeconds(10))
+            .streamCreditMemo(request(), true)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(events).isNotNull();
+        assertThat(events.get(0).type()).isEqualTo(EventType.ACCEPTED);
+        assertThat(events.subList(1, events.size() - 3)).isNotEmpty()
+            .allSatisfy(event -> assertThat(event.type()).isEqualTo(EventType.TOKEN));
+        assertThat(events.subList(events.size() - 3, events.size()))
+            .extracting(CreditMemoStreamEvent::type)
+            .containsExactly(EventType.DOCUMENT, EventType.SUMMARY, EventType.COMPLETE);
+        CreditMemoResponse response = (CreditMemoResponse) events.get(events.size() - 1).data();
+        assertThat(response.creditMemoNumber()).isEqualTo("CM-2024-TEST0001");
+        assertThat(response.summary()).isEqualTo("Summary text.");
+    }
+
+    @Test
+    void identicalRequestsReplayTheCachedResponse() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON);
+        CreditMemoService service = service(model, Duration.ofSeconds(10));
+
+        CreditMemoResponse first = service.generateCreditMemo(request());
+        CreditMemoResponse second = service.generateCreditMemo(request());
+
+        assertThat(second).isSameAs(first);
+        assertThat(model.calls()).isEqualTo(2);
+    }
+
+    @Test
+    void tokenUsageIsAggregatedIntoMetadataAndMetered() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of());
+        CreditMemoService service = CreditMemoFixtures.service(model, executor, properties, meterRegistry);
+
+        CreditMemoResponse.ProcessingMetadata generated = service.generateCreditMemo(request()).metadata();
+        CreditMemoResponse.ProcessingMetadata streamed = ((CreditMemoResponse) service.streamCreditMemo(request(), true)
+            .filter(event -> event.type() == EventType.COMPLETE)
+            .blockLast(Duration.ofSeconds(10))
+            .data()).metadata();
+
+        for (CreditMemoResponse.ProcessingMetadata metadata : List.of(generated, streamed)) {
+            assertThat(metadata.outputTokens()).isEqualTo(StubChatModel.tokens(DOCUMENT_JSON) + StubChatModel.tokens("Summary text."));
+            assertThat(metadata.inputTokens()).isPositive();
+            assertThat(metadata.tokensUsed()).isEqualTo(metadata.inputTokens() + metadata.outputTokens());
+        }
+        assertThat(meterRegistry.get("creditmemo.tokens")
+            .tags("endpoint", "generate", "direction", "input", "model", StubChatModel.MODEL,
+                  "requester.type", "BANK_COLLEAGUE", "credit.reason", "BILLING_ERROR")
+            .summaries())
+            .hasSize(2)
+            .allSatisfy(summary -> assertThat(summary.count()).isEqualTo(1));
+        assertThat(meterRegistry.get("creditmemo.tokens").tags("endpoint", "stream", "call", "document", "direction", "output")
+            .summary().totalAmount()).isEqualTo(StubChatModel.tokens(DOCUMENT_JSON));
+        // The second request's system prompts are served from the prompt cache
+        assertThat(generated.cacheReadTokens()).isZero();
+        assertThat(streamed.cacheReadTokens()).isPositive();
+        assertThat(meterRegistry.get("creditmemo.tokens").tags("endpoint", "stream", "direction", "cache-read")
+            .summaries()).extracting(DistributionSummary::totalAmount).allMatch(total -> total > 0);
+    }
+
+    @Test
+    void staticInstructionsAreSentAsTheSystemPromptAndRequestDataAsTheUserPrompt() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON);
+        CreditMemoService service = service(model, Duration.ofSeconds(5));
+        CreditMemoRequest.TransactionInfo transaction = request().originalTransaction();
+        CreditMemoRequest other = new CreditMemoRequest(request().requester(), null, request().customer(),
+            new CreditMemoRequest.TransactionInfo("TXN002", "INV-2024-002", transaction.transactionDate(),
+                transaction.originalAmount(), transaction.currency(), transaction.lineItems()),
+            request().creditDetails());
+
+        service.generateCreditMemo(request());
+        service.generateCreditMemo(other);
+
+        // One document and one summary system prompt, shared by both requests
+        assertThat(model.calls()).isEqualTo(4);
+        assertThat(model.systemPrompts()).hasSize(2)
+            .anySatisfy(system -> assertThat(system)
+                .startsWith(SpringAiConfig.SYSTEM_PROMPT)
+                .contains("STANDARD TERMS AND CONDITIONS", "\"$schema\"")
+                .doesNotContain("INV-"))
+            .anySatisfy(system -> assertThat(system).contains("Provide a brief 2-3 sentence summary"));
+    }
+
+    @Test
+    void callsGoToTheirRoutedModelAndMetadataRecordsIt() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON);
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.models.document", "large-model",
+            "creditmemo.models.summary", "small-model",
+            "creditmemo.models.routes[0].calls", "document",
+            "creditmemo.models.routes[0].max-amount", "100",
+            "creditmemo.models.routes[0].model", "tiny-model"));
+        CreditMemoService service = CreditMemoFixtures.service(model, executor, properties);
+
+        CreditMemoResponse response = service.generateCreditMemo(request());
+
+        assertThat(response.metadata().model()).isEqualTo("large-model");
+        assertThat(model.modelFor(prompt -> !isSummaryPrompt(prompt))).isEqualTo("large-model");
+        assertThat(model.modelFor(CreditMemoFixtures::isSummaryPrompt)).isEqualTo("small-model");
+    }
+
+    @Test
+    void callsCarryTheirClientsOptionsAlongsideTheRoutedModel() {
+        StubChatModel model = new StubChatModel(prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON);
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.mode", "LLM",
+            "creditmemo.models.summary", "small-model",
+            "creditmemo.clients.summary.max-tokens", "300",
+            "creditmemo.clients.summary.temperature", "0.1"));
+
+        CreditMemoFixtures.service(model, executor, properties).generateCreditMemo(request());
+
+        ChatOptions summary = model.optionsFor(CreditMemoFixtures::isSummaryPrompt);
+        assertThat(summary.getModel()).isEqualTo("small-model");
+        assertThat(summary.getMaxTokens()).isEqualTo(300);
+        assertThat(summary.getTemperature()).isEqualTo(0.1);
+        // Unset options fall through to the chat model's defaults
+        assertThat(model.optionsFor(prompt -> !isSummaryPrompt(prompt)).getMaxTokens()).isNull();
+    }
+
+    @Test
+    void deterministicModeMakesNoModelCall() {
+        StubChatModel model = new StubChatModel(prompt -> DOCUMENT_JSON);
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.modes.BANK_COLLEAGUE", "DETERMINISTIC"));
+
+        CreditMemoResponse response = CreditMemoFixtures.service(model, executor, properties)
+            .generateCreditMemo(request());
+
+        assertThat(model.calls()).isZero();
+        assertThat(response.creditMemoDocument()).contains("Billing error: Incorrect pricing applied");
+        assertThat(response.summary()).isEqualTo(SummaryTemplates.render(request()));
+        assertThat(response.metadata().model()).isEqualTo(DocumentTemplates.MODEL);
+        assertThat(response.metadata().tokensUsed()).isZero();
+    }
+
+    @Test
+    void hybridModeAsksTheModelOnlyForTheNarrative() {
+        StubChatModel model = new StubChatModel(prompt -> NARRATIVE_JSON);
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.mode", "HYBRID",
+            "creditmemo.summary.mode", "NONE"));
+
+        CreditMemoResponse response = CreditMemoFixtures.service(model, executor, properties)
+            .generateCreditMemo(request());
+
+        assertThat(model.calls()).isEqualTo(1);
+        // The one prompt sent is the narrative prompt, not the full document
+        assertThat(model.modelFor(prompt -> prompt.contains("\"lineItemReasons\"")
+                                            && !prompt.contains("\"creditMemoNumber\""))).isNotNull();
+        assertThat(response.creditMemoDocument())
+            .contains("Pricing corrected by the model.", "Rate card error", "Notes: Customer notified", "TOTAL CREDIT: 500.00 GBP");
+    }
+
+    @Test
+    void hybridStreamEmitsNarrativeTokensAndTheMergedDocument() {
+        StubChatModel model = new StubChatModel(prompt -> NARRATIVE_JSON);
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of("creditmemo.summary.mode", "NONE"));
+
+        List<CreditMemoStreamEvent> events = CreditMemoFixtures.service(model, executor, properties)
+            .streamCreditMemo(request(), true)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(events).isNotNull();
+        assertThat(events.subList(1, events.size() - 2))
+            .extracting(event -> (String) event.data())
+            .containsExactly(NARRATIVE_JSON.substring(0, 64), NARRATIVE_JSON.substring(64));
+        CreditMemoResponse response = (CreditMemoResponse) events.get(events.size() - 1).data();
+        assertThat(response.creditMemoDocument()).contains("Pricing corrected by the model.", "TOTAL CREDIT: 500.00 GBP");
+    }
+
+    @Test
+    void toolModeTakesTheAnswerFromTheSubmitToolCall() {
+        StubChatModel model = new StubChatModel(prompt -> NARRATIVE_JSON);
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.structured-output", "TOOL",
+            "creditmemo.summary.mode", "NONE"));
+        CreditMemoService service = CreditMemoFixtures.service(model, executor, properties);
+
+        CreditMemoResponse response = service.generateCreditMemo(request());
+        List<CreditMemoStreamEvent> events = service.streamCreditMemo(request(), false)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        ToolCallingChatOptions options = (ToolCallingChatOptions) model.optionsFor(prompt -> true);
+        assertThat(options.getToolCallbacks())
+            .extracting(tool -> tool.getToolDefinition().name())
+            .containsExactly("submit_narrative");
+        assertThat(options.getInternalToolExecutionEnabled()).isFalse();
+        // The schema travels with the tool instead of the system prompt
+        assertThat(model.systemPrompts()).singleElement().satisfies(system -> assertThat(system)
+            .contains("submit_narrative")
+            .doesNotContain("\"$schema\""));
+        assertThat(response.creditMemoDocument()).contains("Pricing corrected by the model.", "TOTAL CREDIT: 500.00 GBP");
+        assertThat(events).isNotNull();
+        assertThat(((CreditMemoResponse) events.getLast().data()).creditMemoDocument())
+            .contains("Pricing corrected by the model.");
+    }
+
+    @Test
+    void truncatedDocumentIsSalvagedAndOnlyTheMissingNarrativeIsRequested() {
+        // Cut off inside the line items, after the model's explanation
+        String truncated = DOCUMENT_JSON.substring(0, DOCUMENT_JSON.indexOf("\"reasonForCredit\""));
+        Queue<String> prompts = new ConcurrentLinkedQueue<>();
+        StubChatModel model = new StubChatModel(prompt -> {
+            prompts.add(prompt);
+            if (prompt.contains("\"creditMemoNumber\"")) {
+                return truncated;
+            }
+            return prompt.contains("LINE ITEM REASONS")
+                ? "{\"lineItemReasons\": [\"Rate card error\"]}"
+                : "{\"detailedExplanation\": \"Ignored.\", \"lineItemReasons\": [], \"notes\": \"Customer told by phone.\"}";
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.mode", "LLM",
+            "creditmemo.summary.mode", "NONE"));
+
+        CreditMemoResponse response = CreditMemoFixtures.service(model, executor, properties, meterRegistry)
+            .generateCreditMemo(request());
+
+        // The document, the missing line's reason, and the missing notes
+        assertThat(model.calls()).isEqualTo(3);
+        assertThat(prompts).filteredOn(prompt -> prompt.contains("LINE ITEM REASONS")).singleElement()
+            .satisfies(prompt -> assertThat(prompt).contains("Credited Items (1):"));
+        assertThat(response.creditMemoDocument())
+            // The model's explanation, the continuations' reason and notes, and local figures
+            .contains("Pricing corrected.", "Rate card error", "TOTAL CREDIT: 500.00 GBP", "Customer told by phone.")
+            .doesNotContain("Ignored.");
+        assertThat(meterRegistry.get("creditmemo.output.recovery").tag("action", "salvage").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void unreadableContinuationKeepsTheTemplateTextInsteadOfGeneratingAgain() {
+        String truncated = DOCUMENT_JSON.substring(0, DOCUMENT_JSON.indexOf("\"reasonForCredit\""));
+        StubChatModel model = new StubChatModel(prompt -> prompt.contains("\"creditMemoNumber\"")
+            ? truncated
+            : "I cannot help with that.");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.mode", "LLM",
+            "creditmemo.summary.mode", "NONE"));
+
+        CreditMemoResponse response = CreditMemoFixtures.service(model, executor, properties, meterRegistry)
+            .generateCreditMemo(request());
+
+        assertThat(model.calls()).isEqualTo(3);
+        assertThat(response.creditMemoDocument())
+            .contains("Pricing corrected.", "Billing error: Incorrect pricing applied", "Customer notified");
+        assertThat(meterRegistry.find("creditmemo.output.recovery").tag("action", "retry").counter()).isNull();
+    }
+
+    @Test
+    void outputWithNothingToSalvageIsGeneratedAgainOnce() {
+        AtomicInteger documentCalls = new AtomicInteger();
+        StubChatModel model = new StubChatModel(prompt -> documentCalls.incrementAndGet() == 1
+            ? "I am unable to produce that document."
+            : DOCUMENT_JSON);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.generation.mode", "LLM",
+            "creditmemo.summary.mode", "NONE"));
+
+        CreditMemoResponse response = CreditMemoFixtures.service(model, executor, properties, meterRegistry)
+            .generateCreditMemo(request());
+
+        assertThat(model.calls()).isEqualTo(2);
+        assertThat(response.creditMemoDocument()).contains("Pricing corrected.");
+        assertThat(meterRegistry.get("creditmemo.output.recovery").tag("action", "retry").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void largeMemoHasItsReasonsWrittenInChunksAndMergedInOrder() {
+        CreditMemoRequest large = withItems(12, "60.00");
+        Queue<String> prompts = new ConcurrentLinkedQueue<>();
+        StubChatModel model = new StubChatModel(prompt -> {
+            prompts.add(prompt);
+            if (!prompt.contains("LINE ITEM REASONS")) {
+                return NARRATIVE_JSON;
+            }
+            List<String> reasons = prompt.lines()
+                .map(String::strip)
+                .filter(line -> line.startsWith("- Item "))
+                .map(line -> "\"Reason for " + line.substring(2, line.indexOf(" |")) + "\"")
+                .toList();
+            return "{\"lineItemReasons\": [" + String.join(", ", reasons) + "]}";
+        });
+        CreditMemoProperties properties = CreditMemoFixtures.properties(Map.of(
+            "creditmemo.summary.mode", "NONE",
+            "creditmemo.generation.chunking.min-items", "10",
+            "creditmemo.generation.chunking.initial-chunk-size", "5"));
+
+        CreditMemoResponse response = CreditMemoFixtures.service(model, executor, properties)
+            .generateCreditMemo(large);
+
+        // Chunks of 5, 5 and 2 items, and the narrative
+        assertThat(model.calls()).isEqualTo(4);
+        // No prompt lists every item
+        assertThat(prompts).noneMatch(prompt -> prompt.contains("- Item 1 |") && prompt.contains("- Item 12 |"))
+            .filteredOn(prompt -> prompt.contains("LINE ITEM REASONS"))
+            .hasSize(3);
+        for (int i = 1; i <= 12; i++) {
+            assertThat(response.creditMemoDocument()).contains("Item " + i + " (Qty: 1) @ 10.00 = 5.00 - Reason for Item " + i + "\n");
+        }
+        assertThat(response.creditMemoDocument()).contains("Pricing corrected by the model.", "TOTAL CREDIT: 60.00 GBP");
+    }
+
+    @Test
+    void cutOffChunksDoNotResizeLaterChunks() {
+        // Every chunk stops after its first reason, as if at the token limit: a handful of tokens for five items
+        StubChatModel model = new StubChatModel(prompt -> prompt.contains("LINE ITEM REASONS")
+            ? "{\"lineItemReasons\": [\"Duplicate charge\", \"Dupl"
+            : NARRATIVE_JSON);
+        CreditMemoService service = CreditMemoFixtures.service(model, executor, CreditMemoFixtures.properties(Map.of(
+            "creditmemo.summary.mode", "NONE",
+            "creditmemo.generation.chunking.min-items", "10",
+            "creditmemo.generation.chunking.initial-chunk-size", "5")));
+
+        CreditMemoResponse first = service.generateCreditMemo(withItems(12, "60.00"));
+        service.generateCreditMemo(withItems(12, "30.00"));
+
+        assertThat(first.creditMemoDocument()).contains("Item 1 (Qty: 1) @ 10.00 = 5.00 - Duplicate charge\n");
+        // Chunks of 5, 5 and 2 items both times, each with its narrative call
+        assertThat(model.calls()).isEqualTo(8);
+    }
+
+    private static CreditMemoRequest withItems(int count, String creditAmount) {
+        List<CreditMemoRequest.LineItem> items = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            items.add(new CreditMemoRequest.LineItem("ITEM" + i, "Item " + i, 1, new BigDecimal("10.00"),
+                new BigDecimal("10.00")));
+        }
+        CreditMemoRequest.TransactionInfo transaction = request().originalTransaction();
+        CreditMemoRequest.CreditDetails credit = request().creditDetails();
+        return new CreditMemoRequest(request().requester(), null, request().customer(),
+            new CreditMemoRequest.TransactionInfo(transaction.transactionId(), transaction.invoiceNumber(),
+                transaction.transactionDate(), new BigDecimal("10.00").multiply(BigDecimal.valueOf(count)),
+                transaction.currency(), items),
+            new CreditMemoRequest.CreditDetails(credit.reason(), credit.reasonDescription(), new BigDecimal(creditAmount),
+                List.of(), credit.additionalNotes(), credit.requiresApproval(), credit.approverEmail()));
+    }
+}
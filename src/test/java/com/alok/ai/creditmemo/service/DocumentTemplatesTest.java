@@ -0,0 +1,122 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoNarrative;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentTemplatesTest {
+
+    private static CreditMemoRequest withLineItems(CreditMemoRequest request, BigDecimal amount,
+                                                   List<CreditMemoRequest.LineItem> items) {
+        CreditMemoRequest.TransactionInfo transaction = request.originalTransaction();
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        return new CreditMemoRequest(request.requester(), request.issuer(), request.customer(),
+            new CreditMemoRequest.TransactionInfo(transaction.transactionId(), transaction.invoiceNumber(),
+                transaction.transactionDate(), transaction.originalAmount(), transaction.currency(), items),
+            new CreditMemoRequest.CreditDetails(credit.reason(), credit.reasonDescription(), amount, null,
+                credit.additionalNotes(), credit.requiresApproval(), credit.approverEmail()));
+    }
+
+    @Test
+    void documentIsBuiltFromTheRequest() {
+        CreditMemoDocument document = DocumentTemplates.build(request());
+
+        assertThat(document.creditMemoNumber()).matches("CM-\\d{4}-[0-9A-F]{8}");
+        assertThat(document.issuer().name()).isEqualTo("UK Business Bank PLC");
+        assertThat(document.recipient().customerId()).isEqualTo("CUST12345");
+        assertThat(document.recipient().address()).isEqualTo("123 High Street, London, Greater London EC1A 1BB, United Kingdom");
+        assertThat(document.originalInvoice().invoiceNumber()).isEqualTo("INV-2024-001");
+        assertThat(document.creditInfo().reason()).isEqualTo("BILLING_ERROR");
+        assertThat(document.creditInfo().creditType()).isEqualTo("PARTIAL");
+        assertThat(document.creditInfo().detailedExplanation())
+            .contains("Acme Corporation Ltd", "INV-2024-001", "Incorrect pricing applied", "500.00 GBP");
+        assertThat(document.financialSummary()).isEqualTo(new CreditMemoDocument.FinancialSummary(
+            new BigDecimal("416.67"), new BigDecimal("83.33"), new BigDecimal("500.00"), "GBP"));
+        assertThat(document.creditLineItems()).singleElement().satisfies(line -> {
+            assertThat(line.itemDescription()).isEqualTo("Professional Services");
+            assertThat(line.lineTotal()).isEqualByComparingTo("500.00");
+            assertThat(line.reasonForCredit()).isEqualTo("Billing error: Incorrect pricing applied");
+        });
+        assertThat(document.authorizedBy()).isEqualTo("John Smith");
+        assertThat(document.notes()).isEqualTo("Customer notified");
+    }
+
+    @Test
+    void lineTotalsAreScaledToAddUpToTheCredit() {
+        CreditMemoRequest request = withLineItems(request(), new BigDecimal("100.00"), List.of(
+            new CreditMemoRequest.LineItem("A", "Widgets", 3, new BigDecimal("100.00"), new BigDecimal("300.00")),
+            new CreditMemoRequest.LineItem("B", "Gadgets", 1, new BigDecimal("100.00"), new BigDecimal("100.00")),
+            new CreditMemoRequest.LineItem("C", "Sprockets", 1, new BigDecimal("200.00"), new BigDecimal("200.00"))));
+
+        List<CreditMemoDocument.CreditLineItem> lines = DocumentTemplates.build(request).creditLineItems();
+
+        assertThat(lines).extracting(CreditMemoDocument.CreditLineItem::lineTotal)
+            .containsExactly(new BigDecimal("50.00"), new BigDecimal("16.67"), new BigDecimal("33.33"));
+    }
+
+    @Test
+    void smallCreditsSpreadOverManyItemsLeaveNoLineNegative() {
+        List<CreditMemoRequest.LineItem> items = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            items.add(new CreditMemoRequest.LineItem("I" + i, "Item " + i, 1, new BigDecimal("10.00"), new BigDecimal("10.00")));
+        }
+
+        List<CreditMemoDocument.CreditLineItem> lines =
+            DocumentTemplates.build(withLineItems(request(), new BigDecimal("0.03"), items)).creditLineItems();
+
+        assertThat(lines).extracting(CreditMemoDocument.CreditLineItem::lineTotal)
+            .containsExactly(new BigDecimal("0.01"), new BigDecimal("0.01"), new BigDecimal("0.01"),
+                new BigDecimal("0.00"), new BigDecimal("0.00"));
+    }
+
+    @Test
+    void narrativeNeedsNotesOnlyWhenTheRequestHasThem() {
+        CreditMemoRequest request = request();
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        CreditMemoRequest withoutNotes = new CreditMemoRequest(request.requester(), request.issuer(), request.customer(),
+            request.originalTransaction(), new CreditMemoRequest.CreditDetails(credit.reason(), credit.reasonDescription(),
+                credit.creditAmount(), credit.affectedItems(), null, credit.requiresApproval(), credit.approverEmail()));
+        CreditMemoNarrative noNotes = new CreditMemoNarrative("Invoiced twice.", List.of("Duplicate charge"), null);
+
+        assertThat(DocumentTemplates.isComplete(noNotes, DocumentTemplates.build(withoutNotes))).isTrue();
+        assertThat(DocumentTemplates.isComplete(noNotes, DocumentTemplates.build(request))).isFalse();
+    }
+
+    @Test
+    void everyReasonHasAnExplanation() {
+        CreditMemoRequest request = request();
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        Arrays.stream(CreditMemoRequest.CreditReason.values()).forEach(reason -> {
+            CreditMemoRequest forReason = new CreditMemoRequest(request.requester(), request.issuer(),
+                request.customer(), request.originalTransaction(),
+                new CreditMemoRequest.CreditDetails(reason, credit.reasonDescription(), credit.creditAmount(),
+                    credit.affectedItems(), credit.additionalNotes(), credit.requiresApproval(), credit.approverEmail()));
+
+            assertThat(DocumentTemplates.build(forReason).creditInfo().detailedExplanation())
+                .contains("Incorrect pricing applied")
+                .doesNotContain("%");
+        });
+    }
+
+    @Test
+    void narrativeReplacesOnlyTheTextItProvides() {
+        CreditMemoDocument document = DocumentTemplates.build(request());
+
+        CreditMemoDocument merged = DocumentTemplates.withNarrative(document,
+            new CreditMemoNarrative("Written by the model.", List.of(), " "));
+
+        assertThat(merged.creditInfo().detailedExplanation()).isEqualTo("Written by the model.");
+        assertThat(merged.creditLineItems()).isEqualTo(document.creditLineItems());
+        assertThat(merged.notes()).isEqualTo(document.notes());
+        assertThat(merged.financialSummary()).isEqualTo(document.financialSummary());
+    }
+}
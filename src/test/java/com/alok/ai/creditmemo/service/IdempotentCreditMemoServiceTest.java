@@ -0,0 +1,91 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.service.IdempotentCreditMemoService.IdempotentResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.DOCUMENT_JSON;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.isSummaryPrompt;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotentCreditMemoServiceTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final StubChatModel model = new StubChatModel(
+        prompt -> isSummaryPrompt(prompt) ? "Summary text." : DOCUMENT_JSON,
+        prompt -> 300L);
+
+    private final IdempotentCreditMemoService service = new IdempotentCreditMemoService(
+        CreditMemoFixtures.service(model, executor, CreditMemoFixtures.properties(Map.of())),
+        executor,
+        CreditMemoFixtures.properties(Map.of()));
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void concurrentRequestsWithTheSameKeyShareOneGeneration() {
+        List<IdempotentResult> results = IntStream.range(0, 5)
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> service.generateCreditMemo("key-1", request(), true), executor))
+            .toList()
+            .stream()
+            .map(CompletableFuture::join)
+            .toList();
+
+        assertThat(model.calls()).isEqualTo(2);
+        assertThat(results).extracting(IdempotentResult::response).allSatisfy(r -> assertThat(r).isSameAs(results.get(0).response()));
+        assertThat(results).filteredOn(r -> !r.replayed()).hasSize(1);
+    }
+
+    @Test
+    void reusingAKeyWithADifferentPayloadIsRejected() {
+        service.generateCreditMemo("key-2", request(), true);
+        CreditMemoRequest other = request();
+
+        assertThatThrownBy(() -> service.generateCreditMemo("key-2", other, false))
+            .isInstanceOf(IdempotencyKeyConflictException.class);
+    }
+
+    @Test
+    void differentPayloadIsRejectedWithoutWaitingForTheGeneration() throws InterruptedException {
+        CompletableFuture<IdempotentResult> first =
+            CompletableFuture.supplyAsync(() -> service.generateCreditMemo("key-3", request(), true), executor);
+        while (model.calls() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> service.generateCreditMemo("key-3", request(), false))
+            .isInstanceOf(IdempotencyKeyConflictException.class);
+        assertThat(first).isNotDone();
+        assertThat(first.join().replayed()).isFalse();
+    }
+
+    @Test
+    void keysAreScopedToTheRequester() {
+        CreditMemoRequest request = request();
+        CreditMemoRequest otherRequester = new CreditMemoRequest(
+            new CreditMemoRequest.RequesterInfo("REQ002", CreditMemoRequest.RequesterType.BANK_COLLEAGUE,
+                "Jane Doe", "jane.doe@ukbusinessbank.com", "Customer Service"),
+            request.issuer(), request.customer(), request.originalTransaction(), request.creditDetails());
+
+        IdempotentResult first = service.generateCreditMemo("key-4", request, false);
+        IdempotentResult second = service.generateCreditMemo("key-4", otherRequester, false);
+
+        assertThat(second.replayed()).isFalse();
+        assertThat(second.response()).isNotSameAs(first.response());
+        assertThat(model.calls()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,77 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.request;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelRouterTest {
+
+    private final ChatModel chatModel = new ChatModel() {
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return ChatOptions.builder().model("default-model").build();
+        }
+    };
+
+    private ModelRouter router(Map<String, String> values) {
+        return new ModelRouter(chatModel, CreditMemoFixtures.properties(values));
+    }
+
+    private static CreditMemoRequest withAmount(String amount) {
+        CreditMemoRequest request = request();
+        CreditMemoRequest.CreditDetails credit = request.creditDetails();
+        return new CreditMemoRequest(request.requester(), request.issuer(), request.customer(),
+            request.originalTransaction(),
+            new CreditMemoRequest.CreditDetails(credit.reason(), credit.reasonDescription(), new BigDecimal(amount),
+                credit.affectedItems(), credit.additionalNotes(), credit.requiresApproval(), credit.approverEmail()));
+    }
+
+    @Test
+    void unconfiguredCallsUseTheChatModelDefault() {
+        ModelRouter router = router(Map.of("creditmemo.models.summary", "small-model"));
+
+        assertThat(router.modelFor("summary", request())).isEqualTo("small-model");
+        assertThat(router.modelFor("document", request())).isEqualTo("default-model");
+        assertThat(router.modelFor("validation", request())).isEqualTo("default-model");
+    }
+
+    @Test
+    void firstMatchingRouteWins() {
+        ModelRouter router = router(Map.of(
+            "creditmemo.models.document", "large-model",
+            "creditmemo.models.routes[0].credit-reasons", "PRODUCT_RETURN",
+            "creditmemo.models.routes[0].model", "return-model",
+            "creditmemo.models.routes[1].calls", "document",
+            "creditmemo.models.routes[1].credit-reasons", "BILLING_ERROR,OVERCHARGE",
+            "creditmemo.models.routes[1].max-amount", "1000",
+            "creditmemo.models.routes[1].max-line-items", "3",
+            "creditmemo.models.routes[1].model", "small-model"));
+
+        // The fixture is a BILLING_ERROR over one line item
+        assertThat(router.modelFor("document", withAmount("500.00"))).isEqualTo("small-model");
+        assertThat(router.modelFor("document", withAmount("1000.01"))).isEqualTo("large-model");
+        assertThat(router.modelFor("summary", withAmount("500.00"))).isEqualTo("default-model");
+    }
+
+    @Test
+    void routeWithoutModelIsRejectedAtStartup() {
+        assertThatThrownBy(() -> router(Map.of("creditmemo.models.routes[0].max-amount", "100")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("routes[0].model");
+    }
+}
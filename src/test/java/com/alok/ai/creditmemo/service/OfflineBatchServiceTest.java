@@ -0,0 +1,151 @@
+package com.alok.ai.creditmemo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.DOCUMENT_JSON;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.NARRATIVE_JSON;
+import static com.alok.ai.creditmemo.service.CreditMemoFixtures.request;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OfflineBatchServiceTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void requestsRoundTripThroughBatchRecordFormat() throws Exception {
+        StubChatModel model = new StubChatModel(prompt -> prompt.contains("CUST-FAIL") ? "not json" : DOCUMENT_JSON);
+        CreditMemoService creditMemoService = CreditMemoFixtures.service(model, executor,
+            CreditMemoFixtures.properties(Map.of("creditmemo.generation.mode", "LLM")));
+        OfflineBatchService offline = new OfflineBatchService(creditMemoService, objectMapper, validator, 4096, 0.3);
+        LocalBatchInferenceRunner runner = new LocalBatchInferenceRunner(model, objectMapper);
+
+        String ok = objectMapper.writeValueAsString(request());
+        Path requests = Files.writeString(dir.resolve("requests.jsonl"),
+            String.join("\n", ok, ok.replace("CUST12345", "CUST-FAIL")));
+        Path modelInput = dir.resolve("model-input.jsonl");
+        Path results = dir.resolve("results.jsonl");
+        Path responses = dir.resolve("responses.jsonl");
+
+        assertThat(offline.prepare(requests, modelInput)).isEqualTo(2);
+        JsonNode record = objectMapper.readTree(Files.readAllLines(modelInput).get(0));
+        assertThat(record.get("recordId").asText()).isEqualTo("CM000000000");
+        assertThat(record.at("/modelInput/anthropic_version").asText()).isEqualTo("bedrock-2023-05-31");
+        assertThat(record.at("/modelInput/messages/0/content/0/text").asText()).contains("INV-2024-001");
+
+        assertThat(runner.run(modelInput, results)).isEqualTo(2);
+        assertThat(offline.ingest(requests, results, responses)).isEqualTo(1);
+
+        List<JsonNode> lines = Files.readAllLines(responses).stream().map(this::readTree).toList();
+        assertThat(lines.get(0).at("/result/creditMemoNumber").asText()).isEqualTo("CM-2024-TEST0001");
+        assertThat(lines.get(1).get("result").isNull()).isTrue();
+        assertThat(lines.get(1).get("recordId").asText()).isEqualTo("CM000000001");
+    }
+
+    @Test
+    void hybridRecordsAskOnlyForTheNarrative() throws Exception {
+        StubChatModel model = new StubChatModel(prompt -> NARRATIVE_JSON);
+        CreditMemoService creditMemoService = CreditMemoFixtures.service(model, executor,
+            CreditMemoFixtures.properties(Map.of()));
+        OfflineBatchService offline = new OfflineBatchService(creditMemoService, objectMapper, validator, 4096, 0.3);
+        Path requests = Files.writeString(dir.resolve("requests.jsonl"), objectMapper.writeValueAsString(request()));
+        Path modelInput = dir.resolve("model-input.jsonl");
+        Path results = dir.resolve("results.jsonl");
+        Path responses = dir.resolve("responses.jsonl");
+
+        offline.prepare(requests, modelInput);
+        assertThat(Files.readString(modelInput)).contains("lineItemReasons").doesNotContain("creditMemoNumber");
+        new LocalBatchInferenceRunner(model, objectMapper).run(modelInput, results);
+        assertThat(offline.ingest(requests, results, responses)).isEqualTo(1);
+
+        JsonNode result = readTree(Files.readAllLines(responses).get(0)).get("result");
+        assertThat(result.get("creditMemoDocument").asText()).contains("Pricing corrected by the model.", "Rate card error");
+    }
+
+    @Test
+    void deterministicRequestsGetNoRecordAndAreBuiltAtIngest() throws Exception {
+        StubChatModel model = new StubChatModel(prompt -> NARRATIVE_JSON);
+        CreditMemoService creditMemoService = CreditMemoFixtures.service(model, executor,
+            CreditMemoFixtures.properties(Map.of("creditmemo.generation.modes.SYSTEM_AUTOMATED", "DETERMINISTIC")));
+        OfflineBatchService offline = new OfflineBatchService(creditMemoService, objectMapper, validator, 4096, 0.3);
+        String hybrid = objectMapper.writeValueAsString(request());
+        Path requests = Files.writeString(dir.resolve("requests.jsonl"),
+            String.join("\n", hybrid.replace("BANK_COLLEAGUE", "SYSTEM_AUTOMATED"), hybrid));
+        Path modelInput = dir.resolve("model-input.jsonl");
+        Path results = dir.resolve("results.jsonl");
+        Path responses = dir.resolve("responses.jsonl");
+
+        assertThat(offline.prepare(requests, modelInput)).isEqualTo(1);
+        assertThat(readTree(Files.readAllLines(modelInput).get(0)).get("recordId").asText()).isEqualTo("CM000000001");
+        assertThat(new LocalBatchInferenceRunner(model, objectMapper).run(modelInput, results)).isEqualTo(1);
+        assertThat(model.calls()).isEqualTo(1);
+        assertThat(offline.ingest(requests, results, responses)).isEqualTo(2);
+
+        List<JsonNode> lines = Files.readAllLines(responses).stream().map(this::readTree).toList();
+        assertThat(lines.get(0).get("recordId").asText()).isEqualTo("CM000000000");
+        assertThat(lines.get(0).at("/result/metadata/model").asText()).isEqualTo(DocumentTemplates.MODEL);
+        assertThat(lines.get(0).at("/result/metadata/tokensUsed").asInt()).isZero();
+        assertThat(lines.get(1).get("recordId").asText()).isEqualTo("CM000000001");
+        assertThat(lines.get(1).at("/result/creditMemoDocument").asText()).contains("Pricing corrected by the model.");
+    }
+
+    @Test
+    void invalidRequestLinesAreSkippedAndReportedWithTheirLineNumbers() throws Exception {
+        StubChatModel model = new StubChatModel(prompt -> NARRATIVE_JSON);
+        CreditMemoService creditMemoService = CreditMemoFixtures.service(model, executor,
+            CreditMemoFixtures.properties(Map.of()));
+        OfflineBatchService offline = new OfflineBatchService(creditMemoService, objectMapper, validator, 4096, 0.3);
+        String ok = objectMapper.writeValueAsString(request());
+        Path requests = Files.writeString(dir.resolve("requests.jsonl"),
+            String.join("\n", "{\"requester\": null}", "{\"creditDetails\": 7}", ok));
+        Path modelInput = dir.resolve("model-input.jsonl");
+        Path results = dir.resolve("results.jsonl");
+        Path responses = dir.resolve("responses.jsonl");
+
+        assertThat(offline.prepare(requests, modelInput)).isEqualTo(1);
+        assertThat(readTree(Files.readAllLines(modelInput).get(0)).get("recordId").asText()).isEqualTo("CM000000002");
+        new LocalBatchInferenceRunner(model, objectMapper).run(modelInput, results);
+        assertThat(offline.ingest(requests, results, responses)).isEqualTo(1);
+
+        List<JsonNode> lines = Files.readAllLines(responses).stream().map(this::readTree).toList();
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0).get("recordId").asText()).isEqualTo("CM000000000");
+        assertThat(lines.get(0).get("error").asText())
+            .startsWith("Line 1: Invalid request parameters:")
+            .contains("requester=Requester information is required");
+        assertThat(lines.get(1).get("error").asText()).startsWith("Line 2: Malformed request:");
+        assertThat(lines.get(2).get("recordId").asText()).isEqualTo("CM000000002");
+        assertThat(lines.get(2).get("error").isNull()).isTrue();
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.alok.ai.creditmemo.service;
+
+import com.alok.ai.creditmemo.model.CreditMemoNarrative;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StructuredOutputParserTest {
+
+    private static final String NARRATIVE = """
+        {"detailedExplanation": "Invoiced twice.", "lineItemReasons": ["Duplicate charge"], "notes": "None"}""";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final StructuredOutputParser parser =
+        new StructuredOutputParser(Jackson2ObjectMapperBuilder.json().build(), meterRegistry);
+
+    private double count(String outcome) {
+        return meterRegistry.get(StructuredOutputParser.METER_NAME)
+            .tag("schema", "narrative")
+            .tag("outcome", outcome)
+            .counter()
+            .count();
+    }
+
+    @Test
+    void objectIsBoundWithoutRepair() {
+        CreditMemoNarrative narrative = parser.parse("narrative", CreditMemoNarrative.class, "\n " + NARRATIVE);
+
+        assertThat(narrative.detailedExplanation()).isEqualTo("Invoiced twice.");
+        assertThat(narrative.lineItemReasons()).containsExactly("Duplicate charge");
+        assertThat(count("parsed")).isEqualTo(1);
+    }
+
+    @Test
+    void fencesAndProseAroundTheObjectAreDropped() {
+        parser.parse("narrative", CreditMemoNarrative.class, "```json\n" + NARRATIVE + "\n```");
+        CreditMemoNarrative narrative = parser.parse("narrative", CreditMemoNarrative.class,
+            "Here is the narrative:\n" + NARRATIVE + "\nLet me know if you need changes.");
+
+        assertThat(narrative.notes()).isEqualTo("None");
+        assertThat(count("repaired")).isEqualTo(2);
+    }
+
+    @Test
+    void unreadableOutputFailsWithTheOutputAttached() {
+        String truncated = NARRATIVE.substring(0, 40);
+
+        assertThatThrownBy(() -> parser.parse("narrative", CreditMemoNarrative.class, truncated))
+            .isInstanceOfSatisfying(InvalidModelOutputException.class,
+                e -> assertThat(e.getOutput()).isEqualTo(truncated))
+            .hasMessageContaining("not valid narrative JSON");
+        assertThatThrownBy(() -> parser.parse("narrative", CreditMemoNarrative.class, ""))
+            .isInstanceOf(InvalidModelOutputException.class);
+        assertThat(count("failed")).isEqualTo(2);
+    }
+
+    @Test
+    void truncatedObjectKeepsTheMembersThatArrivedComplete() {
+        String truncated = """
+            {"detailedExplanation": "Invoiced {twice}, \\"as noted\\".", "lineItemReasons": ["Duplicate charge", "Dupl""";
+
+        CreditMemoNarrative narrative = parser.salvage("narrative", CreditMemoNarrative.class, truncated);
+
+        assertThat(narrative.detailedExplanation()).isEqualTo("Invoiced {twice}, \"as noted\".");
+        assertThat(narrative.lineItemReasons()).containsExactly("Duplicate charge");
+        assertThat(narrative.notes()).isNull();
+        assertThat(parser.salvage("narrative", CreditMemoNarrative.class, "I cannot help with that.")).isNull();
+        assertThat(meterRegistry.get(StructuredOutputParser.RECOVERY_METER_NAME).tag("action", "salvage")
+            .counter().count()).isEqualTo(1);
+    }
+}
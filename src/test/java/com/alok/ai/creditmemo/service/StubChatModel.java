@@ -0,0 +1,131 @@
+package com.alok.ai.creditmemo.service;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * ChatModel stand-in for tests; answers each prompt through a responder after a fixed delay.
+ * Reports usage as one token per four characters of prompt and output; a system prompt seen
+ * before counts as read from the prompt cache rather than as input. When the options offer a
+ * tool, the output comes back as the input of a call to it.
+ */
+class StubChatModel implements ChatModel {
+
+    static final String MODEL = "stub-model";
+
+    private final Function<String, String> responder;
+    private final Function<String, Long> delayMs;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Map<String, ChatOptions> optionsByPrompt = new ConcurrentHashMap<>();
+    private final Set<String> systemPrompts = ConcurrentHashMap.newKeySet();
+
+    StubChatModel(Function<String, String> responder, Function<String, Long> delayMs) {
+        this.responder = responder;
+        this.delayMs = delayMs;
+    }
+
+    StubChatModel(Function<String, String> responder) {
+        this(responder, prompt -> 0L);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.incrementAndGet();
+        String text = prompt.getContents();
+        if (prompt.getOptions() != null) {
+            optionsByPrompt.put(text, prompt.getOptions());
+        }
+        long delay = delayMs.apply(text);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Stub call interrupted", e);
+            }
+        }
+        String output = responder.apply(text);
+        String system = prompt.getSystemMessage().getText();
+        int cacheRead = system != null && !system.isEmpty() && !systemPrompts.add(system) ? tokens(system) : 0;
+        AssistantMessage message = prompt.getOptions() instanceof ToolCallingChatOptions tools
+                                   && !tools.getToolCallbacks().isEmpty()
+            ? AssistantMessage.builder()
+                .content("")
+                .toolCalls(List.of(new AssistantMessage.ToolCall("call-" + calls.get(), "function",
+                    tools.getToolCallbacks().getFirst().getToolDefinition().name(), output)))
+                .build()
+            : new AssistantMessage(output);
+        return new ChatResponse(List.of(new Generation(message)), ChatResponseMetadata.builder()
+            .model(MODEL)
+            .usage(new DefaultUsage(tokens(text) - cacheRead, tokens(output)))
+            .keyValue(TokenUsage.CACHE_READ_KEY, cacheRead)
+            .build());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            ChatResponse response = call(prompt);
+            String content = response.getResult().getOutput().getText();
+            List<ChatResponse> chunks = new ArrayList<>();
+            for (int i = 0; i < content.length(); i += 64) {
+                String chunk = content.substring(i, Math.min(content.length(), i + 64));
+                chunks.add(new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+            }
+            // Like Bedrock, usage and any tool call arrive on a final chunk with no text
+            AssistantMessage last = response.getResult().getOutput().hasToolCalls()
+                ? response.getResult().getOutput()
+                : new AssistantMessage("");
+            chunks.add(new ChatResponse(List.of(new Generation(last)), response.getMetadata()));
+            return Flux.fromIterable(chunks);
+        });
+    }
+
+    static int tokens(String text) {
+        return text == null ? 0 : text.length() / 4;
+    }
+
+    int calls() {
+        return calls.get();
+    }
+
+    Set<String> systemPrompts() {
+        return systemPrompts;
+    }
+
+    /**
+     * Model requested for the first prompt matching the predicate
+     */
+    String modelFor(Predicate<String> prompt) {
+        ChatOptions options = optionsFor(prompt);
+        return options != null ? options.getModel() : null;
+    }
+
+    /**
+     * Options sent with the first prompt matching the predicate
+     */
+    ChatOptions optionsFor(Predicate<String> prompt) {
+        return optionsByPrompt.entrySet().stream()
+            .filter(entry -> prompt.test(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .findFirst()
+            .orElse(null);
+    }
+}
@@ -0,0 +1,97 @@
+package com.alok.ai.creditmemo.stub;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.config.SpringAiConfig;
+import com.alok.ai.creditmemo.model.CreditMemoDocument;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.prompt.CreditMemoPrompts;
+import com.alok.ai.creditmemo.service.TokenUsage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.bedrockruntime.model.ThrottlingException;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StubBedrockChatModelTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private static CreditMemoProperties properties(Map<String, String> overrides) {
+        Map<String, String> values = new HashMap<>(Map.of(
+            "creditmemo.stub.latency-median", "1ms",
+            "creditmemo.stub.latency-p99", "2ms"));
+        values.putAll(overrides);
+        return new Binder(new MapConfigurationPropertySource(values)).bindOrCreate("creditmemo", CreditMemoProperties.class);
+    }
+
+    @Test
+    void answersDocumentPromptsWithSchemaValidDocuments() throws Exception {
+        CreditMemoProperties properties = properties(Map.of());
+        CreditMemoRequest request = objectMapper.readValue(new File("samples/sample-request-product-return.json"),
+            CreditMemoRequest.class);
+        BeanOutputConverter<CreditMemoDocument> converter = new BeanOutputConverter<>(CreditMemoDocument.class);
+        String prompt = new CreditMemoPrompts(new DefaultResourceLoader(), properties).document(request)
+                        + "\n" + converter.getFormat();
+
+        StubBedrockChatModel model = new StubBedrockChatModel(properties.stub(), objectMapper);
+        ChatResponse response = model.call(new Prompt(prompt));
+        CreditMemoDocument document = converter.convert(response.getResult().getOutput().getText());
+
+        assertThat(prompt).contains("Credit Memo Number: " + document.creditMemoNumber());
+        assertThat(document.recipient().customerId()).isEqualTo(request.customer().customerId());
+        assertThat(document.financialSummary().totalCreditAmount())
+            .isEqualByComparingTo(request.creditDetails().creditAmount());
+        assertThat(document.creditLineItems()).extracting(CreditMemoDocument.CreditLineItem::itemDescription)
+            .isNotEmpty();
+        assertThat(response.getMetadata().getUsage().getPromptTokens()).isPositive();
+
+        List<ChatResponse> chunks = model.stream(new Prompt(prompt)).collectList().block();
+        assertThat(chunks).hasSizeGreaterThan(2);
+    }
+
+    @Test
+    void repeatedSystemPromptIsReadFromTheCache() throws Exception {
+        CreditMemoProperties properties = properties(Map.of());
+        CreditMemoRequest request = objectMapper.readValue(new File("samples/sample-request-product-return.json"),
+            CreditMemoRequest.class);
+        CreditMemoPrompts prompts = new CreditMemoPrompts(new DefaultResourceLoader(), properties);
+        String system = SpringAiConfig.SYSTEM_PROMPT + prompts.documentInstructions()
+                        + new BeanOutputConverter<>(CreditMemoDocument.class).getFormat();
+        Prompt prompt = new Prompt(List.of(new SystemMessage(system), new UserMessage(prompts.document(request))));
+        StubBedrockChatModel model = new StubBedrockChatModel(properties.stub(), objectMapper);
+
+        TokenUsage first = TokenUsage.of(model.call(prompt));
+        TokenUsage second = TokenUsage.of(model.call(prompt));
+
+        assertThat(first.cacheWriteTokens()).isEqualTo(system.length() / 4);
+        assertThat(first.cacheReadTokens()).isZero();
+        assertThat(second.cacheReadTokens()).isEqualTo(first.cacheWriteTokens());
+        assertThat(second.cacheWriteTokens()).isZero();
+        // Only the per-request data is billed as input
+        assertThat(second.inputTokens()).isEqualTo(first.inputTokens()).isLessThan(second.cacheReadTokens());
+    }
+
+    @Test
+    void throttlesAtTheConfiguredRate() {
+        StubBedrockChatModel model = new StubBedrockChatModel(
+            properties(Map.of("creditmemo.stub.throttle-rate", "1")).stub(), objectMapper);
+
+        assertThatThrownBy(() -> model.call(new Prompt("Summarise this")))
+            .isInstanceOf(ThrottlingException.class);
+    }
+}
@@ -0,0 +1,85 @@
+package com.alok.ai.creditmemo.validation;
+
+import com.alok.ai.creditmemo.config.CreditMemoProperties;
+import com.alok.ai.creditmemo.model.CreditMemoRequest;
+import com.alok.ai.creditmemo.validation.ValidationRulesEngine.Decision;
+import com.alok.ai.creditmemo.validation.ValidationRulesEngine.RulesVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValidationRulesEngineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ValidationRulesEngine engine(Map<String, String> values) {
+        CreditMemoProperties properties = new Binder(new MapConfigurationPropertySource(values))
+            .bindOrCreate("creditmemo", CreditMemoProperties.class);
+        return new ValidationRulesEngine(properties, meterRegistry);
+    }
+
+    private static CreditMemoRequest request(String credit, List<String> affected, CreditMemoRequest.LineItem... items) {
+        return new CreditMemoRequest(
+            new CreditMemoRequest.RequesterInfo("REQ001", CreditMemoRequest.RequesterType.SYSTEM_AUTOMATED, "ERP", null, null),
+            null,
+            new CreditMemoRequest.CustomerInfo("CUST1", "Acme", null, null, null, null, null),
+            new CreditMemoRequest.TransactionInfo("TXN1", "INV-1", LocalDate.of(2024, 1, 15),
+                new BigDecimal("1000.00"), "GBP", List.of(items)),
+            new CreditMemoRequest.CreditDetails(CreditMemoRequest.CreditReason.PRODUCT_RETURN,
+                "Two units returned unopened within 30 days", new BigDecimal(credit), affected, null, false, null));
+    }
+
+    private static CreditMemoRequest.LineItem item(String id, int qty, String unit, String total) {
+        return new CreditMemoRequest.LineItem(id, "Widget", qty, new BigDecimal(unit), new BigDecimal(total));
+    }
+
+    @Test
+    void consistentSmallCreditIsAcceptedLocally() {
+        RulesVerdict verdict = engine(Map.of()).evaluate(
+            request("200.00", List.of("A"), item("A", 4, "100.00", "400.00"), item("B", 6, "100.00", "600.00")));
+
+        assertThat(verdict.decision()).isEqualTo(Decision.ACCEPT);
+        assertThat(meterRegistry.get("creditmemo.validation.rule").tag("rule", "line-totals-consistent")
+            .tag("verdict", "PASS").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void brokenRequestsAreRejectedLocally() {
+        RulesVerdict verdict = engine(Map.of()).evaluate(
+            request("1500.00", List.of("A", "Z"), item("A", 4, "100.00", "450.00")));
+
+        assertThat(verdict.decision()).isEqualTo(Decision.REJECT);
+        assertThat(verdict.failures()).anySatisfy(f -> assertThat(f).contains("exceeds the original transaction amount"))
+            .anySatisfy(f -> assertThat(f).contains("not present in the original line items: Z"))
+            .anySatisfy(f -> assertThat(f).contains("A (4 x 100.00 != 450.00)"));
+    }
+
+    @Test
+    void missingAffectedItemIdsAreRejectedRatherThanThrown() {
+        RulesVerdict verdict = engine(Map.of()).evaluate(
+            request("200.00", Arrays.asList("A", null, " "), item("A", 4, "100.00", "400.00")));
+
+        assertThat(verdict.decision()).isEqualTo(Decision.REJECT);
+        assertThat(verdict.failures()).contains("Affected items must not contain a missing or blank item ID");
+    }
+
+    @Test
+    void largeCreditsAreEscalatedUnlessTheRuleIsDisabled() {
+        CreditMemoRequest large = request("1000.00", List.of("A"), item("A", 10, "100.00", "1000.00"));
+
+        assertThat(engine(Map.of("creditmemo.validation.auto-accept-max-amount", "500"))
+            .evaluate(large).decision()).isEqualTo(Decision.ESCALATE);
+        assertThat(engine(Map.of("creditmemo.validation.auto-accept-max-amount", "500",
+                "creditmemo.validation.disabled-rules", "auto-accept-limit"))
+            .evaluate(large).decision()).isEqualTo(Decision.ACCEPT);
+    }
+}